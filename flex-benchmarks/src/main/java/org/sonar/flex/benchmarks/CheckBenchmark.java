@@ -0,0 +1,76 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.flex.FlexCheck;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.checks.CheckList;
+
+/**
+ * Runs a single check, with its default parameters, on all the parsed files of the corpus.
+ * The values of the "check" parameter are the simple names of the classes of {@link CheckList},
+ * all of them being set by {@link FlexBenchmarks} unless given on the command line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class CheckBenchmark {
+
+  @Param({})
+  public String check;
+
+  private FlexCheck instance;
+
+  @Setup
+  public void createCheck() throws ReflectiveOperationException {
+    Class<?> checkClass = CheckList.getChecks().stream()
+      .filter(c -> c.getSimpleName().equals(check))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("Unknown check: " + check));
+    try {
+      instance = (FlexCheck) checkClass.getConstructor().newInstance();
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("Cannot create " + check, e.getCause());
+    }
+  }
+
+  @Benchmark
+  public void scan(ParsedCorpus corpus, Blackhole blackhole) {
+    for (FlexVisitorContext context : corpus.contexts) {
+      instance.scanFile(context);
+      blackhole.consume(instance.getIssues());
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sources of one of the projects of the ITs, read once per trial.
+ * The directory of the projects can be set with the "flex.benchmarks.projects" system property,
+ * and defaults to its/plugin/projects, relatively to the root of the repository or to this module.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+  static final String PROJECTS_PROPERTY = "flex.benchmarks.projects";
+
+  @Param({"as3corelib", "as3commons"})
+  public String project;
+
+  Path baseDir;
+  final List<Path> files = new ArrayList<>();
+  final List<String> sources = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void read() throws IOException {
+    baseDir = projectsDirectory().resolve(project);
+    try (Stream<Path> paths = Files.walk(baseDir)) {
+      files.addAll(paths.filter(path -> path.toString().endsWith(".as")).sorted().collect(Collectors.toList()));
+    }
+    if (files.isEmpty()) {
+      throw new IllegalStateException("No ActionScript file in " + baseDir.toAbsolutePath());
+    }
+    for (Path file : files) {
+      sources.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+  }
+
+  private static Path projectsDirectory() {
+    String property = System.getProperty(PROJECTS_PROPERTY);
+    if (property != null) {
+      return Paths.get(property);
+    }
+    Path fromRoot = Paths.get("its", "plugin", "projects");
+    return Files.isDirectory(fromRoot) ? fromRoot : Paths.get("..", "its", "plugin", "projects");
+  }
+
+}
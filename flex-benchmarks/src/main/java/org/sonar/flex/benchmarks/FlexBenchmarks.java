@@ -0,0 +1,55 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.util.stream.Collectors;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.flex.checks.CheckList;
+
+/**
+ * Entry point of the benchmarks jar: accepts the usual JMH command line options,
+ * always adds the GC profiler to report allocation rates along with throughputs,
+ * and benchmarks every check of {@link CheckList} unless some are selected with "-p check=...".
+ *
+ * <pre>
+ * mvn package -pl flex-benchmarks -am -DskipTests
+ * java -jar flex-benchmarks/target/benchmarks.jar [regexp] [-p project=as3corelib]
+ * </pre>
+ */
+public final class FlexBenchmarks {
+
+  private FlexBenchmarks() {
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder()
+      .parent(commandLine)
+      .addProfiler(GCProfiler.class);
+    if (!commandLine.getParameter("check").hasValue()) {
+      options.param("check", CheckList.getChecks().stream().map(Class::getSimpleName).collect(Collectors.toList()).toArray(new String[0]));
+    }
+    new Runner(options.build()).run();
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.parser.FlexParser;
+
+/**
+ * A single parsed file with the given number of lines, like the generated files found in some projects:
+ * a class made of small functions with statements and comments.
+ */
+@State(Scope.Benchmark)
+public class GeneratedFile {
+
+  private static final int LINES_PER_FUNCTION = 8;
+
+  @Param({"20000"})
+  public int lines;
+
+  FlexVisitorContext context;
+
+  @Setup(Level.Trial)
+  public void parse() {
+    StringBuilder source = new StringBuilder("package generated {\npublic class Generated {\n");
+    for (int i = 0; i < (lines - 4) / LINES_PER_FUNCTION; i++) {
+      source.append("  // function number ").append(i).append('\n')
+        .append("  public function f").append(i).append("(a:int):int {\n")
+        .append("    var b:int = a * ").append(i).append(";\n")
+        .append("    if (b > 10 && a < 3) { // NOSONAR\n")
+        .append("      return b;\n")
+        .append("    }\n")
+        .append("    return a > 0 ? a : -a;\n")
+        .append("  }\n");
+    }
+    source.append("}\n}\n");
+    String content = source.toString();
+    context = new FlexVisitorContext(content, FlexParser.create(StandardCharsets.UTF_8).parse(content));
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.metrics.ComplexityVisitor;
+import org.sonar.flex.metrics.FileMetrics;
+
+/**
+ * Computes the metrics of all the parsed files of the corpus, as done by the sensor,
+ * and of a large generated file, for which the allocations of the line sets matter the most.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetricsBenchmark {
+
+  @Benchmark
+  public void fileMetrics(ParsedCorpus corpus, Blackhole blackhole) {
+    for (FlexVisitorContext context : corpus.contexts) {
+      blackhole.consume(new FileMetrics(withoutIndex(context)));
+    }
+  }
+
+  @Benchmark
+  public FileMetrics fileMetricsOfGeneratedFile(GeneratedFile file) {
+    return new FileMetrics(withoutIndex(file.context));
+  }
+
+  /**
+   * The index of the nodes is kept by the context, so that it would only be built by the first invocation.
+   */
+  private static FlexVisitorContext withoutIndex(FlexVisitorContext context) {
+    return new FlexVisitorContext(context.fileContent(), context.rootTree());
+  }
+
+  @Benchmark
+  public void complexity(ParsedCorpus corpus, Blackhole blackhole) {
+    ComplexityVisitor visitor = new ComplexityVisitor();
+    for (FlexVisitorContext context : corpus.contexts) {
+      visitor.scanFile(context);
+      blackhole.consume(visitor.getComplexity());
+    }
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+/**
+ * Trees of the files of the {@link Corpus} which can be parsed, so that visitors are measured without the parsing.
+ */
+@State(Scope.Benchmark)
+public class ParsedCorpus {
+
+  final List<FlexVisitorContext> contexts = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void parse(Corpus corpus) {
+    Parser<LexerlessGrammar> parser = FlexParser.create(StandardCharsets.UTF_8);
+    for (String source : corpus.sources) {
+      try {
+        contexts.add(new FlexVisitorContext(source, parser.parse(source)));
+      } catch (RecognitionException e) {
+        // such files are neither measured nor checked
+      }
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+/**
+ * Parses all the files of the corpus with the same parser, as done by each analysis worker of the sensor,
+ * and with a new parser for each file, to measure the cost of creating it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+  private Parser<LexerlessGrammar> parser;
+
+  @Setup
+  public void createParser() {
+    parser = FlexParser.create(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void parse(Corpus corpus, Blackhole blackhole) {
+    for (String source : corpus.sources) {
+      parse(parser, source, blackhole);
+    }
+  }
+
+  @Benchmark
+  public void parseWithNewParsers(Corpus corpus, Blackhole blackhole) {
+    for (String source : corpus.sources) {
+      parse(FlexParser.create(StandardCharsets.UTF_8), source, blackhole);
+    }
+  }
+
+  private static void parse(Parser<LexerlessGrammar> parser, String source, Blackhole blackhole) {
+    try {
+      blackhole.consume(parser.parse(source));
+    } catch (RecognitionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.SonarEdition;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.api.utils.Version;
+import org.sonar.check.Rule;
+import org.sonar.flex.checks.CheckList;
+import org.sonar.plugins.flex.FlexPlugin;
+import org.sonar.plugins.flex.FlexSquidSensor;
+import org.sonar.plugins.flex.core.Flex;
+
+/**
+ * Runs the whole sensor, with all the rules activated with their default parameters, on the corpus.
+ * Files are analyzed sequentially unless the "threads" parameter is overridden.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class SensorBenchmark {
+
+  @Param({"1"})
+  public int threads;
+
+  private final List<InputFile> inputFiles = new ArrayList<>();
+  private Path baseDir;
+  private FlexSquidSensor sensor;
+
+  @Setup
+  public void createSensor(Corpus corpus) {
+    baseDir = corpus.baseDir.toAbsolutePath();
+    for (int i = 0; i < corpus.files.size(); i++) {
+      String content = corpus.sources.get(i);
+      inputFiles.add(TestInputFileBuilder.create("benchmark", baseDir.relativize(corpus.files.get(i).toAbsolutePath()).toString())
+        .setModuleBaseDir(baseDir)
+        .setType(InputFile.Type.MAIN)
+        .setLanguage(Flex.KEY)
+        .setCharset(StandardCharsets.UTF_8)
+        .setContents(content)
+        .initMetadata(content)
+        .build());
+    }
+    sensor = new FlexSquidSensor(
+      SonarRuntimeImpl.forSonarQube(Version.create(10, 1), SonarQubeSide.SCANNER, SonarEdition.COMMUNITY),
+      new CheckFactory(allRules()),
+      new NoOpFileLinesContextFactory());
+  }
+
+  @Benchmark
+  public SensorContextTester analyse() {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.settings().setProperty(FlexPlugin.ANALYSIS_THREADS_KEY, threads);
+    context.fileSystem().setEncoding(StandardCharsets.UTF_8);
+    inputFiles.forEach(context.fileSystem()::add);
+    sensor.execute(context);
+    return context;
+  }
+
+  private static ActiveRules allRules() {
+    ActiveRulesBuilder builder = new ActiveRulesBuilder();
+    for (Class<?> check : CheckList.getChecks()) {
+      Rule rule = AnnotationUtils.getAnnotation(check, Rule.class);
+      builder.addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, rule.key())).build());
+    }
+    return builder.build();
+  }
+
+  private static class NoOpFileLinesContextFactory implements FileLinesContextFactory {
+
+    @Override
+    public FileLinesContext createFor(InputFile inputFile) {
+      return new FileLinesContext() {
+        @Override
+        public void setIntValue(String metricKey, int line, int value) {
+          // lines data is not measured
+        }
+
+        @Override
+        public void setStringValue(String metricKey, int line, String value) {
+          // lines data is not measured
+        }
+
+        @Override
+        public void save() {
+          // lines data is not measured
+        }
+      };
+    }
+  }
+
+}
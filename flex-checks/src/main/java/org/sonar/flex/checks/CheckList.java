@@ -106,6 +106,7 @@ public final class CheckList {
       DuplicateBranchImplementationCheck.class,
       DefaultCasePositionCheck.class,
       AllBranchesIdenticalCheck.class,
+      DeadStoreCheck.class,
       ParsingErrorCheck.class));
   }
 
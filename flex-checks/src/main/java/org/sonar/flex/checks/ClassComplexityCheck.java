@@ -45,7 +45,7 @@ public class ClassComplexityCheck extends FlexCheck {
 
   @Override
   public void visitNode(AstNode node) {
-    int complexity = ComplexityVisitor.complexity(node);
+    int complexity = ComplexityVisitor.complexity(getContext().nodeIndex(), node);
     if (complexity > maximumClassComplexityThreshold) {
       String message = String.format("Class has a complexity of %s which is greater than %s authorized.", complexity, maximumClassComplexityThreshold);
       addIssueWithCost(message, node, (double)complexity - maximumClassComplexityThreshold);
@@ -0,0 +1,89 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.checks;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.sonar.check.Rule;
+import org.sonar.flex.FlexCheck;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.cfg.ControlFlowGraph;
+import org.sonar.flex.cfg.LiveVariables;
+import org.sonar.flex.cfg.LocalVariables;
+import org.sonar.flex.cfg.VariableAccess;
+
+@Rule(key = "S1854")
+public class DeadStoreCheck extends FlexCheck {
+
+  /**
+   * Initial values which are commonly given to a variable before assigning it in every branch.
+   */
+  private static final Set<String> BASIC_VALUES = new HashSet<>(Arrays.asList(
+    "null", "undefined", "NaN", "true", "false", "0", "1", "-1", "\"\"", "''", "[]", "{}"));
+
+  @Override
+  public List<AstNodeType> subscribedTo() {
+    return Arrays.asList(
+      FlexGrammar.FUNCTION_DEF,
+      FlexGrammar.FUNCTION_EXPR);
+  }
+
+  @Override
+  public void visitNode(AstNode astNode) {
+    // in a with statement, a name can refer to a property of the object
+    if (!getContext().nodeIndex().descendants(astNode, FlexGrammar.WITH_STATEMENT).isEmpty()) {
+      return;
+    }
+    ControlFlowGraph cfg = getContext().controlFlowGraph(astNode);
+    LocalVariables variables = LocalVariables.create(getContext().semanticModel(), astNode, cfg);
+    if (variables.size() == 0) {
+      return;
+    }
+    for (VariableAccess write : LiveVariables.analyze(cfg, variables).deadStores()) {
+      // variables which are never used are reported by UnusedLocalVariableCheck
+      if (cfg.isReachable(write.block()) && !write.symbol().usages().isEmpty() && !isIgnored(write.node())) {
+        addIssue(MessageFormat.format("Remove this useless assignment to local variable \"{0}\".", write.symbol().name()), write.node());
+      }
+    }
+  }
+
+  /**
+   * Catch parameters, for-in bindings and declarations initialised with a basic value are ignored.
+   */
+  private static boolean isIgnored(AstNode node) {
+    AstNode grandParent = node.getParent().getParent();
+    if (node.is(FlexGrammar.IDENTIFIER)) {
+      if (grandParent.is(FlexGrammar.VARIABLE_BINDING, FlexGrammar.VARIABLE_BINDING_NO_IN)) {
+        return grandParent.getParent().is(FlexGrammar.FOR_IN_BINDING) || isBasicValue(grandParent.getLastChild().getLastChild());
+      }
+      return true;
+    }
+    return grandParent.getParent().is(FlexGrammar.FOR_IN_BINDING);
+  }
+
+  private static boolean isBasicValue(AstNode initialiser) {
+    return BASIC_VALUES.contains(initialiser.getTokens().stream().map(Token::getValue).collect(Collectors.joining()));
+  }
+
+}
@@ -44,7 +44,7 @@ public class FunctionComplexityCheck extends FlexCheck {
 
   @Override
   public void visitNode(AstNode node) {
-    int functionComplexity = ComplexityVisitor.functionComplexity(node);
+    int functionComplexity = ComplexityVisitor.functionComplexity(getContext().nodeIndex(), node);
     if (functionComplexity > maximumFunctionComplexityThreshold) {
       String message = String.format("Function has a complexity of %s which is greater than %s authorized.", functionComplexity, maximumFunctionComplexityThreshold);
       addIssueWithCost(message, node, (double)functionComplexity - maximumFunctionComplexityThreshold);
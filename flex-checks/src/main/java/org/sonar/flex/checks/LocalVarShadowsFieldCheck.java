@@ -19,13 +19,8 @@ package org.sonar.flex.checks;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import java.text.MessageFormat;
-import java.util.ArrayDeque;
-import java.util.Arrays;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import javax.annotation.Nullable;
 import org.sonar.check.Rule;
 import org.sonar.flex.FlexCheck;
 import org.sonar.flex.FlexGrammar;
@@ -34,71 +29,49 @@ import org.sonar.flex.checks.utils.Clazz;
 import org.sonar.flex.checks.utils.Function;
 import org.sonar.flex.checks.utils.Modifiers;
 import org.sonar.flex.checks.utils.Variable;
+import org.sonar.flex.semantic.Scope;
+import org.sonar.flex.semantic.Symbol;
 
 @Rule(key = "S1117")
 public class LocalVarShadowsFieldCheck extends FlexCheck {
 
-
-  private static class ClassState {
-    private final Map<String, AstNode> classFields;
-    private final String className;
-
-    public ClassState(AstNode classDef) {
-      className = Clazz.getName(classDef);
-      this.classFields = new HashMap<>();
-      initFieldsMap(classDef);
-    }
-
-    private void initFieldsMap(AstNode classDef) {
-      for (AstNode varDeclStatement : Clazz.getFields(classDef)) {
-
-        for (AstNode identifier : Variable.getDeclaredIdentifiers(varDeclStatement)) {
-          classFields.put(identifier.getTokenValue(), identifier);
-        }
-      }
-    }
-
-    public AstNode getFieldNamed(String name) {
-      return classFields.get(name);
-    }
-
-    public String getClassName() {
-      return this.className;
-    }
-  }
-
-  private Deque<ClassState> classStack = new ArrayDeque<>();
-  private int functionNestedLevel;
   private static final String MESSAGE = "Rename \"{0}\" which hides the field declared at line {1}.";
 
   @Override
   public List<AstNodeType> subscribedTo() {
-    return Arrays.asList(
-      FlexGrammar.CLASS_DEF,
-      FlexGrammar.FUNCTION_DEF,
-      FlexGrammar.VARIABLE_DECLARATION_STATEMENT);
+    return Collections.singletonList(FlexGrammar.CLASS_DEF);
   }
 
   @Override
-  public void visitFile(@Nullable AstNode astNode) {
-    classStack.clear();
-    functionNestedLevel = 0;
+  public void visitNode(AstNode node) {
+    Scope classScope = getContext().semanticModel().scope(node);
+    String className = Clazz.getName(node);
+    for (Scope innerScope : classScope.innerScopes()) {
+      checkScope(classScope, className, innerScope, false);
+    }
   }
 
-  @Override
-  public void visitNode(AstNode node) {
-    if (node.is(FlexGrammar.CLASS_DEF)) {
-      classStack.push(new ClassState(node));
-    } else if (isClassFunctionNotConstructor(node) && !isAccessor(node) && !isStatic(node)) {
-      functionNestedLevel++;
-    } else if (!classStack.isEmpty() && functionNestedLevel > 0 && node.is(FlexGrammar.VARIABLE_DECLARATION_STATEMENT)) {
-      checkVariableNames(node);
+  /**
+   * Checks the variables of the functions nested in a method which is neither a constructor, an accessor nor static.
+   * Nested classes are checked on their own.
+   */
+  private void checkScope(Scope classScope, String className, Scope scope, boolean inMethod) {
+    if (scope.kind() == Scope.Kind.CLASS) {
+      return;
+    }
+    boolean checked = inMethod || isCheckedMethod(scope.tree(), className);
+    if (checked) {
+      for (Symbol variable : scope.symbols(Symbol.Kind.VARIABLE)) {
+        checkVariable(classScope, variable);
+      }
+    }
+    for (Scope innerScope : scope.innerScopes()) {
+      checkScope(classScope, className, innerScope, checked);
     }
   }
 
-  private boolean isClassFunctionNotConstructor(AstNode node) {
-    return !classStack.isEmpty() && node.is(FlexGrammar.FUNCTION_DEF)
-      && !Function.isConstructor(node, classStack.peek().getClassName());
+  private static boolean isCheckedMethod(AstNode node, String className) {
+    return node.is(FlexGrammar.FUNCTION_DEF) && !Function.isConstructor(node, className) && !isAccessor(node) && !isStatic(node);
   }
 
   private static boolean isStatic(AstNode functionDef) {
@@ -111,23 +84,15 @@ public class LocalVarShadowsFieldCheck extends FlexCheck {
       || (functionName.length() > 2 && "set".equals(functionName.substring(0, 3)));
   }
 
-  private void checkVariableNames(AstNode varDeclStatement) {
-    for (AstNode identifier : Variable.getDeclaredIdentifiers(varDeclStatement)) {
-      String varName = identifier.getTokenValue();
-      AstNode field = classStack.peek().getFieldNamed(varName);
-
-      if (field != null) {
-        addIssue(MessageFormat.format(MESSAGE, varName, field.getToken().getLine()), identifier);
+  private void checkVariable(Scope classScope, Symbol variable) {
+    for (Symbol field : classScope.symbols(variable.name())) {
+      if (field.kind() == Symbol.Kind.FIELD) {
+        for (AstNode identifier : variable.declarations()) {
+          if (Variable.getDeclarationStatement(identifier) != null) {
+            addIssue(MessageFormat.format(MESSAGE, variable.name(), field.declaration().getToken().getLine()), identifier);
+          }
+        }
       }
     }
   }
-
-  @Override
-  public void leaveNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.CLASS_DEF)) {
-      classStack.pop();
-    } else if (!classStack.isEmpty() && astNode.is(FlexGrammar.FUNCTION_DEF) && functionNestedLevel > 0) {
-      functionNestedLevel--;
-    }
-  }
 }
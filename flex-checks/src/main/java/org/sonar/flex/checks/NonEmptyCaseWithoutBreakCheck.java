@@ -40,7 +40,10 @@ public class NonEmptyCaseWithoutBreakCheck extends FlexCheck {
       return;
     }
 
-    int jumpStmtNumber = astNode.getDescendants(JUMP_NODES).size();
+    int jumpStmtNumber = 0;
+    for (AstNodeType jumpNode : JUMP_NODES) {
+      jumpStmtNumber += getContext().nodeIndex().descendants(astNode, jumpNode).size();
+    }
 
     if (jumpStmtNumber < 2) {
       AstNode directive = astNode.getLastChild();
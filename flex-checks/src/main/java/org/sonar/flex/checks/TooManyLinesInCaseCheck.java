@@ -55,7 +55,7 @@ public class TooManyLinesInCaseCheck extends FlexCheck {
     AstNode lastLabelNode = children.get(children.size() - 1);
     int caseLabelLines = lastLabelNode.getTokenLine() - firstLabelNode.getTokenLine();
 
-    int lines = linesVisitor.linesOfCode().size() - caseLabelLines;
+    int lines = linesVisitor.linesOfCode().cardinality() - caseLabelLines;
     if (lines > max) {
       addIssue(
         MessageFormat.format("Reduce this switch case number of lines of code from {0} to at most {1}, for example by extracting code into methods.", lines, max),
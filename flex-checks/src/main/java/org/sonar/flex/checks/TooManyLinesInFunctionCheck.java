@@ -49,7 +49,7 @@ public class TooManyLinesInFunctionCheck extends FlexCheck {
   public void visitNode(AstNode astNode) {
     FileLinesVisitor linesVisitor = new FileLinesVisitor();
     linesVisitor.scanNode(astNode);
-    int nbLines = linesVisitor.linesOfCode().size();
+    int nbLines = linesVisitor.linesOfCode().cardinality();
     if (nbLines > max) {
       addIssue(
         MessageFormat.format("This function has {0} lines of code, which is greater than the {1} lines authorized. Split it into smaller functions.", nbLines, max),
@@ -18,119 +18,43 @@ package org.sonar.flex.checks;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
-import com.sonar.sslr.api.Token;
 import java.text.MessageFormat;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import javax.annotation.Nullable;
 import org.sonar.check.Rule;
 import org.sonar.flex.FlexCheck;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.FlexKeyword;
 import org.sonar.flex.checks.utils.Function;
-import org.sonar.flex.checks.utils.Preconditions;
+import org.sonar.flex.semantic.Scope;
+import org.sonar.flex.semantic.Symbol;
 
 @Rule(key = "S1172")
 public class UnusedFunctionParametersCheck extends FlexCheck {
 
-  private Deque<Boolean> classes = new ArrayDeque<>();
-
-  private static class Scope {
-    private final Scope outerScope;
-    private final AstNode functionDec;
-    private final Map<String, Integer> arguments;
-
-    public Scope(Scope outerScope, AstNode functionDec) {
-      this.outerScope = outerScope;
-      this.functionDec = functionDec;
-      this.arguments = new LinkedHashMap<>();
-    }
-
-    private void declare(AstNode astNode) {
-      Preconditions.checkState(astNode.is(FlexGrammar.IDENTIFIER));
-      String identifier = astNode.getTokenValue();
-      arguments.put(identifier, 0);
-    }
-
-    private void use(String value) {
-      Scope scope = this;
-      while (scope != null) {
-        Integer usage = scope.arguments.get(value);
-        if (usage != null) {
-          usage++;
-          scope.arguments.put(value, usage);
-          return;
-        }
-        scope = scope.outerScope;
-      }
-    }
-  }
-
   private static final AstNodeType[] FUNCTION_NODES = {FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR};
-  private Scope currentScope;
 
   @Override
   public List<AstNodeType> subscribedTo() {
-    List<AstNodeType> types = new ArrayList<>();
-    types.add(FlexGrammar.POSTFIX_EXPR);
-    types.add(FlexGrammar.PARAMETERS);
-    types.add(FlexGrammar.CLASS_DEF);
-    Collections.addAll(types, FUNCTION_NODES);
-    return types;
-  }
-
-  @Override
-  public void visitFile(@Nullable AstNode astNode) {
-    currentScope = null;
-    classes.clear();
+    return Arrays.asList(FUNCTION_NODES);
   }
 
   @Override
   public void visitNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.CLASS_DEF)) {
-      classes.push(implementsAnInterface(astNode));
-    } else if (astNode.is(FUNCTION_NODES)) {
-      // enter new scope
-      currentScope = new Scope(currentScope, astNode);
-
-    } else if (currentScope != null && astNode.is(FlexGrammar.PARAMETERS) && astNode.getParent().is(FlexGrammar.FUNCTION_SIGNATURE)) {
-      declareInCurrentScope(Function.getParametersIdentifiers(currentScope.functionDec));
-
-    } else if (currentScope != null && astNode.is(FlexGrammar.POSTFIX_EXPR)) {
-      AstNode postfixExprChild = astNode.getFirstChild();
-      // check if it is not a call to function with same name than the parameter
-      if (postfixExprChild.is(FlexGrammar.PRIMARY_EXPR) && postfixExprChild.getNextAstNode().isNot(FlexGrammar.ARGUMENTS)) {
-        currentScope.use(getPrimaryExpressionStringValue(postfixExprChild));
-      }
+    Scope scope = getContext().semanticModel().scope(astNode);
+    if (isNotAbstract(astNode) && !isExcluded(astNode, scope)) {
+      reportUnusedArgument(astNode, scope);
     }
   }
 
-  @Override
-  public void leaveNode(AstNode astNode) {
-    if (astNode.is(FUNCTION_NODES) && isNotAbstract(astNode)) {
-      // leave scope
-      if (!isExcluded(astNode)) {
-        reportUnusedArgument();
-      }
-      currentScope = currentScope.outerScope;
-    } else if (astNode.is(FlexGrammar.CLASS_DEF)) {
-      classes.pop();
-    }
-  }
-
-  private void reportUnusedArgument() {
+  private void reportUnusedArgument(AstNode functionDec, Scope scope) {
     int nbUnusedArgs = 0;
     StringBuilder formatBuilder = new StringBuilder("Remove the unused function {0} \"");
 
-    for (Map.Entry<String, Integer> entry : currentScope.arguments.entrySet()) {
-      if (entry.getValue() == 0) {
-        formatBuilder.append(entry.getKey()).append(", ");
+    for (Symbol parameter : scope.symbols(Symbol.Kind.PARAMETER)) {
+      if (!isUsed(parameter, scope)) {
+        formatBuilder.append(parameter.name()).append(", ");
         nbUnusedArgs++;
       }
     }
@@ -138,27 +62,68 @@ public class UnusedFunctionParametersCheck extends FlexCheck {
     if (nbUnusedArgs > 0) {
       formatBuilder.replace(formatBuilder.length() - 2, formatBuilder.length(), "\".");
       String message = MessageFormat.format(formatBuilder.toString(), nbUnusedArgs > 1 ? "parameters" : "parameter");
-      addIssue(message, currentScope.functionDec);
+      addIssue(message, functionDec);
     }
   }
 
-  private boolean isExcluded(AstNode functionDec) {
+  /**
+   * The parameter is only hidden by a parameter of a nested function: a name in a catch clause, or which is declared as
+   * a variable or a function in a nested function, is still a usage of the parameter.
+   */
+  private static boolean isUsed(Symbol parameter, Scope scope) {
+    for (Symbol symbol : scope.symbols(parameter.name())) {
+      if (symbol.usages().stream().anyMatch(UnusedFunctionParametersCheck::isUsage)) {
+        return true;
+      }
+    }
+    for (Scope innerScope : scope.innerScopes()) {
+      boolean hidden = innerScope.kind() == Scope.Kind.FUNCTION
+        && innerScope.symbols(parameter.name()).stream().anyMatch(symbol -> symbol.kind() == Symbol.Kind.PARAMETER);
+      if (!hidden && isUsed(parameter, innerScope)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Only a name which starts a postfix expression is a usage: neither a call to a function with the same name as the
+   * parameter, nor a name qualified by a namespace, nor the class of a {@code new} expression.
+   */
+  private static boolean isUsage(AstNode qualifiedIdentifier) {
+    AstNode primaryExpr = qualifiedIdentifier.getParent();
+    if (qualifiedIdentifier.getToken() != qualifiedIdentifier.getLastToken()
+      || primaryExpr.isNot(FlexGrammar.PRIMARY_EXPR)
+      || primaryExpr.getParent().isNot(FlexGrammar.POSTFIX_EXPR)
+      || primaryExpr.getPreviousSibling() != null) {
+      return false;
+    }
+    AstNode next = primaryExpr.getNextAstNode();
+    return next == null || next.isNot(FlexGrammar.ARGUMENTS);
+  }
+
+  private static boolean isExcluded(AstNode functionDec, Scope scope) {
     AstNode directives = functionDec
       .getFirstChild(FlexGrammar.FUNCTION_COMMON)
       .getFirstChild(FlexGrammar.BLOCK)
       .getFirstChild(FlexGrammar.DIRECTIVES);
 
     return isExcludedFunctionDeclaration(functionDec) || isEmpty(directives)
-      || containsOnlyThrowStmt(directives) || isInClassImplementingInterface();
+      || containsOnlyThrowStmt(directives) || isInClassImplementingInterface(scope);
   }
 
-  private static Boolean implementsAnInterface(AstNode classDef) {
-    AstNode inheritenceNode = classDef.getFirstChild(FlexGrammar.INHERITENCE);
-    return inheritenceNode != null && inheritenceNode.getFirstChild().is(FlexKeyword.IMPLEMENTS);
+  private static boolean isInClassImplementingInterface(Scope scope) {
+    for (Scope current = scope; current != null; current = current.outer()) {
+      if (current.tree().is(FlexGrammar.CLASS_DEF)) {
+        return implementsAnInterface(current.tree());
+      }
+    }
+    return false;
   }
 
-  private boolean isInClassImplementingInterface() {
-    return !classes.isEmpty() && classes.peek();
+  private static boolean implementsAnInterface(AstNode classDef) {
+    AstNode inheritenceNode = classDef.getFirstChild(FlexGrammar.INHERITENCE);
+    return inheritenceNode != null && inheritenceNode.getFirstChild().is(FlexKeyword.IMPLEMENTS);
   }
 
   private static boolean containsOnlyThrowStmt(AstNode directives) {
@@ -175,12 +140,6 @@ public class UnusedFunctionParametersCheck extends FlexCheck {
     return directives.getNumberOfChildren() == 0;
   }
 
-  private void declareInCurrentScope(List<AstNode> identifiers) {
-    for (AstNode identifier : identifiers) {
-      currentScope.declare(identifier);
-    }
-  }
-
   private static boolean isExcludedFunctionDeclaration(AstNode functionDec) {
     return functionDec.is(FlexGrammar.FUNCTION_DEF) && (Function.isOverriding(functionDec) || isEventHandler(functionDec));
   }
@@ -216,12 +175,4 @@ public class UnusedFunctionParametersCheck extends FlexCheck {
     return functionDef.getFirstChild(FlexGrammar.FUNCTION_COMMON).getLastChild().is(FlexGrammar.BLOCK);
   }
 
-  private static String getPrimaryExpressionStringValue(AstNode postfixExpr) {
-    StringBuilder builder = new StringBuilder();
-    for (Token t : postfixExpr.getTokens()) {
-      builder.append(t.getValue());
-    }
-    return builder.toString();
-  }
-
 }
@@ -18,102 +18,86 @@ package org.sonar.flex.checks;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
 import java.text.MessageFormat;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nullable;
+import javax.annotation.CheckForNull;
 import org.sonar.check.Rule;
 import org.sonar.flex.FlexCheck;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.checks.utils.Variable;
+import org.sonar.flex.semantic.Scope;
+import org.sonar.flex.semantic.Symbol;
 
 @Rule(key = "S1481")
 public class UnusedLocalVariableCheck extends FlexCheck {
 
-  private static class LocalVariable {
-    final AstNode declaration;
-    int usages;
-
-    private LocalVariable(AstNode declaration, int usages) {
-      this.declaration = declaration;
-      this.usages = usages;
-    }
-  }
-
-  private static class Scope {
-    private final Scope outerScope;
-    private final Map<String, LocalVariable> variables;
-
-    public Scope(Scope outerScope) {
-      this.outerScope = outerScope;
-      this.variables = new HashMap<>();
-    }
-
-
-    private void declare(AstNode astNode) {
-      String identifier = astNode.getTokenValue();
-      variables.computeIfAbsent(identifier, key -> new LocalVariable(astNode, 0));
-    }
-
-    private void use(AstNode astNode) {
-      String identifier = astNode.getTokenValue();
-      Scope scope = this;
-
-      while (scope != null) {
-        LocalVariable variable = scope.variables.get(identifier);
-        if (variable != null) {
-          variable.usages++;
-          return;
-        }
-        scope = scope.outerScope;
-      }
-    }
-  }
-
-  private Scope currentScope;
-
   @Override
   public List<AstNodeType> subscribedTo() {
-    return Arrays.asList(
-      FlexGrammar.FUNCTION_DEF,
-      FlexGrammar.VARIABLE_DECLARATION_STATEMENT,
-      FlexGrammar.QUALIFIED_IDENTIFIER);
-  }
-
-  @Override
-  public void visitFile(@Nullable AstNode astNode) {
-    currentScope = null;
+    return Collections.singletonList(FlexGrammar.FUNCTION_DEF);
   }
 
+  /**
+   * The variables of the function expressions nested in the function definition are variables of the function
+   * definition: a variable which is declared with the same name in a function expression is the same one. A variable
+   * is only used by a name which follows its first declaration.
+   */
   @Override
   public void visitNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.FUNCTION_DEF)) {
-      currentScope = new Scope(currentScope);
-    } else if (currentScope != null && astNode.is(FlexGrammar.VARIABLE_DECLARATION_STATEMENT)) {
-      for (AstNode varIdentifier : Variable.getDeclaredIdentifiers(astNode)) {
-        currentScope.declare(varIdentifier);
+    Map<String, List<Symbol>> variablesByName = new LinkedHashMap<>();
+    addVariables(getContext().semanticModel().scope(astNode), variablesByName);
+    for (Map.Entry<String, List<Symbol>> entry : variablesByName.entrySet()) {
+      AstNode declaration = firstDeclaration(entry.getValue());
+      if (declaration != null && !isUsedAfter(entry.getValue(), Variable.getDeclarationStatement(declaration).getToken())) {
+        addIssue(MessageFormat.format("Remove this unused ''{0}'' local variable.", entry.getKey()), declaration);
       }
-    } else if (currentScope != null && astNode.is(FlexGrammar.QUALIFIED_IDENTIFIER)) {
-      currentScope.use(astNode);
     }
   }
 
-  @Override
-  public void leaveNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.FUNCTION_DEF)) {
-      reportUnusedVariable();
-      currentScope = currentScope.outerScope;
+  private static void addVariables(Scope scope, Map<String, List<Symbol>> variablesByName) {
+    for (Symbol variable : scope.symbols(Symbol.Kind.VARIABLE)) {
+      variablesByName.computeIfAbsent(variable.name(), name -> new ArrayList<>()).add(variable);
+    }
+    for (Scope innerScope : scope.innerScopes()) {
+      if (innerScope.kind() == Scope.Kind.CATCH || innerScope.tree().is(FlexGrammar.FUNCTION_EXPR)) {
+        addVariables(innerScope, variablesByName);
+      }
     }
   }
 
+  /**
+   * @return the first identifier which declares one of the variables in a variable declaration statement, or null if
+   * they are only declared by other constructs, such as the initialiser of a for loop
+   */
+  @CheckForNull
+  private static AstNode firstDeclaration(List<Symbol> variables) {
+    AstNode first = null;
+    for (Symbol variable : variables) {
+      for (AstNode identifier : variable.declarations()) {
+        if (Variable.getDeclarationStatement(identifier) != null && (first == null || isBefore(identifier.getToken(), first.getToken()))) {
+          first = identifier;
+        }
+      }
+    }
+    return first;
+  }
 
-  private void reportUnusedVariable() {
-    for (Map.Entry<String, LocalVariable> entry : currentScope.variables.entrySet()) {
-      if (entry.getValue().usages == 0) {
-        addIssue(MessageFormat.format("Remove this unused ''{0}'' local variable.", entry.getKey()), entry.getValue().declaration);
+  private static boolean isUsedAfter(List<Symbol> variables, Token start) {
+    for (Symbol variable : variables) {
+      for (AstNode usage : variable.usages()) {
+        if (!isBefore(usage.getToken(), start)) {
+          return true;
+        }
       }
     }
+    return false;
+  }
+
+  private static boolean isBefore(Token token, Token other) {
+    return token.getLine() < other.getLine() || (token.getLine() == other.getLine() && token.getColumn() < other.getColumn());
   }
 }
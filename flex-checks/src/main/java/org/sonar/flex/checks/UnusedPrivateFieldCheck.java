@@ -19,98 +19,48 @@ package org.sonar.flex.checks;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import java.text.MessageFormat;
-import java.util.ArrayDeque;
-import java.util.Arrays;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import javax.annotation.Nullable;
+import javax.annotation.CheckForNull;
 import org.sonar.check.Rule;
 import org.sonar.flex.FlexCheck;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.FlexKeyword;
-import org.sonar.flex.checks.utils.Clazz;
 import org.sonar.flex.checks.utils.Modifiers;
 import org.sonar.flex.checks.utils.Variable;
+import org.sonar.flex.semantic.Scope;
+import org.sonar.flex.semantic.Symbol;
 
 @Rule(key = "S1068")
 public class UnusedPrivateFieldCheck extends FlexCheck {
 
-  private static class PrivateField {
-    final AstNode declaration;
-    int usages;
-
-    public PrivateField(AstNode declaration, int usages) {
-      this.declaration = declaration;
-      this.usages = usages;
-    }
-  }
-
-  private static class ClassState {
-    private final Map<String, PrivateField> privateFields;
-
-    public ClassState(AstNode classDef) {
-      this.privateFields = new HashMap<>();
-      retrieveAllPrivateFields(classDef);
-    }
-
-    private void retrieveAllPrivateFields(AstNode classDef) {
-      for (AstNode varDeclaration : Clazz.getFields(classDef)) {
-        if (Modifiers.getModifiers(varDeclaration.getParent().getPreviousAstNode()).contains(FlexKeyword.PRIVATE)) {
-          for (AstNode identifier : Variable.getDeclaredIdentifiers(varDeclaration)) {
-
-            privateFields.put(identifier.getTokenValue(), new PrivateField(identifier, 0));
-          }
-        }
-      }
-    }
-
-    private void use(AstNode astNode) {
-      PrivateField field = privateFields.get(astNode.getTokenValue());
-
-      if (field != null) {
-        field.usages++;
-      }
-    }
-  }
-
-
-  private Deque<ClassState> classStack = new ArrayDeque<>();
-
   @Override
   public List<AstNodeType> subscribedTo() {
-    return Arrays.asList(
-      FlexGrammar.CLASS_DEF,
-      FlexGrammar.QUALIFIED_IDENTIFIER);
-  }
-
-  @Override
-  public void visitFile(@Nullable AstNode astNode) {
-    classStack.clear();
+    return Collections.singletonList(FlexGrammar.CLASS_DEF);
   }
 
   @Override
   public void visitNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.CLASS_DEF)) {
-      classStack.push(new ClassState(astNode));
-    } else if (!classStack.isEmpty() && astNode.is(FlexGrammar.QUALIFIED_IDENTIFIER)) {
-      classStack.peek().use(astNode);
-    }
-  }
-
-  @Override
-  public void leaveNode(AstNode astNode) {
-    if (astNode.is(FlexGrammar.CLASS_DEF)) {
-      reportUnusedPrivateField();
+    Scope classScope = getContext().semanticModel().scope(astNode);
+    for (Symbol field : classScope.symbols(Symbol.Kind.FIELD)) {
+      if (field.usages().isEmpty()) {
+        AstNode privateDeclaration = lastPrivateDeclaration(field);
+        if (privateDeclaration != null) {
+          addIssue(MessageFormat.format("Remove this unused ''{0}'' private field", field.name()), privateDeclaration);
+        }
+      }
     }
   }
 
-  private void reportUnusedPrivateField() {
-    for (Map.Entry<String, PrivateField> entry : classStack.pop().privateFields.entrySet()) {
-      if (entry.getValue().usages == 0) {
-        addIssue(MessageFormat.format("Remove this unused ''{0}'' private field", entry.getKey()), entry.getValue().declaration);
+  @CheckForNull
+  private static AstNode lastPrivateDeclaration(Symbol field) {
+    AstNode result = null;
+    for (AstNode identifier : field.declarations()) {
+      AstNode varDeclaration = Variable.getDeclarationStatement(identifier);
+      if (varDeclaration != null && Modifiers.getModifiers(varDeclaration.getParent().getPreviousAstNode()).contains(FlexKeyword.PRIVATE)) {
+        result = identifier;
       }
     }
+    return result;
   }
 }
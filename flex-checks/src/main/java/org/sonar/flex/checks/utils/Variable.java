@@ -19,6 +19,7 @@ package org.sonar.flex.checks.utils;
 import com.sonar.sslr.api.AstNode;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.FlexKeyword;
 
@@ -82,4 +83,15 @@ public final class Variable {
     return identifiers;
   }
 
+  /**
+   * @return the VARIABLE_DECLARATION_STATEMENT which declares the given identifier, or null if the identifier is declared
+   * by another construct, such as the initialiser of a for loop
+   */
+  @CheckForNull
+  public static AstNode getDeclarationStatement(AstNode identifier) {
+    Preconditions.checkState(identifier.is(FlexGrammar.IDENTIFIER));
+    AstNode variableDef = identifier.getParent().getParent().getParent().getParent();
+    return variableDef.is(FlexGrammar.VARIABLE_DEF) ? variableDef.getParent() : null;
+  }
+
 }
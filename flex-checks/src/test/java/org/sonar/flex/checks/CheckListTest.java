@@ -21,12 +21,17 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexCheck;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.FlexVisitorDispatcher;
+import org.sonar.flex.Issue;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.server.rule.RulesDefinitionAnnotationLoader;
 
@@ -86,4 +91,40 @@ public class CheckListTest {
     assertThat(nonLinkedFiles).as("Unexpected html description files found").isEmpty();
   }
 
+  /**
+   * Enforces that running all checks in a single pass reports the same issues as running them one after the other.
+   */
+  @Test
+  public void single_pass_dispatch() throws Exception {
+    List<FlexCheck> checks = new ArrayList<>();
+    for (Class<?> cls : CheckList.getChecks()) {
+      checks.add((FlexCheck) cls.getConstructor().newInstance());
+    }
+    FlexVisitorDispatcher dispatcher = new FlexVisitorDispatcher(checks);
+
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(Paths.get("src/test/resources/checks"))) {
+      files = stream.filter(file -> file.toString().endsWith(".as")).sorted().collect(Collectors.toList());
+    }
+    assertThat(files).isNotEmpty();
+    for (Path file : files) {
+      FlexVisitorContext context = FlexVerifier.createContext(file.toFile());
+      List<String> expected = new ArrayList<>();
+      for (FlexCheck check : checks) {
+        check.scanFileForIssues(context).forEach(issue -> expected.add(describe(check, issue)));
+      }
+
+      dispatcher.scanFile(context);
+      List<String> actual = new ArrayList<>();
+      for (FlexCheck check : checks) {
+        check.getIssues().forEach(issue -> actual.add(describe(check, issue)));
+      }
+      assertThat(actual).as(file.toString()).isEqualTo(expected);
+    }
+  }
+
+  private static String describe(FlexCheck check, Issue issue) {
+    return check.getClass().getSimpleName() + " " + issue.line() + " " + issue.message() + " " + issue.cost();
+  }
+
 }
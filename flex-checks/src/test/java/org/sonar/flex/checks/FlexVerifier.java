@@ -79,7 +79,7 @@ public class FlexVerifier {
     return verifier;
   }
 
-  private static FlexVisitorContext createContext(File file) {
+  static FlexVisitorContext createContext(File file) {
     Parser<LexerlessGrammar> parser = FlexParser.create(StandardCharsets.UTF_8);
     String fileContent;
     try {
@@ -0,0 +1,114 @@
+function f(p) {
+  var a = compute();    // Noncompliant {{Remove this useless assignment to local variable "a".}}
+  a = compute();
+  var b = null;         // OK, basic value
+  b = a;
+  p = b;                // Noncompliant
+  return a;
+}
+
+function loops(n) {
+  var sum = 0;
+  var last;
+  var tmp;
+  for (var i = 0; i < n; i++) {
+    sum += i;
+    last = i;           // OK, read after the loop
+    tmp = i;            // Noncompliant
+  }
+  for (var k in n) {    // OK
+    sum++;
+  }
+  trace(last);
+  var j = 0;
+  while (true) {
+    j++;                // OK
+    if (j > n) {
+      return sum;
+    }
+  }
+}
+
+function branches(p) {
+  var x = compute();
+  if (p) {
+    x = 1;
+  }
+  var y = compute();    // Noncompliant
+  switch (p) {
+    case 1:
+      y = 2;
+      break;
+    default:
+      y = 3;
+  }
+  return x + y;
+}
+
+function exceptions() {
+  var a = compute();    // OK, read in the catch clause
+  try {
+    a = compute();
+    call();
+    a = compute();
+  } catch (e:Error) {   // OK, catch parameter
+    return a;
+  }
+  return 0;
+}
+
+function captured() {
+  var a = compute();    // OK, read by a nested function
+  var g = function() { return a; };
+  a = compute();
+  var b = compute();
+  var h = function() { b = 2; };
+  return g() + h();
+}
+
+function withStatement(o) {
+  var a = compute();    // OK, names can refer to properties of o
+  with (o) {
+    a = 2;
+  }
+}
+
+function unreachable() {
+  var a = 1;
+  return a;
+  a = 2;                // OK, unreachable code
+}
+
+function namespaceQualifier(xml) {
+  var ns:Namespace = new Namespace("http://example.com");   // OK, read as the namespace of a name
+  return xml.ns::name;
+}
+
+function redeclaredParameter(d:Date):Date {
+  var d:Date = new Date(d.time);                            // OK, same variable as the parameter
+  d.hours = 0;
+  return d;
+}
+
+function conditionalWrites(c) {
+  var x = compute();                                        // OK, the assignment may not be executed
+  if (c || (x = compute())) {
+    doSomething();
+  }
+  var y = compute();                                        // OK
+  c ? (y = compute()) : 0;
+  var z = compute();                                        // OK
+  var ok = c && (z = compute()) != null;
+  doSomething(ok);
+  return x + y + z;
+}
+
+function unused() {
+  var a = compute();    // OK, reported by the unused local variable rule
+}
+
+var field = function() {
+  var a = compute();    // Noncompliant
+  a = compute();
+  return a;
+};
@@ -84,3 +84,13 @@ function restSomething3(e:MouseEvent, ...args) { return; } // Noncompliant
 function onRestSomething3(e:MouseEvent, ...args) { return; } // OK
 
 function onSomethingWithoutType(e) { return; } // Noncompliant
+
+function newInstance(clazz:Class) { return new clazz(); } // Noncompliant
+
+function usedInCatch(e:Event) {    // OK, the name of the catch parameter is a usage
+  try {
+    doSomething();
+  } catch (e:Error) {
+    trace(e.message);
+  }
+}
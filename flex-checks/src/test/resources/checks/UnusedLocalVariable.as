@@ -13,3 +13,19 @@ function f() {
 
   doSomething(a);
 }
+
+function g() {
+  doSomething(beforeDeclaration);
+  var beforeDeclaration;   // Noncompliant
+  var ns:Namespace = new Namespace("uri");  // OK
+  var xml = getXml();
+  return xml.ns::name;
+}
+
+function h() {
+  var a;                   // OK, same variable as the one of the function expression
+  return function() {
+    var a;
+    return a;
+  };
+}
@@ -0,0 +1,246 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+import org.sonar.sslr.internal.vm.ParsingExpression;
+
+/**
+ * Ordered choice which, like {@code b.firstOf(...)}, tries its alternatives one after the other, but first looks at
+ * the first significant character of the input, after {@link FlexGrammar#SPACING}, to skip the alternatives which
+ * cannot start there.
+ * <p>
+ * A {@link Lookahead} must accept every input on which its alternative can succeed. A skipped alternative would have
+ * failed right after the spacing, which the last alternative, always tried, also reaches: the resulting tree and the
+ * location of parse errors are the same as with {@code b.firstOf(...)}.
+ */
+final class DispatchExpression implements ParsingExpression {
+
+  /**
+   * Tells if an alternative can start at the given index of the input.
+   */
+  @FunctionalInterface
+  interface Lookahead {
+    boolean test(CharSequence input, int index);
+  }
+
+  /**
+   * Only there to turn an arbitrary rule key or expression into a {@link ParsingExpression} through
+   * {@code b.sequence(MARKER, e)}, and removed at compilation by {@link #compileExpression(CompilationHandler, ParsingExpression)}.
+   */
+  private static final NativeExpression MARKER = new NativeExpression() {
+    @Override
+    public void execute(Machine machine) {
+      machine.jump(1);
+    }
+
+    @Override
+    public String toString() {
+      return "Marker";
+    }
+  };
+
+  private final Lookahead[] lookaheads;
+  private final ParsingExpression[] alternatives;
+
+  private DispatchExpression(Lookahead[] lookaheads, ParsingExpression[] alternatives) {
+    this.lookaheads = lookaheads;
+    this.alternatives = alternatives;
+  }
+
+  static ParsingExpression expression(LexerlessGrammarBuilder b, Object e) {
+    return (ParsingExpression) b.sequence(MARKER, e);
+  }
+
+  static Instruction[] compileExpression(CompilationHandler compiler, ParsingExpression expression) {
+    Instruction[] instructions = compiler.compile(expression);
+    return Arrays.copyOfRange(instructions, 1, instructions.length);
+  }
+
+  static Lookahead startsWith(String... prefixes) {
+    return (input, index) -> {
+      for (String prefix : prefixes) {
+        if (startsWith(input, index, prefix)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  static Lookahead characters(String characters) {
+    return (input, index) -> index < input.length() && characters.indexOf(input.charAt(index)) >= 0;
+  }
+
+  private static boolean startsWith(CharSequence input, int index, String prefix) {
+    if (index + prefix.length() > input.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (input.charAt(index + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compiles this expression into a sequence of instructions, where alternatives without lookahead have no
+   * {@code Dispatch}:
+   * <pre>
+   * D0: Dispatch
+   * Choice D1
+   * alternatives[0]
+   * Commit E
+   * D1: Dispatch
+   * Choice D2
+   * alternatives[1]
+   * Commit E
+   * D2: alternatives[2]
+   * E: ...
+   * </pre>
+   * Each {@code Dispatch} jumps to the {@code Choice} of the first following alternative whose lookahead accepts the
+   * input, or else to the last alternative.
+   */
+  @Override
+  public Instruction[] compile(CompilationHandler compiler) {
+    int n = alternatives.length;
+    Instruction[][] sub = new Instruction[n][];
+    // start of the Choice of each alternative, or of the last alternative itself
+    int[] starts = new int[n];
+    int length = 0;
+    for (int i = 0; i < n; i++) {
+      sub[i] = compileExpression(compiler, alternatives[i]);
+      if (i < n - 1 && lookaheads[i] != null) {
+        length++;
+      }
+      starts[i] = length;
+      length += sub[i].length + (i < n - 1 ? 2 : 0);
+    }
+
+    Instruction[] result = new Instruction[length];
+    for (int i = 0; i < n - 1; i++) {
+      int start = starts[i];
+      if (lookaheads[i] != null) {
+        result[start - 1] = new DispatchInstruction(i, start - 1, starts);
+      }
+      int next = i + 1 < n - 1 && lookaheads[i + 1] != null ? (starts[i + 1] - 1) : starts[i + 1];
+      result[start] = Instruction.choice(next - start);
+      System.arraycopy(sub[i], 0, result, start + 1, sub[i].length);
+      int commit = start + 1 + sub[i].length;
+      result[commit] = Instruction.commit(length - commit);
+    }
+    System.arraycopy(sub[n - 1], 0, result, starts[n - 1], sub[n - 1].length);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "Dispatch" + Arrays.toString(alternatives);
+  }
+
+  private final class DispatchInstruction extends Instruction {
+
+    private final int alternative;
+    private final int position;
+    private final int[] starts;
+
+    private DispatchInstruction(int alternative, int position, int[] starts) {
+      this.alternative = alternative;
+      this.position = position;
+      this.starts = starts;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      int index = FlexTerminals.spacingLength(machine);
+      int i = alternative;
+      while (i < lookaheads.length - 1 && lookaheads[i] != null && !lookaheads[i].test(machine, index)) {
+        i++;
+      }
+      machine.jump(starts[i] - position);
+    }
+
+    @Override
+    public String toString() {
+      return "Dispatch " + alternative;
+    }
+  }
+
+  /**
+   * Collects the alternatives in order, and builds either a {@link DispatchExpression} or, when dispatching is
+   * disabled, the equivalent {@code b.firstOf(...)}.
+   */
+  static final class Builder {
+
+    private final LexerlessGrammarBuilder b;
+    private final boolean dispatch;
+    private final List<Lookahead> lookaheads = new ArrayList<>();
+    private final List<Object> alternatives = new ArrayList<>();
+
+    Builder(LexerlessGrammarBuilder b, boolean dispatch) {
+      this.b = b;
+      this.dispatch = dispatch;
+    }
+
+    Builder on(String prefix, Object alternative) {
+      return on(startsWith(prefix), alternative);
+    }
+
+    Builder on(Lookahead lookahead, Object alternative) {
+      return add(lookahead, alternative);
+    }
+
+    /**
+     * Alternative which can start with anything, and is therefore always tried.
+     */
+    Builder always(Object alternative) {
+      return add(null, alternative);
+    }
+
+    /**
+     * @return the whole choice, ending with the given alternative
+     */
+    Object otherwise(Object alternative) {
+      add(null, alternative);
+      if (!dispatch) {
+        Object[] rest = alternatives.subList(2, alternatives.size()).toArray();
+        return b.firstOf(alternatives.get(0), alternatives.get(1), rest);
+      }
+      ParsingExpression[] expressions = new ParsingExpression[alternatives.size()];
+      for (int i = 0; i < expressions.length; i++) {
+        expressions[i] = expression(b, alternatives.get(i));
+      }
+      return new DispatchExpression(lookaheads.toArray(new Lookahead[0]), expressions);
+    }
+
+    private Builder add(@Nullable Lookahead lookahead, Object alternative) {
+      lookaheads.add(lookahead);
+      alternatives.add(alternative);
+      return this;
+    }
+  }
+
+}
@@ -27,8 +27,20 @@ public abstract class FlexCheck extends FlexVisitor {
   private List<Issue> issues = new ArrayList<>();
 
   public List<Issue> scanFileForIssues(FlexVisitorContext context) {
-    issues = new ArrayList<>();
     scanFile(context);
+    return getIssues();
+  }
+
+  @Override
+  void startScan(FlexVisitorContext context) {
+    super.startScan(context);
+    issues = new ArrayList<>();
+  }
+
+  /**
+   * Issues raised during the last scan, either by {@link #scanFileForIssues(FlexVisitorContext)} or by a {@link FlexVisitorDispatcher}.
+   */
+  public List<Issue> getIssues() {
     return Collections.unmodifiableList(issues);
   }
 
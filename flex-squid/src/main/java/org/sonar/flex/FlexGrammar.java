@@ -17,10 +17,12 @@
 package org.sonar.flex;
 
 import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Grammar;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.sonar.flex.FlexKeyword.AS;
@@ -354,88 +356,87 @@ public enum FlexGrammar implements GrammarRuleKey {
   private static final String UNICODE_CONNECTOR_PUNCTUATION = "\\p{Pc}";
 
   private static final String UNICODE_ESCAPE_SEQUENCE_REGEXP = "u[0-9a-fA-F]{4,4}";
-  private static final String IDENTIFIER_START_REGEXP = "(?:[$_" + UNICODE_LETTER + "]|\\\\" + UNICODE_ESCAPE_SEQUENCE_REGEXP + ")";
-  private static final String IDENTIFIER_PART_REGEXP = "(?:" +
+  static final String IDENTIFIER_START_REGEXP = "(?:[$_" + UNICODE_LETTER + "]|\\\\" + UNICODE_ESCAPE_SEQUENCE_REGEXP + ")";
+  static final String IDENTIFIER_PART_REGEXP = "(?:" +
     IDENTIFIER_START_REGEXP + "|[" + UNICODE_COMBINING_MARK + UNICODE_DIGIT + UNICODE_CONNECTOR_PUNCTUATION + "])";
 
-  private static final String EXPONENT_PART_REGEXP = "([eE][-+]?[0-9]++)?";
-  private static final String DECIMAL_INTEGER_REGEXP = "(0|([1-9][0-9]*+))";
-  private static final String DECIMAL_DIGITS_REGEXP = "([0-9]*+)";
-  private static final String DECIMAL_REGEXP =
-    DECIMAL_INTEGER_REGEXP + "\\." + DECIMAL_DIGITS_REGEXP + "?" + EXPONENT_PART_REGEXP +
-      "|\\." + DECIMAL_DIGITS_REGEXP + EXPONENT_PART_REGEXP +
-      "|" + DECIMAL_INTEGER_REGEXP + EXPONENT_PART_REGEXP;
-
-  private static final String SINGLE_LINE_COMMENT_REGEXP = "//[^\\n\\r]*+";
-
-  private static final String MULTI_LINE_COMMENT_REGEXP = "/\\*[\\s\\S]*?\\*/";
-  private static final String MULTI_LINE_COMMENT_NO_LB_REGEXP = "/\\*[^\\n\\r]*?\\*/";
+  public static final String STRING_REGEXP = "(?:\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\"|\'([^\'\\\\]*+(\\\\[\\s\\S])?+)*+\')";
 
- /**
-  * LF, CR, LS, PS
-  */
-  private static final String LINE_TERMINATOR_REGEXP = "\\n\\r\\p{Zl}\\p{Zp}";
+  public static LexerlessGrammar createGrammar() {
+    return createGrammar(new ParseDeadline());
+  }
 
   /**
-   * tab, vertical tab, form feed, space, no-break space, Byte Order Mark, any other Unicode "space character"
+   * @param deadline checked all along the parse, to be started before each parse which must not exceed a time limit
    */
-  private static final String WHITESPACE_REGEXP = "\\t\\v\\f\\u0020\\u00A0\\uFEFF\\p{Zs}";
-
-  public static final String STRING_REGEXP = "(?:\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\"|\'([^\'\\\\]*+(\\\\[\\s\\S])?+)*+\')";
+  public static LexerlessGrammar createGrammar(ParseDeadline deadline) {
+    return createGrammar(true, deadline);
+  }
 
-  private static final String NEWLINE_REGEXP = "(?:\\n|\\r\\n|\\r)";
+  static LexerlessGrammar createGrammar(boolean optimized) {
+    return createGrammar(optimized, new ParseDeadline());
+  }
 
-  public static LexerlessGrammar createGrammar() {
+  /**
+   * @param optimized false to match the {@link FlexTerminals} with their regular expressions, to try all the
+   * alternatives of a {@link DispatchExpression} in order, and to match binary expressions level by level instead of
+   * with an {@link OperatorPrecedenceExpression}
+   */
+  private static LexerlessGrammar createGrammar(boolean optimized, ParseDeadline deadline) {
     LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    Expressions t = new Expressions(b, optimized);
 
-    b.rule(WHITESPACE).is(b.regexp("[" + LINE_TERMINATOR_REGEXP + WHITESPACE_REGEXP + "]*+"));
+    b.rule(WHITESPACE).is(t.get(FlexTerminals.WHITESPACE));
 
     b.rule(SPACING).is(
+      deadline.expression(),
       b.skippedTrivia(WHITESPACE),
       b.zeroOrMore(
-        b.commentTrivia(b.regexp("(?:" + SINGLE_LINE_COMMENT_REGEXP + "|" + MULTI_LINE_COMMENT_REGEXP + ")")),
+        b.commentTrivia(t.get(FlexTerminals.COMMENT)),
         b.skippedTrivia(WHITESPACE))
     ).skip();
 
     b.rule(SPACING_NO_LB).is(b.zeroOrMore(b.firstOf(
-      b.skippedTrivia(b.regexp("[\\s&&[^\n\r]]++")),
-      b.commentTrivia(b.regexp("(?:" + SINGLE_LINE_COMMENT_REGEXP + "|" + MULTI_LINE_COMMENT_NO_LB_REGEXP + ")"))
+      b.skippedTrivia(t.get(FlexTerminals.WHITESPACE_NO_LB)),
+      b.commentTrivia(t.get(FlexTerminals.COMMENT_NO_LB))
     ))).skip();
-    b.rule(NEXT_NOT_LB).is(b.nextNot(b.regexp("(?:" + "[\n\r]" + "|" + MULTI_LINE_COMMENT_REGEXP + ")"))).skip();
+    b.rule(NEXT_NOT_LB).is(b.nextNot(t.get(FlexTerminals.LINE_BREAK))).skip();
 
     b.rule(EOS).is(b.firstOf(
       b.sequence(SPACING, ";"),
-      b.sequence(SPACING_NO_LB, b.regexp(NEWLINE_REGEXP)),
+      b.sequence(SPACING_NO_LB, t.get(FlexTerminals.NEWLINE)),
       b.sequence(SPACING_NO_LB, b.next("}")),
       b.sequence(SPACING, b.endOfInput())
     ));
     b.rule(EOS_NO_LB).is(b.firstOf(
       b.sequence(SPACING_NO_LB, ";"),
-      b.sequence(SPACING_NO_LB, b.regexp(NEWLINE_REGEXP)),
+      b.sequence(SPACING_NO_LB, t.get(FlexTerminals.NEWLINE)),
       b.sequence(SPACING_NO_LB, b.next("}")),
       b.sequence(SPACING_NO_LB, b.endOfInput())
     ));
 
     punctuators(b);
     keywords(b);
-    literals(b);
-    expressions(b);
-    statements(b);
-    directives(b);
+    literals(b, t);
+    expressions(b, t);
+    statements(b, t);
+    directives(b, t);
     definitions(b);
     xml(b);
 
     b.setRootRule(PROGRAM);
 
-    return b.build();
+    LexerlessGrammar grammar = b.build();
+    t.link(grammar);
+    return grammar;
   }
 
-  private static void literals(LexerlessGrammarBuilder b) {
-    b.rule(STRING).is(SPACING, b.regexp(STRING_REGEXP));
+  private static void literals(LexerlessGrammarBuilder b, Expressions t) {
+    b.rule(STRING).is(SPACING, t.get(FlexTerminals.STRING));
 
-    b.rule(HEXADECIMAL).is(SPACING, b.regexp("0[xX][0-9a-fA-F]++"));
-    b.rule(OCTAL).is(SPACING, b.regexp("0[0-7]++"));
-    b.rule(DECIMAL).is(SPACING, b.regexp(DECIMAL_REGEXP));
+    b.rule(HEXADECIMAL).is(SPACING, t.get(FlexTerminals.HEXADECIMAL));
+    b.rule(OCTAL).is(SPACING, t.get(FlexTerminals.OCTAL));
+    b.rule(DECIMAL).is(SPACING, t.get(FlexTerminals.DECIMAL));
     b.rule(NUMBER).is(b.firstOf(OCTAL, DECIMAL, HEXADECIMAL));
 
     // Regular expression according to ECMA 262
@@ -450,19 +451,18 @@ public enum FlexGrammar implements GrammarRuleKey {
         + IDENTIFIER_PART_REGEXP + "*+"));
   }
 
-  private static void expressions(LexerlessGrammarBuilder b) {
+  private static void expressions(LexerlessGrammarBuilder b, Expressions t) {
     // Identifiers
-    b.rule(IDENTIFIER).is(b.firstOf(
-      DYNAMIC,
-      EACH,
-      GET,
-      INCLUDE,
-      NAMESPACE,
-      SET,
-      STATIC,
-      b.sequence(SPACING, b.nextNot(KEYWORDS), b.regexp(IDENTIFIER_START_REGEXP + IDENTIFIER_PART_REGEXP + "*+"))
-    ));
-    b.rule(IDENTIFIER_PART).is(b.regexp(IDENTIFIER_PART_REGEXP));
+    b.rule(IDENTIFIER).is(t.dispatch()
+      .on("dynamic", DYNAMIC)
+      .on("each", EACH)
+      .on("get", GET)
+      .on("include", INCLUDE)
+      .on("namespace", NAMESPACE)
+      .on("set", SET)
+      .on("static", STATIC)
+      .otherwise(b.sequence(SPACING, t.identifier())));
+    b.rule(IDENTIFIER_PART).is(t.get(FlexTerminals.IDENTIFIER_PART));
 
     b.rule(PROPERTY_IDENTIFIER).is(b.firstOf(
       IDENTIFIER,
@@ -490,22 +490,22 @@ public enum FlexGrammar implements GrammarRuleKey {
       b.sequence(AT_SIGN, NON_ATTRIBUTE_QUALIFIED_IDENTIFIER),
       NON_ATTRIBUTE_QUALIFIED_IDENTIFIER));
 
-    b.rule(PRIMARY_EXPR).is(b.firstOf(
-      NULL,
-      TRUE,
-      FALSE,
-      HEXADECIMAL,
-      NUMBER,
-      STRING,
-      THIS,
-      REGULAR_EXPRESSION,
-      XML_INITIALISER,
-      QUALIFIED_IDENTIFIER,
-      RESERVED_NAMESPACE,
-      PARENTHESIZED_EXPR,
-      ARRAY_INITIALISER,
-      OBJECT_INITIALISER,
-      FUNCTION_EXPR));
+    b.rule(PRIMARY_EXPR).is(t.dispatch()
+      .on("null", NULL)
+      .on("true", TRUE)
+      .on("false", FALSE)
+      .on("0", HEXADECIMAL)
+      .on(DispatchExpression.characters("0123456789."), NUMBER)
+      .on(DispatchExpression.characters("\"'"), STRING)
+      .on("this", THIS)
+      .on("/", REGULAR_EXPRESSION)
+      .on("<", XML_INITIALISER)
+      .always(QUALIFIED_IDENTIFIER)
+      .on(DispatchExpression.startsWith("public", "private", "protected", "internal"), RESERVED_NAMESPACE)
+      .on("(", PARENTHESIZED_EXPR)
+      .on("[", ARRAY_INITIALISER)
+      .on("{", OBJECT_INITIALISER)
+      .otherwise(FUNCTION_EXPR));
 
     b.rule(RESERVED_NAMESPACE).is(b.firstOf(PUBLIC, PRIVATE, PROTECTED, INTERNAL));
 
@@ -633,8 +633,12 @@ public enum FlexGrammar implements GrammarRuleKey {
       b.sequence(SPACING, "and", b.nextNot(IDENTIFIER_PART))
     ));
 
-    b.rule(LOGICAL_OR_EXPR).is(LOGICAL_AND_EXPR, b.zeroOrMore(LOGICAL_OR_OPERATOR, LOGICAL_AND_EXPR)).skipIfOneChild();
-    b.rule(LOGICAL_OR_EXPR_NO_IN).is(LOGICAL_AND_EXPR_NO_IN, b.zeroOrMore(LOGICAL_OR_OPERATOR, LOGICAL_AND_EXPR_NO_IN)).skipIfOneChild();
+    b.rule(LOGICAL_OR_EXPR).is(t.operatorPrecedence(
+      binaryExpressions(b, false),
+      b.sequence(LOGICAL_AND_EXPR, b.zeroOrMore(LOGICAL_OR_OPERATOR, LOGICAL_AND_EXPR)))).skipIfOneChild();
+    b.rule(LOGICAL_OR_EXPR_NO_IN).is(t.operatorPrecedence(
+      binaryExpressions(b, true),
+      b.sequence(LOGICAL_AND_EXPR_NO_IN, b.zeroOrMore(LOGICAL_OR_OPERATOR, LOGICAL_AND_EXPR_NO_IN)))).skipIfOneChild();
     b.rule(LOGICAL_OR_OPERATOR).is(b.firstOf(
       OROR,
       /* ActionScript 2: */
@@ -662,24 +666,45 @@ public enum FlexGrammar implements GrammarRuleKey {
     b.rule(VECTOR_LITERAL_EXPRESSION).is(LT, TYPE_EXPR, GT, BRACKETS);
   }
 
-  private static void statements(LexerlessGrammarBuilder b) {
-    b.rule(STATEMENT).is(b.firstOf(
-      METADATA_STATEMENT,
-      SUPER_STATEMENT,
-      BLOCK,
-      IF_STATEMENT,
-      SWITCH_STATEMENT,
-      DO_STATEMENT,
-      WHILE_STATEMENT,
-      FOR_STATEMENT,
-      WITH_STATEMENT,
-      CONTINUE_STATEMENT,
-      BREAK_STATEMENT,
-      RETURN_STATEMENT,
-      THROW_STATEMENT,
-      TRY_STATEMENT,
-      EXPRESSION_STATEMENT,
-      LABELED_STATEMENT));
+  /**
+   * Same levels as the binary expression rules, from MULTIPLICATIVE_EXPR to LOGICAL_OR_EXPR.
+   */
+  private static OperatorPrecedenceExpression.Builder binaryExpressions(LexerlessGrammarBuilder b, boolean noIn) {
+    return new OperatorPrecedenceExpression.Builder(b, UNARY_EXPR)
+      .level(MULTIPLICATIVE_EXPR, DispatchExpression.startsWith("*", "/", "%"), STAR, DIV, MOD)
+      .level(ADDITIVE_EXPR, DispatchExpression.startsWith("+", "-", "add"), ADDITIVE_OPERATOR)
+      .level(SHIFT_EXPR, DispatchExpression.startsWith("<<", ">>"), SL, SR2, SR)
+      .level(noIn ? RELATIONAL_EXPR_NO_IN : RELATIONAL_EXPR,
+        DispatchExpression.startsWith("<", ">", noIn ? "instanceof" : "in", "is", "as", "le", "ge", "lt", "gt"),
+        noIn ? RELATIONAL_OPERATOR_NO_IN : RELATIONAL_OPERATOR)
+      .level(noIn ? EQUALITY_EXPR_NO_IN : EQUALITY_EXPR, DispatchExpression.startsWith("!=", "==", "<>", "eq", "ne"), EQUALITY_OPERATOR)
+      .level(noIn ? BITEWISE_AND_EXPR_NO_IN : BITEWISE_AND_EXPR, DispatchExpression.startsWith("&"), AND)
+      .level(noIn ? BITEWISE_XOR_EXPR_NO_IN : BITEWISE_XOR_EXPR, DispatchExpression.startsWith("^"), XOR)
+      .level(noIn ? BITEWISE_OR_EXPR_NO_IN : BITEWISE_OR_EXPR, DispatchExpression.startsWith("|"), OR)
+      .level(noIn ? LOGICAL_AND_EXPR_NO_IN : LOGICAL_AND_EXPR, DispatchExpression.startsWith("&&", "and"), LOGICAL_AND_OPERATOR)
+      // the right operand of LOGICAL_AND_EXPR skips a level
+      .rightOperand(noIn ? BITEWISE_XOR_EXPR_NO_IN : BITEWISE_XOR_EXPR)
+      .level(noIn ? LOGICAL_OR_EXPR_NO_IN : LOGICAL_OR_EXPR, DispatchExpression.startsWith("||", "or"), LOGICAL_OR_OPERATOR);
+  }
+
+  private static void statements(LexerlessGrammarBuilder b, Expressions t) {
+    b.rule(STATEMENT).is(t.dispatch()
+      .on("[", METADATA_STATEMENT)
+      .on("super", SUPER_STATEMENT)
+      .on("{", BLOCK)
+      .on("if", IF_STATEMENT)
+      .on("switch", SWITCH_STATEMENT)
+      .on("do", DO_STATEMENT)
+      .on("while", WHILE_STATEMENT)
+      .on("for", FOR_STATEMENT)
+      .on("with", WITH_STATEMENT)
+      .on("continue", CONTINUE_STATEMENT)
+      .on("break", BREAK_STATEMENT)
+      .on("return", RETURN_STATEMENT)
+      .on("throw", THROW_STATEMENT)
+      .on("try", TRY_STATEMENT)
+      .always(EXPRESSION_STATEMENT)
+      .otherwise(LABELED_STATEMENT));
 
     b.rule(SUB_STATEMENT).is(b.firstOf(
       EMPTY_STATEMENT,
@@ -748,26 +773,26 @@ public enum FlexGrammar implements GrammarRuleKey {
     b.rule(EXPRESSION).is(b.nextNot(b.firstOf(FUNCTION, LCURLYBRACE)), LIST_EXPRESSION);
   }
 
-  private static void directives(LexerlessGrammarBuilder b) {
-    b.rule(DIRECTIVE).is(b.firstOf(
-      CONFIG_CONDITION,
-      EMPTY_STATEMENT,
-      ANNOTABLE_DIRECTIVE,
-      STATEMENT,
-      DEFAULT_XML_NAMESPACE_DIRECTIVE,
-      b.sequence(ATTRIBUTES, /* No line break */ SPACING_NO_LB, NEXT_NOT_LB, ANNOTABLE_DIRECTIVE),
-      b.sequence(INCLUDE_DIRECTIVE, /* No line break */ EOS_NO_LB),
-      b.sequence(IMPORT_DIRECTIVE, /* No line break */ EOS_NO_LB),
-      b.sequence(USE_DIRECTIVE, /* No line break */ EOS_NO_LB)));
+  private static void directives(LexerlessGrammarBuilder b, Expressions t) {
+    b.rule(DIRECTIVE).is(t.dispatch()
+      .always(CONFIG_CONDITION)
+      .on(";", EMPTY_STATEMENT)
+      .on(DispatchExpression.startsWith("var", "const", "function", "class", "interface", "namespace"), ANNOTABLE_DIRECTIVE)
+      .always(STATEMENT)
+      .on("default", DEFAULT_XML_NAMESPACE_DIRECTIVE)
+      .always(b.sequence(ATTRIBUTES, /* No line break */ SPACING_NO_LB, NEXT_NOT_LB, ANNOTABLE_DIRECTIVE))
+      .on("include", b.sequence(INCLUDE_DIRECTIVE, /* No line break */ EOS_NO_LB))
+      .on("import", b.sequence(IMPORT_DIRECTIVE, /* No line break */ EOS_NO_LB))
+      .otherwise(b.sequence(USE_DIRECTIVE, /* No line break */ EOS_NO_LB)));
 
     b.rule(CONFIG_CONDITION).is(IDENTIFIER, DOUBLE_COLON, IDENTIFIER, LCURLYBRACE, DIRECTIVES, RCURLYBRACE);
 
-    b.rule(ANNOTABLE_DIRECTIVE).is(b.firstOf(
-      VARIABLE_DECLARATION_STATEMENT,
-      FUNCTION_DEF,
-      CLASS_DEF,
-      INTERFACE_DEF,
-      NAMESPACE_DEF));
+    b.rule(ANNOTABLE_DIRECTIVE).is(t.dispatch()
+      .on(DispatchExpression.startsWith("var", "const"), VARIABLE_DECLARATION_STATEMENT)
+      .on("function", FUNCTION_DEF)
+      .on("class", CLASS_DEF)
+      .on("interface", INTERFACE_DEF)
+      .otherwise(NAMESPACE_DEF));
 
     b.rule(DIRECTIVES).is(b.zeroOrMore(DIRECTIVE));
 
@@ -923,6 +948,54 @@ public enum FlexGrammar implements GrammarRuleKey {
     b.rule(XML_WHITESPACE).is(b.regexp("[ \\t\\r\\n]+"));
   }
 
+  /**
+   * Chooses between the optimized expressions and the plain ones, which accept exactly the same inputs and build
+   * the same trees.
+   */
+  private static final class Expressions {
+    private final LexerlessGrammarBuilder b;
+    private final boolean optimized;
+    private final List<OperatorPrecedenceExpression> operatorPrecedenceExpressions = new ArrayList<>();
+
+    private Expressions(LexerlessGrammarBuilder b, boolean optimized) {
+      this.b = b;
+      this.optimized = optimized;
+    }
+
+    Object get(FlexTerminals.Terminal terminal) {
+      return optimized ? terminal : b.regexp(terminal.regexp());
+    }
+
+    /**
+     * The hand-coded identifier rejects the keywords by itself.
+     */
+    Object identifier() {
+      return optimized ? FlexTerminals.IDENTIFIER : b.sequence(b.nextNot(KEYWORDS), b.regexp(IDENTIFIER_START_REGEXP + IDENTIFIER_PART_REGEXP + "*+"));
+    }
+
+    DispatchExpression.Builder dispatch() {
+      return new DispatchExpression.Builder(b, optimized);
+    }
+
+    /**
+     * @param plain definition of the rule of the last level of the builder in terms of the previous level
+     */
+    Object operatorPrecedence(OperatorPrecedenceExpression.Builder builder, Object plain) {
+      if (!optimized) {
+        return plain;
+      }
+      OperatorPrecedenceExpression expression = builder.build();
+      operatorPrecedenceExpressions.add(expression);
+      return expression;
+    }
+
+    void link(Grammar grammar) {
+      for (OperatorPrecedenceExpression expression : operatorPrecedenceExpressions) {
+        expression.link(grammar);
+      }
+    }
+  }
+
   private static void keywords(LexerlessGrammarBuilder b) {
     for (FlexKeyword k : FlexKeyword.values()) {
       b.rule(k).is(SPACING, k.getValue(), b.nextNot(IDENTIFIER_PART));
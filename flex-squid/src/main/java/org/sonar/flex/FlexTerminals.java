@@ -0,0 +1,426 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import org.sonar.flex.api.KeywordTable;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+
+/**
+ * Hand-coded matchers of the terminals of {@link FlexGrammar} which are tried at almost every position of the input:
+ * {@link FlexGrammar#SPACING} alone comes before every keyword, punctuator and literal. Each of them accepts exactly
+ * what its regular expression accepts, and like {@code b.regexp(...)} creates a leaf, possibly empty, when it matches.
+ */
+final class FlexTerminals {
+
+  /**
+   * LF, CR, LS, PS
+   */
+  private static final String LINE_TERMINATOR_REGEXP = "\\n\\r\\p{Zl}\\p{Zp}";
+
+  /**
+   * tab, vertical tab, form feed, space, no-break space, Byte Order Mark, any other Unicode "space character"
+   */
+  private static final String WHITESPACE_REGEXP = "\\t\\v\\f\\u0020\\u00A0\\uFEFF\\p{Zs}";
+
+  private static final String SINGLE_LINE_COMMENT_REGEXP = "//[^\\n\\r]*+";
+  private static final String MULTI_LINE_COMMENT_REGEXP = "/\\*[\\s\\S]*?\\*/";
+  private static final String MULTI_LINE_COMMENT_NO_LB_REGEXP = "/\\*[^\\n\\r]*?\\*/";
+
+  private static final String EXPONENT_PART_REGEXP = "([eE][-+]?[0-9]++)?";
+  private static final String DECIMAL_INTEGER_REGEXP = "(0|([1-9][0-9]*+))";
+  private static final String DECIMAL_DIGITS_REGEXP = "([0-9]*+)";
+  private static final String DECIMAL_REGEXP =
+    DECIMAL_INTEGER_REGEXP + "\\." + DECIMAL_DIGITS_REGEXP + "?" + EXPONENT_PART_REGEXP +
+      "|\\." + DECIMAL_DIGITS_REGEXP + EXPONENT_PART_REGEXP +
+      "|" + DECIMAL_INTEGER_REGEXP + EXPONENT_PART_REGEXP;
+
+  static final Terminal WHITESPACE = new Terminal("[" + LINE_TERMINATOR_REGEXP + WHITESPACE_REGEXP + "]*+", FlexTerminals::whitespace);
+  static final Terminal COMMENT = new Terminal("(?:" + SINGLE_LINE_COMMENT_REGEXP + "|" + MULTI_LINE_COMMENT_REGEXP + ")", FlexTerminals::comment);
+  static final Terminal WHITESPACE_NO_LB = new Terminal("[\\s&&[^\n\r]]++", FlexTerminals::whitespaceNoLineBreak);
+  static final Terminal COMMENT_NO_LB = new Terminal("(?:" + SINGLE_LINE_COMMENT_REGEXP + "|" + MULTI_LINE_COMMENT_NO_LB_REGEXP + ")",
+    FlexTerminals::commentNoLineBreak);
+  static final Terminal LINE_BREAK = new Terminal("(?:" + "[\n\r]" + "|" + MULTI_LINE_COMMENT_REGEXP + ")", FlexTerminals::lineBreak);
+  static final Terminal NEWLINE = new Terminal("(?:\\n|\\r\\n|\\r)", FlexTerminals::newline);
+  static final Terminal STRING = new Terminal(FlexGrammar.STRING_REGEXP, FlexTerminals::string);
+  static final Terminal HEXADECIMAL = new Terminal("0[xX][0-9a-fA-F]++", FlexTerminals::hexadecimal);
+  static final Terminal OCTAL = new Terminal("0[0-7]++", FlexTerminals::octal);
+  static final Terminal DECIMAL = new Terminal(DECIMAL_REGEXP, FlexTerminals::decimal);
+  private static final KeywordTable<FlexKeyword> KEYWORDS = KeywordTable.of(FlexKeyword.keywords(), FlexKeyword::getValue);
+
+  /**
+   * Identifier which is not a keyword, like {@code nextNot(KEYWORDS)} followed by the identifier was: the whole identifier
+   * is scanned once and then looked up in the keywords, instead of trying each keyword in turn.
+   */
+  static final Terminal IDENTIFIER = new Terminal(
+    "(?!(?:" + FlexKeyword.keywords().stream().map(FlexKeyword::getValue).collect(Collectors.joining("|")) + ")(?!" + FlexGrammar.IDENTIFIER_PART_REGEXP + "))"
+      + FlexGrammar.IDENTIFIER_START_REGEXP + FlexGrammar.IDENTIFIER_PART_REGEXP + "*+",
+    FlexTerminals::identifier);
+  static final Terminal IDENTIFIER_PART = new Terminal(FlexGrammar.IDENTIFIER_PART_REGEXP, input -> identifierPartLength(input, 0));
+
+  static final List<Terminal> ALL = Collections.unmodifiableList(Arrays.asList(
+    WHITESPACE, COMMENT, WHITESPACE_NO_LB, COMMENT_NO_LB, LINE_BREAK, NEWLINE, STRING, HEXADECIMAL, OCTAL, DECIMAL, IDENTIFIER, IDENTIFIER_PART));
+
+  private FlexTerminals() {
+  }
+
+  /**
+   * Terminal of the grammar, which behaves like the {@code PatternExpression} of its regular expression. Terminals are
+   * stateless, so that they can be shared by all the grammars, and so by all the threads.
+   */
+  static final class Terminal extends NativeExpression implements Matcher {
+
+    private final String regexp;
+    private final ToIntFunction<CharSequence> matcher;
+
+    /**
+     * @param matcher length of the match at the beginning of the input, or -1 if there is none
+     */
+    private Terminal(String regexp, ToIntFunction<CharSequence> matcher) {
+      this.regexp = regexp;
+      this.matcher = matcher;
+    }
+
+    String regexp() {
+      return regexp;
+    }
+
+    int match(CharSequence input) {
+      return matcher.applyAsInt(input);
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      int length = matcher.applyAsInt(machine);
+      if (length >= 0) {
+        machine.createLeafNode(this, length);
+        machine.jump(1);
+      } else {
+        machine.backtrack();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Terminal " + regexp;
+    }
+  }
+
+  private static int whitespace(CharSequence input) {
+    int end = 0;
+    while (end < input.length() && isWhitespace(input.charAt(end))) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int whitespaceNoLineBreak(CharSequence input) {
+    int end = 0;
+    while (end < input.length() && isWhitespaceNoLineBreak(input.charAt(end))) {
+      end++;
+    }
+    return end > 0 ? end : -1;
+  }
+
+  private static int comment(CharSequence input) {
+    return commentEnd(input, 0);
+  }
+
+  /**
+   * Length of what {@link FlexGrammar#SPACING} matches at the beginning of the input: whitespaces and comments.
+   */
+  static int spacingLength(CharSequence input) {
+    int end = 0;
+    while (true) {
+      while (end < input.length() && isWhitespace(input.charAt(end))) {
+        end++;
+      }
+      int commentEnd = commentEnd(input, end);
+      if (commentEnd < 0) {
+        return end;
+      }
+      end = commentEnd;
+    }
+  }
+
+  private static int commentEnd(CharSequence input, int start) {
+    if (at(input, start) != '/') {
+      return -1;
+    }
+    int next = at(input, start + 1);
+    if (next == '/') {
+      return singleLineCommentEnd(input, start);
+    }
+    return next == '*' ? multiLineCommentEnd(input, start) : -1;
+  }
+
+  private static int commentNoLineBreak(CharSequence input) {
+    if (at(input, 0) != '/') {
+      return -1;
+    }
+    int next = at(input, 1);
+    if (next == '/') {
+      return singleLineCommentEnd(input, 0);
+    }
+    if (next == '*') {
+      for (int i = 2; i + 1 < input.length(); i++) {
+        char c = input.charAt(i);
+        if (isLineBreak(c)) {
+          return -1;
+        }
+        if (c == '*' && input.charAt(i + 1) == '/') {
+          return i + 2;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Line break, or multi-line comment which may contain one.
+   */
+  private static int lineBreak(CharSequence input) {
+    int c = at(input, 0);
+    if (c == '\n' || c == '\r') {
+      return 1;
+    }
+    return c == '/' && at(input, 1) == '*' ? multiLineCommentEnd(input, 0) : -1;
+  }
+
+  private static int newline(CharSequence input) {
+    int c = at(input, 0);
+    if (c == '\n') {
+      return 1;
+    }
+    if (c == '\r') {
+      return at(input, 1) == '\n' ? 2 : 1;
+    }
+    return -1;
+  }
+
+  private static int singleLineCommentEnd(CharSequence input, int start) {
+    int end = start + 2;
+    while (end < input.length() && !isLineBreak(input.charAt(end))) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int multiLineCommentEnd(CharSequence input, int start) {
+    for (int i = start + 2; i + 1 < input.length(); i++) {
+      if (input.charAt(i) == '*' && input.charAt(i + 1) == '/') {
+        return i + 2;
+      }
+    }
+    return -1;
+  }
+
+  private static int string(CharSequence input) {
+    int quote = at(input, 0);
+    if (quote != '"' && quote != '\'') {
+      return -1;
+    }
+    int i = 1;
+    while (i < input.length()) {
+      char c = input.charAt(i);
+      if (c == quote) {
+        return i + 1;
+      }
+      i += c == '\\' ? 2 : 1;
+    }
+    return -1;
+  }
+
+  private static int hexadecimal(CharSequence input) {
+    if (at(input, 0) != '0' || (at(input, 1) != 'x' && at(input, 1) != 'X')) {
+      return -1;
+    }
+    int end = 2;
+    while (isHexDigit(at(input, end))) {
+      end++;
+    }
+    return end > 2 ? end : -1;
+  }
+
+  private static int octal(CharSequence input) {
+    if (at(input, 0) != '0') {
+      return -1;
+    }
+    int end = 1;
+    while (at(input, end) >= '0' && at(input, end) <= '7') {
+      end++;
+    }
+    return end > 1 ? end : -1;
+  }
+
+  /**
+   * The first alternative of the regular expression which matches wins: "1." is a decimal, but "01" is only "0".
+   */
+  private static int decimal(CharSequence input) {
+    int c = at(input, 0);
+    int integerEnd;
+    if (c == '0') {
+      integerEnd = 1;
+    } else if (c >= '1' && c <= '9') {
+      integerEnd = digitsEnd(input, 1);
+    } else if (c == '.') {
+      return exponentEnd(input, digitsEnd(input, 1));
+    } else {
+      return -1;
+    }
+    if (at(input, integerEnd) == '.') {
+      return exponentEnd(input, digitsEnd(input, integerEnd + 1));
+    }
+    return exponentEnd(input, integerEnd);
+  }
+
+  private static int digitsEnd(CharSequence input, int start) {
+    int end = start;
+    while (isDigit(at(input, end))) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int exponentEnd(CharSequence input, int start) {
+    int c = at(input, start);
+    if (c != 'e' && c != 'E') {
+      return start;
+    }
+    int digitsStart = start + 1;
+    c = at(input, digitsStart);
+    if (c == '+' || c == '-') {
+      digitsStart++;
+    }
+    int end = digitsEnd(input, digitsStart);
+    return end > digitsStart ? end : start;
+  }
+
+  private static int identifier(CharSequence input) {
+    int end = identifierStartLength(input, 0);
+    if (end < 0) {
+      return -1;
+    }
+    int length = identifierPartLength(input, end);
+    while (length > 0) {
+      end += length;
+      length = identifierPartLength(input, end);
+    }
+    return KEYWORDS.get(input, 0, end) == null ? end : -1;
+  }
+
+  private static int identifierStartLength(CharSequence input, int index) {
+    int c = at(input, index);
+    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '$' || c == '_') {
+      return 1;
+    }
+    if (c == '\\') {
+      return unicodeEscapeSequenceLength(input, index);
+    }
+    if (c < 128) {
+      return -1;
+    }
+    int codePoint = Character.codePointAt(input, index);
+    return isUnicodeLetter(Character.getType(codePoint)) ? Character.charCount(codePoint) : -1;
+  }
+
+  private static int identifierPartLength(CharSequence input, int index) {
+    int c = at(input, index);
+    if (c >= '0' && c <= '9') {
+      return 1;
+    }
+    int length = identifierStartLength(input, index);
+    if (length >= 0 || c < 128) {
+      return length;
+    }
+    int codePoint = Character.codePointAt(input, index);
+    int type = Character.getType(codePoint);
+    boolean part = type == Character.NON_SPACING_MARK
+      || type == Character.COMBINING_SPACING_MARK
+      || type == Character.DECIMAL_DIGIT_NUMBER
+      || type == Character.CONNECTOR_PUNCTUATION;
+    return part ? Character.charCount(codePoint) : -1;
+  }
+
+  private static int unicodeEscapeSequenceLength(CharSequence input, int index) {
+    if (at(input, index + 1) != 'u') {
+      return -1;
+    }
+    for (int i = index + 2; i < index + 6; i++) {
+      if (!isHexDigit(at(input, i))) {
+        return -1;
+      }
+    }
+    return 6;
+  }
+
+  private static boolean isUnicodeLetter(int type) {
+    return type == Character.UPPERCASE_LETTER
+      || type == Character.LOWERCASE_LETTER
+      || type == Character.TITLECASE_LETTER
+      || type == Character.MODIFIER_LETTER
+      || type == Character.OTHER_LETTER
+      || type == Character.LETTER_NUMBER;
+  }
+
+  /**
+   * Character at the given index, or -1 after the end of the input.
+   */
+  private static int at(CharSequence input, int index) {
+    return index < input.length() ? input.charAt(index) : -1;
+  }
+
+  /**
+   * In a character class, "\v" is not only the vertical tab but any vertical whitespace, including NEL.
+   */
+  private static boolean isWhitespace(char c) {
+    if (c <= ' ') {
+      return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+    if (c < 128) {
+      return false;
+    }
+    int type = Character.getType(c);
+    return c == '\u0085' || c == '\uFEFF'
+      || type == Character.SPACE_SEPARATOR
+      || type == Character.LINE_SEPARATOR
+      || type == Character.PARAGRAPH_SEPARATOR;
+  }
+
+  private static boolean isWhitespaceNoLineBreak(char c) {
+    return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+  }
+
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHexDigit(int c) {
+    return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+}
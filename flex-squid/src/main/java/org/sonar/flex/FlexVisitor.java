@@ -29,16 +29,35 @@ public abstract class FlexVisitor {
 
   private FlexVisitorContext context;
 
-  private Set<AstNodeType> subscribedKinds = null;
+  /**
+   * Bit set of the subscriptions to the types which have a {@link NodeTypeIds#id(AstNodeType) id}, indexed by this id.
+   */
+  private long[] subscribedIds = null;
+  private Set<AstNodeType> otherSubscribedTypes;
 
   public abstract List<AstNodeType> subscribedTo();
 
-  private Set<AstNodeType> subscribedKinds() {
-    if (subscribedKinds == null) {
-
-      subscribedKinds = Collections.unmodifiableSet(new HashSet<>(subscribedTo()));
+  private boolean isSubscribedTo(AstNodeType type) {
+    if (subscribedIds == null) {
+      subscribedIds = new long[(NodeTypeIds.COUNT + 63) / 64];
+      otherSubscribedTypes = Collections.emptySet();
+      for (AstNodeType subscribedType : subscribedTo()) {
+        int id = NodeTypeIds.id(subscribedType);
+        if (id >= 0) {
+          subscribedIds[id >>> 6] |= 1L << id;
+        } else {
+          if (otherSubscribedTypes.isEmpty()) {
+            otherSubscribedTypes = new HashSet<>();
+          }
+          otherSubscribedTypes.add(subscribedType);
+        }
+      }
+    }
+    int id = NodeTypeIds.id(type);
+    if (id >= 0) {
+      return (subscribedIds[id >>> 6] & (1L << id)) != 0;
     }
-    return subscribedKinds;
+    return !otherSubscribedTypes.isEmpty() && otherSubscribedTypes.contains(type);
   }
 
   public void visitFile(@Nullable AstNode node) {
@@ -60,8 +79,12 @@ public abstract class FlexVisitor {
     return context;
   }
 
-  public void scanFile(FlexVisitorContext context) {
+  void startScan(FlexVisitorContext context) {
     this.context = context;
+  }
+
+  public void scanFile(FlexVisitorContext context) {
+    startScan(context);
     AstNode tree = context.rootTree();
     visitFile(tree);
     if (tree != null) {
@@ -70,22 +93,39 @@ public abstract class FlexVisitor {
     leaveFile(tree);
   }
 
+  /**
+   * Visits the node and its descendants in depth-first order. The walk follows the parent and sibling links of the
+   * nodes instead of recursing, so that deeply nested code cannot overflow the stack.
+   */
   public void scanNode(AstNode node) {
-    boolean isSubscribedType = subscribedKinds().contains(node.getType());
-
-    if (isSubscribedType) {
-      visitNode(node);
-    }
-
-    List<AstNode> children = node.getChildren();
-    if (children.isEmpty()) {
-      node.getTokens().forEach(this::visitToken);
-    } else {
-      children.forEach(this::scanNode);
-    }
-
-    if (isSubscribedType) {
-      leaveNode(node);
+    AstNode current = node;
+    while (true) {
+      if (isSubscribedTo(current.getType())) {
+        visitNode(current);
+      }
+      if (current.hasChildren()) {
+        current = current.getFirstChild();
+        continue;
+      }
+      Token token = current.getToken();
+      if (token != null) {
+        visitToken(token);
+      }
+
+      while (true) {
+        if (isSubscribedTo(current.getType())) {
+          leaveNode(current);
+        }
+        if (current == node) {
+          return;
+        }
+        AstNode nextSibling = current.getNextSibling();
+        if (nextSibling != null) {
+          current = nextSibling;
+          break;
+        }
+        current = current.getParent();
+      }
     }
   }
 
@@ -18,14 +18,21 @@ package org.sonar.flex;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonar.flex.cfg.ControlFlowGraph;
+import org.sonar.flex.semantic.SemanticModel;
 
 public class FlexVisitorContext {
 
   private final String fileContent;
   private final AstNode rootTree;
   private final RecognitionException parsingException;
+  private NodeIndex nodeIndex;
+  private SemanticModel semanticModel;
+  private Map<AstNode, ControlFlowGraph> controlFlowGraphs;
 
   public FlexVisitorContext(String fileContent, AstNode tree) {
     this(fileContent, tree, null);
@@ -53,4 +60,41 @@ public class FlexVisitorContext {
   public String fileContent() {
     return fileContent;
   }
+
+  /**
+   * @return the index of the nodes of the tree, which is built on the first call and then shared by all the visitors of the file
+   */
+  public NodeIndex nodeIndex() {
+    if (nodeIndex == null) {
+      nodeIndex = NodeIndex.create(rootTree);
+    }
+    return nodeIndex;
+  }
+
+  /**
+   * @return the scopes and symbols of the file, which are computed on the first call and then shared by all the visitors
+   * of the file
+   * @throws IllegalStateException if the file has no tree
+   */
+  public SemanticModel semanticModel() {
+    if (semanticModel == null) {
+      if (rootTree == null) {
+        throw new IllegalStateException("No semantic model for a file which cannot be parsed");
+      }
+      semanticModel = SemanticModel.create(rootTree);
+    }
+    return semanticModel;
+  }
+
+  /**
+   * @param function a {@code FUNCTION_DEF} or a {@code FUNCTION_EXPR} of the file
+   * @return the control flow graph of the function, which is built on the first call for this function and then shared
+   * by all the visitors of the file
+   */
+  public ControlFlowGraph controlFlowGraph(AstNode function) {
+    if (controlFlowGraphs == null) {
+      controlFlowGraphs = new HashMap<>();
+    }
+    return controlFlowGraphs.computeIfAbsent(function, ControlFlowGraph::build);
+  }
 }
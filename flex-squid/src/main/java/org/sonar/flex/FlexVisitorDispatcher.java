@@ -0,0 +1,256 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs several visitors with a single walk over the AST, instead of one walk per visitor.
+ * <p>
+ * Each visitor receives exactly the same callbacks, in the same order, as with {@link FlexVisitor#scanFile(FlexVisitorContext)}:
+ * nodes are only dispatched to the visitors which subscribed to their type, and tokens only to the visitors which override
+ * {@link FlexVisitor#visitToken(Token)}.
+ * <p>
+ * A visitor which only overrides {@link FlexVisitor#visitNode(AstNode)} and {@link FlexVisitor#leaveNode(AstNode)}
+ * is skipped on the files which have no node of the types it subscribed to, according to the
+ * {@link FlexVisitorContext#nodeIndex() index of the nodes} of the file: it is only given the context of the file, and the
+ * tree is not walked at all when all the visitors which need it are skipped.
+ * <p>
+ * The dispatcher can be reused for several files, but not concurrently.
+ */
+public class FlexVisitorDispatcher {
+
+  private static final int[] NO_VISITORS = new int[0];
+
+  private final FlexVisitor[] visitors;
+  /**
+   * Visitors of the types which have a {@link NodeTypeIds#id(AstNodeType) id}, indexed by this id.
+   */
+  private final int[][] subscribersById = new int[NodeTypeIds.COUNT][];
+  private final Map<AstNodeType, int[]> otherSubscribers = new HashMap<>();
+  private final int[] tokenVisitors;
+  /**
+   * Subscribed types of the visitors which can be skipped, null for the other ones.
+   */
+  private final AstNodeType[][] skippableVisitorTypes;
+  private final boolean[] walkingVisitors;
+  private final boolean[] skipped;
+  private long[] nanos;
+
+  public FlexVisitorDispatcher(List<? extends FlexVisitor> visitors) {
+    this.visitors = visitors.toArray(new FlexVisitor[0]);
+
+    Map<AstNodeType, List<Integer>> visitorsByType = new HashMap<>();
+    List<Integer> visitorsOfTokens = new ArrayList<>();
+    skippableVisitorTypes = new AstNodeType[this.visitors.length][];
+    walkingVisitors = new boolean[this.visitors.length];
+    skipped = new boolean[this.visitors.length];
+    for (int i = 0; i < this.visitors.length; i++) {
+      FlexVisitor visitor = this.visitors[i];
+      Set<AstNodeType> types = new LinkedHashSet<>(visitor.subscribedTo());
+      for (AstNodeType type : types) {
+        visitorsByType.computeIfAbsent(type, key -> new ArrayList<>()).add(i);
+      }
+      boolean visitsTokens = overrides(visitor, "visitToken", Token.class);
+      if (visitsTokens) {
+        visitorsOfTokens.add(i);
+      }
+      walkingVisitors[i] = visitsTokens || !types.isEmpty();
+      if (!visitsTokens && !overrides(visitor, "visitFile", AstNode.class) && !overrides(visitor, "leaveFile", AstNode.class)
+        && types.stream().allMatch(type -> NodeTypeIds.id(type) >= 0)) {
+        skippableVisitorTypes[i] = types.toArray(new AstNodeType[0]);
+      }
+    }
+    Arrays.fill(subscribersById, NO_VISITORS);
+    visitorsByType.forEach((type, list) -> {
+      int id = NodeTypeIds.id(type);
+      if (id >= 0) {
+        subscribersById[id] = toArray(list);
+      } else {
+        otherSubscribers.put(type, toArray(list));
+      }
+    });
+    tokenVisitors = toArray(visitorsOfTokens);
+  }
+
+  public void scanFile(FlexVisitorContext context) {
+    nanos = null;
+    scan(context);
+  }
+
+  /**
+   * Same as {@link #scanFile(FlexVisitorContext)}, also measuring the time spent in the callbacks of each visitor.
+   * Measuring is not free, so this should only be used when the times are needed.
+   *
+   * @param visitorNanos array with one element per visitor, to which is added the time spent in the callbacks of the
+   *                     visitor of the same index, in nanoseconds
+   */
+  public void scanFile(FlexVisitorContext context, long[] visitorNanos) {
+    if (visitorNanos.length != visitors.length) {
+      throw new IllegalArgumentException("Expected one element per visitor: " + visitors.length + ", got " + visitorNanos.length);
+    }
+    nanos = visitorNanos;
+    try {
+      scan(context);
+    } finally {
+      nanos = null;
+    }
+  }
+
+  /**
+   * @return true if the visitor of the given index has been skipped on the last scanned file
+   */
+  public boolean isSkipped(int visitorIndex) {
+    return skipped[visitorIndex];
+  }
+
+  private void scan(FlexVisitorContext context) {
+    AstNode tree = context.rootTree();
+    boolean walk = selectVisitors(context) && tree != null;
+    for (int i = 0; i < visitors.length; i++) {
+      long start = start();
+      visitors[i].startScan(context);
+      if (!skipped[i]) {
+        visitors[i].visitFile(tree);
+      }
+      stop(i, start);
+    }
+    if (walk) {
+      scanNode(tree);
+    }
+    for (int i = 0; i < visitors.length; i++) {
+      if (!skipped[i]) {
+        long start = start();
+        visitors[i].leaveFile(tree);
+        stop(i, start);
+      }
+    }
+  }
+
+  /**
+   * @return true if one of the visitors which are not skipped needs the walk of the tree
+   */
+  private boolean selectVisitors(FlexVisitorContext context) {
+    NodeIndex index = null;
+    boolean walk = false;
+    for (int i = 0; i < visitors.length; i++) {
+      AstNodeType[] types = skippableVisitorTypes[i];
+      if (types == null) {
+        skipped[i] = false;
+      } else {
+        if (index == null) {
+          index = context.nodeIndex();
+        }
+        skipped[i] = !containsAny(index, types);
+      }
+      walk |= !skipped[i] && walkingVisitors[i];
+    }
+    return walk;
+  }
+
+  private static boolean containsAny(NodeIndex index, AstNodeType[] types) {
+    for (AstNodeType type : types) {
+      if (!index.nodes(type).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same walk as {@link FlexVisitor#scanNode(AstNode)}, without recursion.
+   */
+  private void scanNode(AstNode root) {
+    AstNode current = root;
+    while (true) {
+      for (int i : subscribers(current.getType())) {
+        long start = start();
+        visitors[i].visitNode(current);
+        stop(i, start);
+      }
+      if (current.hasChildren()) {
+        current = current.getFirstChild();
+        continue;
+      }
+      Token token = current.getToken();
+      if (token != null) {
+        for (int i : tokenVisitors) {
+          long start = start();
+          visitors[i].visitToken(token);
+          stop(i, start);
+        }
+      }
+
+      while (true) {
+        for (int i : subscribers(current.getType())) {
+          long start = start();
+          visitors[i].leaveNode(current);
+          stop(i, start);
+        }
+        if (current == root) {
+          return;
+        }
+        AstNode nextSibling = current.getNextSibling();
+        if (nextSibling != null) {
+          current = nextSibling;
+          break;
+        }
+        current = current.getParent();
+      }
+    }
+  }
+
+  private int[] subscribers(AstNodeType type) {
+    int id = NodeTypeIds.id(type);
+    if (id >= 0) {
+      return subscribersById[id];
+    }
+    return otherSubscribers.isEmpty() ? NO_VISITORS : otherSubscribers.getOrDefault(type, NO_VISITORS);
+  }
+
+  private long start() {
+    return nanos == null ? 0L : System.nanoTime();
+  }
+
+  private void stop(int visitorIndex, long start) {
+    if (nanos != null) {
+      nanos[visitorIndex] += System.nanoTime() - start;
+    }
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    return list.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static boolean overrides(FlexVisitor visitor, String method, Class<?> parameterType) {
+    try {
+      return visitor.getClass().getMethod(method, parameterType).getDeclaringClass() != FlexVisitor.class;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Cannot find " + method + "(" + parameterType.getSimpleName() + ") on " + visitor.getClass(), e);
+    }
+  }
+
+}
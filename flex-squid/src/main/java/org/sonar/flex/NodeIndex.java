@@ -0,0 +1,149 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Nodes of a tree grouped by type, in document order, so that the nodes of a given type in the whole tree or in a
+ * subtree are found without walking it. Only the rules, keywords and punctuators of {@link FlexGrammar} are indexed.
+ * <p>
+ * The nodes of a subtree are found from the range of the input matched by each node: this range contains the ranges
+ * of all the descendants of the node, and overlaps the ranges of the other nodes at most on its bounds.
+ */
+public final class NodeIndex {
+
+  private final List<List<AstNode>> nodesById;
+
+  private NodeIndex(List<List<AstNode>> nodesById) {
+    this.nodesById = nodesById;
+  }
+
+  /**
+   * Builds the index with a single walk of the tree.
+   */
+  public static NodeIndex create(@Nullable AstNode root) {
+    List<List<AstNode>> lists = new ArrayList<>(Collections.nCopies(NodeTypeIds.COUNT, null));
+    AstNode current = root;
+    while (current != null) {
+      int id = NodeTypeIds.id(current.getType());
+      if (id >= 0) {
+        List<AstNode> list = lists.get(id);
+        if (list == null) {
+          list = new ArrayList<>();
+          lists.set(id, list);
+        }
+        list.add(current);
+      }
+      current = next(current, root);
+    }
+
+    List<List<AstNode>> nodesById = new ArrayList<>(NodeTypeIds.COUNT);
+    for (List<AstNode> list : lists) {
+      nodesById.add(list == null ? Collections.emptyList() : Collections.unmodifiableList(list));
+    }
+    return new NodeIndex(nodesById);
+  }
+
+  /**
+   * @return the node following the given one in document order, or null after the last node of the tree
+   */
+  @Nullable
+  private static AstNode next(AstNode node, AstNode root) {
+    if (node.hasChildren()) {
+      return node.getFirstChild();
+    }
+    AstNode current = node;
+    while (current != root) {
+      AstNode nextSibling = current.getNextSibling();
+      if (nextSibling != null) {
+        return nextSibling;
+      }
+      current = current.getParent();
+    }
+    return null;
+  }
+
+  /**
+   * @return all the nodes of the given type, in document order
+   * @throws IllegalArgumentException if the type is not a rule, a keyword or a punctuator of {@link FlexGrammar}
+   */
+  public List<AstNode> nodes(AstNodeType type) {
+    int id = NodeTypeIds.id(type);
+    if (id < 0) {
+      throw new IllegalArgumentException("Not indexed: " + type);
+    }
+    return nodesById.get(id);
+  }
+
+  /**
+   * Same as {@code node.getDescendants(type)}, without walking the descendants of the node.
+   *
+   * @return the descendants of the node which have the given type, in document order
+   * @throws IllegalArgumentException if the type is not a rule, a keyword or a punctuator of {@link FlexGrammar}
+   */
+  public List<AstNode> descendants(AstNode node, AstNodeType type) {
+    List<AstNode> nodes = nodes(type);
+    int start = firstFrom(nodes, node.getFromIndex());
+    int end = firstFrom(nodes, node.getToIndex() + 1);
+    // the nodes which start on the bounds of the node may not be descendants: they are the first and last ones
+    while (start < end && !isDescendant(nodes.get(start), node)) {
+      start++;
+    }
+    while (end > start && !isDescendant(nodes.get(end - 1), node)) {
+      end--;
+    }
+    return nodes.subList(start, end);
+  }
+
+  /**
+   * @return the index of the first node which starts at or after the given index of the input
+   */
+  private static int firstFrom(List<AstNode> nodes, int fromIndex) {
+    int low = 0;
+    int high = nodes.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (nodes.get(middle).getFromIndex() < fromIndex) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static boolean isDescendant(AstNode candidate, AstNode node) {
+    if (node.getFromIndex() < candidate.getFromIndex() && candidate.getToIndex() < node.getToIndex()) {
+      return true;
+    }
+    AstNode ancestor = candidate.getParent();
+    while (ancestor != null && node.getFromIndex() <= ancestor.getFromIndex() && ancestor.getToIndex() <= node.getToIndex()) {
+      if (ancestor == node) {
+        return true;
+      }
+      ancestor = ancestor.getParent();
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNodeType;
+
+/**
+ * Dense numbering of the types of the nodes built by {@link FlexGrammar}: its rules, keywords and punctuators, so that
+ * what is known about each type can be kept in an array indexed by this number rather than in a hash map.
+ */
+final class NodeTypeIds {
+
+  private static final int FIRST_KEYWORD = FlexGrammar.values().length;
+  private static final int FIRST_PUNCTUATOR = FIRST_KEYWORD + FlexKeyword.values().length;
+
+  /**
+   * Number of ids, which range from 0 to {@code COUNT - 1}.
+   */
+  static final int COUNT = FIRST_PUNCTUATOR + FlexPunctuator.values().length;
+
+  private NodeTypeIds() {
+  }
+
+  /**
+   * @return the id of the type, or -1 if it is neither a rule, nor a keyword, nor a punctuator of the grammar, for
+   * instance the type of the tokens
+   */
+  static int id(AstNodeType type) {
+    if (type instanceof FlexGrammar) {
+      return ((FlexGrammar) type).ordinal();
+    } else if (type instanceof FlexKeyword) {
+      return FIRST_KEYWORD + ((FlexKeyword) type).ordinal();
+    } else if (type instanceof FlexPunctuator) {
+      return FIRST_PUNCTUATOR + ((FlexPunctuator) type).ordinal();
+    }
+    return -1;
+  }
+
+}
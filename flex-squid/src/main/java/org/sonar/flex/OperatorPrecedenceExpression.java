@@ -0,0 +1,346 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.Grammar;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.ParsingExpression;
+
+/**
+ * Operator precedence parser for a chain of binary expression rules such as
+ * <pre>
+ * b.rule(MULTIPLICATIVE_EXPR).is(UNARY_EXPR, b.zeroOrMore(b.firstOf(STAR, DIV, MOD), UNARY_EXPR)).skipIfOneChild();
+ * b.rule(ADDITIVE_EXPR).is(MULTIPLICATIVE_EXPR, b.zeroOrMore(ADDITIVE_OPERATOR, MULTIPLICATIVE_EXPR)).skipIfOneChild();
+ * ...
+ * </pre>
+ * which replaces the definition of the rule of the last level. Instead of going down all the levels for each operand,
+ * it matches the operands and the operators in a single loop, then builds the nodes of the levels which have more than
+ * one operand, exactly as the rules would have: the other ones are skipped from the AST anyway.
+ * <p>
+ * After an operand, the levels are tried from the innermost one, as the rules would do when returning from the operand,
+ * but only if their {@link DispatchExpression.Lookahead} accepts the first character after the spacing. The levels
+ * which can be tried depend on the operators matched so far when a level does not take the previous one as right
+ * operand: each such set of levels is compiled into its own loop.
+ */
+final class OperatorPrecedenceExpression implements ParsingExpression {
+
+  private final ParsingExpression operand;
+  private final Level[] levels;
+  private Matcher[] nodeMatchers;
+  private Map<Matcher, Integer> operatorLevels;
+
+  private OperatorPrecedenceExpression(ParsingExpression operand, Level[] levels) {
+    this.operand = operand;
+    this.levels = levels;
+  }
+
+  private static final class Level {
+    private final GrammarRuleKey node;
+    private final DispatchExpression.Lookahead lookahead;
+    private final GrammarRuleKey[] operators;
+    private final ParsingExpression operator;
+    private int rightOperand;
+
+    private Level(GrammarRuleKey node, DispatchExpression.Lookahead lookahead, GrammarRuleKey[] operators, ParsingExpression operator, int rightOperand) {
+      this.node = node;
+      this.lookahead = lookahead;
+      this.operators = operators;
+      this.operator = operator;
+      this.rightOperand = rightOperand;
+    }
+  }
+
+  /**
+   * Resolves the rules which are needed to build the nodes, once the grammar is built.
+   */
+  void link(Grammar grammar) {
+    nodeMatchers = new Matcher[levels.length];
+    operatorLevels = new IdentityHashMap<>();
+    for (int i = 0; i < levels.length; i++) {
+      nodeMatchers[i] = (Matcher) grammar.rule(levels[i].node);
+      for (GrammarRuleKey operator : levels[i].operators) {
+        operatorLevels.put((Matcher) grammar.rule(operator), i);
+      }
+    }
+  }
+
+  /**
+   * Compiles this expression into a sequence of instructions, with a loop for each set of levels which can be tried,
+   * where the levels whose operator and operand match go to the loop of the resulting set:
+   * <pre>
+   * operand
+   * L0: Select L0 0
+   * Choice S1
+   * operator[0]
+   * operand
+   * Commit L?
+   * S1: Select L0 1
+   * Choice S2
+   * operator[1]
+   * operand
+   * Commit L?
+   * ...
+   * L1: Select L1 0
+   * ...
+   * E: Reduce
+   * </pre>
+   * Each {@code Select} jumps to the {@code Choice} of the first following level of its loop whose lookahead accepts
+   * the input, or else to the end.
+   */
+  @Override
+  public Instruction[] compile(CompilationHandler compiler) {
+    Instruction[] operandInstructions = DispatchExpression.compileExpression(compiler, operand);
+    Instruction[][] operatorInstructions = new Instruction[levels.length][];
+    for (int i = 0; i < levels.length; i++) {
+      operatorInstructions[i] = DispatchExpression.compileExpression(compiler, levels[i].operator);
+    }
+
+    List<List<Integer>> loops = loops();
+    int[][] selects = new int[loops.size()][];
+    int length = operandInstructions.length;
+    for (int l = 0; l < loops.size(); l++) {
+      List<Integer> loop = loops.get(l);
+      selects[l] = new int[loop.size()];
+      for (int k = 0; k < loop.size(); k++) {
+        selects[l][k] = length;
+        length += 3 + operatorInstructions[loop.get(k)].length + operandInstructions.length;
+      }
+    }
+    int end = length;
+    length++;
+
+    Instruction[] result = new Instruction[length];
+    System.arraycopy(operandInstructions, 0, result, 0, operandInstructions.length);
+    for (int l = 0; l < loops.size(); l++) {
+      List<Integer> loop = loops.get(l);
+      for (int k = 0; k < loop.size(); k++) {
+        int level = loop.get(k);
+        int select = selects[l][k];
+        result[select] = new SelectInstruction(l, k, loop, select, selects[l], end);
+        int next = k + 1 < loop.size() ? selects[l][k + 1] : end;
+        result[select + 1] = Instruction.choice(next - (select + 1));
+        int index = select + 2;
+        System.arraycopy(operatorInstructions[level], 0, result, index, operatorInstructions[level].length);
+        index += operatorInstructions[level].length;
+        System.arraycopy(operandInstructions, 0, result, index, operandInstructions.length);
+        index += operandInstructions.length;
+        int nextLoop = loops.indexOf(next(loop, level));
+        result[index] = Instruction.commit(selects[nextLoop][0] - index);
+      }
+    }
+    result[end] = new ReduceInstruction();
+    return result;
+  }
+
+  /**
+   * @return the sets of levels which can be tried after an operand, the levels of a set being in the order in which
+   * they are tried, the first set being the one of the first operand
+   */
+  private List<List<Integer>> loops() {
+    List<List<Integer>> loops = new ArrayList<>();
+    List<Integer> all = new ArrayList<>();
+    for (int i = 0; i < levels.length; i++) {
+      all.add(i);
+    }
+    loops.add(all);
+    for (int l = 0; l < loops.size(); l++) {
+      for (int level : loops.get(l)) {
+        List<Integer> next = next(loops.get(l), level);
+        if (!loops.contains(next)) {
+          loops.add(next);
+        }
+      }
+    }
+    return loops;
+  }
+
+  /**
+   * After an operator of the given level and its operand, the levels of the right operand can be tried, then the given
+   * level, then the enclosing levels.
+   */
+  private List<Integer> next(List<Integer> loop, int level) {
+    List<Integer> next = new ArrayList<>();
+    for (int i = 0; i <= levels[level].rightOperand; i++) {
+      next.add(i);
+    }
+    next.add(level);
+    for (int enclosing : loop) {
+      if (enclosing > level) {
+        next.add(enclosing);
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Turns the alternating operands and operators of the current rule into the nodes of the levels, the operands and
+   * operators of the last level staying in the node of the rule.
+   */
+  private void reduce(List<ParseNode> nodes) {
+    if (nodes.size() == 1) {
+      return;
+    }
+    Deque<Group> groups = new ArrayDeque<>();
+    ParseNode current = nodes.get(0);
+    for (int i = 1; i < nodes.size(); i += 2) {
+      ParseNode operator = nodes.get(i);
+      int level = operatorLevels.get(operator.getMatcher());
+      while (!groups.isEmpty() && groups.peek().level < level) {
+        current = groups.pop().close(current);
+      }
+      if (groups.isEmpty() || groups.peek().level != level) {
+        groups.push(new Group(level));
+      }
+      groups.peek().children.add(current);
+      groups.peek().children.add(operator);
+      current = nodes.get(i + 1);
+    }
+    while (!groups.isEmpty() && groups.peek().level < levels.length - 1) {
+      current = groups.pop().close(current);
+    }
+    nodes.clear();
+    if (!groups.isEmpty()) {
+      nodes.addAll(groups.pop().children);
+    }
+    nodes.add(current);
+  }
+
+  private final class Group {
+    private final int level;
+    private final List<ParseNode> children = new ArrayList<>();
+
+    private Group(int level) {
+      this.level = level;
+    }
+
+    private ParseNode close(ParseNode last) {
+      children.add(last);
+      return new ParseNode(children.get(0).getStartIndex(), last.getEndIndex(), children, nodeMatchers[level]);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "OperatorPrecedence" + Arrays.toString(Arrays.stream(levels).map(level -> level.node).toArray());
+  }
+
+  private final class SelectInstruction extends Instruction {
+
+    private final int loop;
+    private final int first;
+    private final List<Integer> levelsOfLoop;
+    private final int position;
+    private final int[] selects;
+    private final int end;
+
+    private SelectInstruction(int loop, int first, List<Integer> levelsOfLoop, int position, int[] selects, int end) {
+      this.loop = loop;
+      this.first = first;
+      this.levelsOfLoop = levelsOfLoop;
+      this.position = position;
+      this.selects = selects;
+      this.end = end;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      int index = FlexTerminals.spacingLength(machine);
+      for (int k = first; k < selects.length; k++) {
+        if (levels[levelsOfLoop.get(k)].lookahead.test(machine, index)) {
+          machine.jump(selects[k] + 1 - position);
+          return;
+        }
+      }
+      machine.jump(end - position);
+    }
+
+    @Override
+    public String toString() {
+      return "Select " + loop + " " + first;
+    }
+  }
+
+  private final class ReduceInstruction extends Instruction {
+    @Override
+    public void execute(Machine machine) {
+      reduce(machine.peek().subNodes());
+      machine.jump(1);
+    }
+
+    @Override
+    public String toString() {
+      return "Reduce";
+    }
+  }
+
+  /**
+   * Collects the levels from the innermost one, whose operands are the given rule, to the outermost one, whose rule
+   * is the one to be defined by the resulting expression.
+   */
+  static final class Builder {
+
+    private final LexerlessGrammarBuilder b;
+    private final ParsingExpression operand;
+    private final List<Level> levels = new ArrayList<>();
+
+    Builder(LexerlessGrammarBuilder b, GrammarRuleKey operand) {
+      this.b = b;
+      this.operand = DispatchExpression.expression(b, operand);
+    }
+
+    /**
+     * @param lookahead must accept every input on which one of the operators can match
+     * @param operators alternatives, tried in order, just like in {@code b.firstOf(...)}
+     */
+    Builder level(GrammarRuleKey node, DispatchExpression.Lookahead lookahead, GrammarRuleKey... operators) {
+      Object operator = operators.length == 1 ? operators[0] : b.firstOf(operators[0], operators[1], Arrays.copyOfRange(operators, 2, operators.length, Object[].class));
+      levels.add(new Level(node, lookahead, operators, DispatchExpression.expression(b, operator), levels.size() - 1));
+      return this;
+    }
+
+    /**
+     * The right operands of the last level are the nodes of the given level instead of the previous one.
+     */
+    Builder rightOperand(GrammarRuleKey node) {
+      for (int i = 0; i < levels.size() - 1; i++) {
+        if (levels.get(i).node == node) {
+          levels.get(levels.size() - 1).rightOperand = i;
+          return this;
+        }
+      }
+      throw new IllegalArgumentException("Not a previous level: " + node);
+    }
+
+    OperatorPrecedenceExpression build() {
+      return new OperatorPrecedenceExpression(operand, levels.toArray(new Level[0]));
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+
+/**
+ * Time limit of a parse, which the grammar checks each time it matches {@link FlexGrammar#SPACING}, so that a file on
+ * which the parser backtracks for too long is given up with an {@link ExceededException} instead of stalling the
+ * analysis. The clock is only read every {@value #CHECK_INTERVAL} checks, which keeps them negligible.
+ * <p>
+ * Like the grammar it belongs to, must not be used by several threads at the same time.
+ */
+public final class ParseDeadline {
+
+  static final int CHECK_INTERVAL = 4096;
+
+  private final LongSupplier nanoTime;
+  private boolean started;
+  private long deadline;
+  private int countdown;
+
+  public ParseDeadline() {
+    this(System::nanoTime);
+  }
+
+  ParseDeadline(LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * @param timeoutMillis maximum duration of the parse from now on, or 0 for no limit
+   */
+  public void start(long timeoutMillis) {
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("Negative timeout: " + timeoutMillis);
+    }
+    started = timeoutMillis > 0;
+    deadline = nanoTime.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    countdown = CHECK_INTERVAL;
+  }
+
+  public void stop() {
+    started = false;
+  }
+
+  /**
+   * @throws ExceededException if the deadline has passed
+   */
+  void check(int index) {
+    if (started && --countdown == 0) {
+      countdown = CHECK_INTERVAL;
+      if (nanoTime.getAsLong() - deadline > 0) {
+        started = false;
+        throw new ExceededException(index);
+      }
+    }
+  }
+
+  NativeExpression expression() {
+    return new NativeExpression() {
+      @Override
+      public void execute(Machine machine) {
+        check(machine.getIndex());
+        machine.jump(1);
+      }
+
+      @Override
+      public String toString() {
+        return "ParseDeadline";
+      }
+    };
+  }
+
+  /**
+   * Thrown out of the parser when the deadline has passed.
+   */
+  public static final class ExceededException extends RuntimeException {
+
+    private final int index;
+
+    ExceededException(int index) {
+      super("Parse deadline exceeded at index " + index);
+      this.index = index;
+    }
+
+    /**
+     * @return index in the input of the parser when the deadline was detected
+     */
+    public int index() {
+      return index;
+    }
+  }
+
+}
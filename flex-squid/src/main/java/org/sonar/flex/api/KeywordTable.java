@@ -0,0 +1,119 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.api;
+
+import java.util.Collection;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+
+/**
+ * Perfect hash table of keywords, which looks up a word in a character sequence without creating a string. The multiplier
+ * of the hash is chosen when the table is built so that no two keywords land in the same slot: a lookup costs one hash
+ * and at most one comparison, both linear in the length of the word, whatever the number of keywords.
+ */
+public final class KeywordTable<K> {
+
+  private final String[] words;
+  private final Object[] keywords;
+  private final int multiplier;
+  private final int minLength;
+  private final int maxLength;
+
+  private KeywordTable(String[] words, Object[] keywords, int multiplier, int minLength, int maxLength) {
+    this.words = words;
+    this.keywords = keywords;
+    this.multiplier = multiplier;
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * @param value the text of a keyword, which must not be empty and must not be shared with another keyword
+   */
+  public static <K> KeywordTable<K> of(Collection<K> keywords, Function<K, String> value) {
+    int minLength = Integer.MAX_VALUE;
+    int maxLength = 0;
+    for (K keyword : keywords) {
+      int length = value.apply(keyword).length();
+      if (length == 0) {
+        throw new IllegalArgumentException("Empty keyword: " + keyword);
+      }
+      minLength = Math.min(minLength, length);
+      maxLength = Math.max(maxLength, length);
+    }
+    int size = Integer.highestOneBit(keywords.size() * 4) << 1;
+    while (true) {
+      for (int multiplier = 31; multiplier < 4_096; multiplier += 2) {
+        String[] words = new String[size];
+        Object[] values = new Object[size];
+        if (fill(keywords, value, multiplier, words, values)) {
+          return new KeywordTable<>(words, values, multiplier, minLength, maxLength);
+        }
+      }
+      size <<= 1;
+    }
+  }
+
+  private static <K> boolean fill(Collection<K> keywords, Function<K, String> value, int multiplier, String[] words, Object[] values) {
+    for (K keyword : keywords) {
+      String word = value.apply(keyword);
+      int slot = hash(word, 0, word.length(), multiplier) & (words.length - 1);
+      if (words[slot] != null) {
+        if (words[slot].equals(word)) {
+          throw new IllegalArgumentException("Duplicate keyword: " + word);
+        }
+        return false;
+      }
+      words[slot] = word;
+      values[slot] = keyword;
+    }
+    return true;
+  }
+
+  /**
+   * @return the keyword whose text is the characters of {@code input} from {@code start} inclusive to {@code end} exclusive,
+   * or null if there is none
+   */
+  @CheckForNull
+  @SuppressWarnings("unchecked")
+  public K get(CharSequence input, int start, int end) {
+    int length = end - start;
+    if (length < minLength || length > maxLength) {
+      return null;
+    }
+    int slot = hash(input, start, end, multiplier) & (words.length - 1);
+    String word = words[slot];
+    if (word == null || word.length() != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (word.charAt(i) != input.charAt(start + i)) {
+        return null;
+      }
+    }
+    return (K) keywords[slot];
+  }
+
+  private static int hash(CharSequence input, int start, int end, int multiplier) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = hash * multiplier + input.charAt(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+}
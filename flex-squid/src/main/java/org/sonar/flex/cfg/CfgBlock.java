@@ -0,0 +1,136 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Sequence of elements of a function which are executed one after the other, the last one possibly followed by a
+ * {@link #terminator() terminator} which chooses among the successors of the block.
+ */
+public final class CfgBlock {
+
+  private int id;
+  private final List<AstNode> elements = new ArrayList<>();
+  private final List<CfgBlock> successors = new ArrayList<>(2);
+  private final List<CfgBlock> predecessors = new ArrayList<>(2);
+  private AstNode terminator;
+  /**
+   * Catch and finally clauses of the enclosing try statements while the graph is built, then the exception successors.
+   */
+  List<CfgBlock> exceptionTargets = Collections.emptyList();
+
+  CfgBlock() {
+  }
+
+  /**
+   * @return the index of the block in {@link ControlFlowGraph#blocks()}
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * @return the statements, directives and expressions of the block in execution order. Each element is evaluated as a
+   * whole: the branches of the conditional and logical operators it contains are not split into blocks, and the
+   * functions it declares are not part of the graph.
+   */
+  public List<AstNode> elements() {
+    return Collections.unmodifiableList(elements);
+  }
+
+  /**
+   * @return the blocks which can be executed right after this one, including the catch and finally clauses to which
+   * the elements of the block can throw
+   */
+  public List<CfgBlock> successors() {
+    return Collections.unmodifiableList(successors);
+  }
+
+  /**
+   * @return the catch and finally clauses to which the elements of the block can throw, which are also among its
+   * {@link #successors() successors}
+   */
+  public List<CfgBlock> exceptionSuccessors() {
+    return Collections.unmodifiableList(exceptionTargets);
+  }
+
+  public List<CfgBlock> predecessors() {
+    return Collections.unmodifiableList(predecessors);
+  }
+
+  /**
+   * @return the statement which ends the block by choosing among its successors, such as an {@code IF_STATEMENT},
+   * a loop, a {@code SWITCH_STATEMENT}, a {@code CONFIG_CONDITION} or a jump, or null if the block always continues
+   * with its single successor
+   */
+  @CheckForNull
+  public AstNode terminator() {
+    return terminator;
+  }
+
+  void setId(int id) {
+    this.id = id;
+  }
+
+  void setTerminator(AstNode terminator) {
+    this.terminator = terminator;
+  }
+
+  /**
+   * Elements are added in reverse order while the graph is built, see {@link #reverseElements()}.
+   */
+  void addElement(AstNode element) {
+    elements.add(element);
+  }
+
+  void reverseElements() {
+    Collections.reverse(elements);
+  }
+
+  List<CfgBlock> mutableSuccessors() {
+    return successors;
+  }
+
+  List<CfgBlock> mutablePredecessors() {
+    return predecessors;
+  }
+
+  void addSuccessor(CfgBlock successor) {
+    if (!successors.contains(successor)) {
+      successors.add(successor);
+    }
+  }
+
+  void addPredecessor(CfgBlock predecessor) {
+    predecessors.add(predecessor);
+  }
+
+  boolean isEmpty() {
+    return elements.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "B" + id;
+  }
+
+}
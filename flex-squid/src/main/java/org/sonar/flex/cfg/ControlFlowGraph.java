@@ -0,0 +1,109 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import org.sonar.flex.FlexGrammar;
+
+/**
+ * Control flow graph of the body of a function, made of {@link CfgBlock blocks}. The graph has a single
+ * {@link #end() end} block, which has no element and which is the successor of the blocks which return, or which throw
+ * outside of any try statement.
+ * <p>
+ * The graph is built backwards in a single walk of the statements of the body, without descending into the functions
+ * nested in it. Blocks through which control only passes are then removed, so that a sequence of statements without
+ * jump takes a single block.
+ * <p>
+ * The graph over-approximates the paths of the function: the elements of a try block can throw to every catch clause,
+ * and a finally clause continues both with the statement following the try statement and with the enclosing catch
+ * clauses or the end, so that the code following it is considered reachable even when the try block always returns.
+ */
+public final class ControlFlowGraph {
+
+  private final List<CfgBlock> blocks;
+  private final CfgBlock start;
+  private final CfgBlock end;
+  private BitSet reachable;
+
+  ControlFlowGraph(List<CfgBlock> blocks, CfgBlock start, CfgBlock end) {
+    this.blocks = blocks;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @param function a {@code FUNCTION_DEF} or a {@code FUNCTION_EXPR}
+   * @throws IllegalArgumentException if the node is not a function
+   */
+  public static ControlFlowGraph build(AstNode function) {
+    if (!function.is(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR)) {
+      throw new IllegalArgumentException("Not a function: " + function.getName());
+    }
+    return new ControlFlowGraphBuilder().build(function);
+  }
+
+  /**
+   * @return all the blocks of the graph, starting with the {@link #start() start} and ending with the
+   * {@link #end() end}, each one at the index given by {@link CfgBlock#id()}
+   */
+  public List<CfgBlock> blocks() {
+    return Collections.unmodifiableList(blocks);
+  }
+
+  public CfgBlock start() {
+    return start;
+  }
+
+  public CfgBlock end() {
+    return end;
+  }
+
+  /**
+   * Reachability of all the blocks is computed on the first call, in a time linear with the size of the graph.
+   *
+   * @return true if the block can be executed when the function is called
+   */
+  public boolean isReachable(CfgBlock block) {
+    if (reachable == null) {
+      reachable = computeReachable();
+    }
+    return reachable.get(block.id());
+  }
+
+  private BitSet computeReachable() {
+    BitSet result = new BitSet(blocks.size());
+    int[] stack = new int[blocks.size()];
+    int size = 0;
+    result.set(start.id());
+    stack[size++] = start.id();
+    while (size > 0) {
+      CfgBlock block = blocks.get(stack[--size]);
+      for (CfgBlock successor : block.mutableSuccessors()) {
+        if (!result.get(successor.id())) {
+          result.set(successor.id());
+          stack[size++] = successor.id();
+        }
+      }
+    }
+    return result;
+  }
+
+}
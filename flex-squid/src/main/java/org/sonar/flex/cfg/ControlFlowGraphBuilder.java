@@ -0,0 +1,515 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexKeyword;
+import org.sonar.flex.FlexPunctuator;
+
+/**
+ * Builds a {@link ControlFlowGraph} from the last statement of the body to the first one: the blocks which follow
+ * a statement are always created before it, so that each block knows its successors when it is created, and elements
+ * are added to the current block as long as no statement needs to start a new one.
+ */
+final class ControlFlowGraphBuilder {
+
+  private final CfgBlock end = new CfgBlock();
+  private final List<CfgBlock> blocks = new ArrayList<>();
+  private final Deque<JumpTarget> jumpTargets = new ArrayDeque<>();
+  private final Deque<FinallyClause> finallyClauses = new ArrayDeque<>();
+  private final Deque<List<CfgBlock>> exceptionTargets = new ArrayDeque<>();
+  private CfgBlock current;
+  private List<String> pendingLabels = Collections.emptyList();
+
+  ControlFlowGraph build(AstNode function) {
+    current = createBlock(end);
+    AstNode body = function.getFirstChild(FlexGrammar.FUNCTION_COMMON).getFirstChild(FlexGrammar.BLOCK);
+    if (body != null) {
+      buildDirectives(body.getFirstChild(FlexGrammar.DIRECTIVES));
+    }
+    return finish(current);
+  }
+
+  private void buildDirectives(AstNode directives) {
+    List<AstNode> children = directives.getChildren();
+    for (int i = children.size() - 1; i >= 0; i--) {
+      buildDirective(children.get(i));
+    }
+  }
+
+  private void buildDirective(AstNode directive) {
+    List<AstNode> children = directive.getChildren();
+    for (int i = children.size() - 1; i >= 0; i--) {
+      AstNode child = children.get(i);
+      if (child.is(FlexGrammar.STATEMENT)) {
+        buildStatement(child.getFirstChild());
+      } else if (child.is(FlexGrammar.ANNOTABLE_DIRECTIVE)) {
+        current.addElement(child.getFirstChild());
+      } else if (child.is(FlexGrammar.CONFIG_CONDITION)) {
+        buildConfigCondition(child);
+      } else if (child.is(FlexGrammar.DEFAULT_XML_NAMESPACE_DIRECTIVE, FlexGrammar.USE_DIRECTIVE, FlexGrammar.IMPORT_DIRECTIVE, FlexGrammar.INCLUDE_DIRECTIVE)) {
+        current.addElement(child);
+      }
+    }
+  }
+
+  private void buildSubStatement(AstNode subStatement) {
+    AstNode child = subStatement.getFirstChild();
+    if (child.is(FlexGrammar.STATEMENT)) {
+      buildStatement(child.getFirstChild());
+    } else if (child.is(FlexGrammar.VARIABLE_DECLARATION_STATEMENT)) {
+      current.addElement(child);
+    }
+  }
+
+  private void buildStatement(AstNode statement) {
+    if (statement.is(FlexGrammar.BLOCK)) {
+      buildDirectives(statement.getFirstChild(FlexGrammar.DIRECTIVES));
+    } else if (statement.is(FlexGrammar.IF_STATEMENT)) {
+      buildIf(statement);
+    } else if (statement.is(FlexGrammar.SWITCH_STATEMENT)) {
+      buildSwitch(statement);
+    } else if (statement.is(FlexGrammar.WHILE_STATEMENT)) {
+      buildWhile(statement);
+    } else if (statement.is(FlexGrammar.DO_STATEMENT)) {
+      buildDo(statement);
+    } else if (statement.is(FlexGrammar.FOR_STATEMENT)) {
+      buildFor(statement);
+    } else if (statement.is(FlexGrammar.WITH_STATEMENT)) {
+      buildSubStatement(statement.getFirstChild(FlexGrammar.SUB_STATEMENT));
+      current.addElement(condition(statement));
+    } else if (statement.is(FlexGrammar.BREAK_STATEMENT, FlexGrammar.CONTINUE_STATEMENT)) {
+      buildBreakOrContinue(statement);
+    } else if (statement.is(FlexGrammar.RETURN_STATEMENT)) {
+      jump(statement, end, 0);
+      addElementIfPresent(statement.getFirstChild(FlexGrammar.LIST_EXPRESSION));
+    } else if (statement.is(FlexGrammar.THROW_STATEMENT)) {
+      current = createBranch(statement, throwTargets());
+      addElementIfPresent(statement.getFirstChild(FlexGrammar.LIST_EXPRESSION));
+    } else if (statement.is(FlexGrammar.TRY_STATEMENT)) {
+      buildTry(statement);
+    } else if (statement.is(FlexGrammar.LABELED_STATEMENT)) {
+      buildLabeled(statement);
+    } else {
+      current.addElement(statement);
+    }
+  }
+
+  private void buildIf(AstNode ifStatement) {
+    CfgBlock after = current;
+    List<AstNode> branches = ifStatement.getChildren(FlexGrammar.SUB_STATEMENT);
+    CfgBlock elseEntry = after;
+    if (branches.size() > 1) {
+      current = createBlock(after);
+      buildSubStatement(branches.get(1));
+      elseEntry = current;
+    }
+    current = createBlock(after);
+    buildSubStatement(branches.get(0));
+    current = createBranch(ifStatement, current, elseEntry);
+    current.addElement(condition(ifStatement));
+  }
+
+  /**
+   * The block which evaluates the expression and the cases of the switch continues with the statements of every case,
+   * each case falling through to the next one.
+   */
+  private void buildSwitch(AstNode switchStatement) {
+    List<String> labels = takeLabels();
+    CfgBlock after = current;
+    List<AstNode> caseElements = switchStatement.getChildren(FlexGrammar.CASE_ELEMENT);
+    CfgBlock[] caseEntries = new CfgBlock[caseElements.size()];
+    boolean hasDefault = false;
+    jumpTargets.push(new JumpTarget(labels, true, after, null, finallyClauses.size()));
+    CfgBlock next = after;
+    for (int i = caseElements.size() - 1; i >= 0; i--) {
+      current = createBlock(next);
+      List<AstNode> children = caseElements.get(i).getChildren();
+      for (int j = children.size() - 1; j >= 0; j--) {
+        AstNode child = children.get(j);
+        if (child.is(FlexGrammar.DIRECTIVE)) {
+          buildDirective(child);
+        } else if (child.getFirstChild().is(FlexKeyword.DEFAULT)) {
+          hasDefault = true;
+        }
+      }
+      caseEntries[i] = current;
+      next = current;
+    }
+    jumpTargets.pop();
+
+    current = createBranch(switchStatement);
+    for (CfgBlock caseEntry : caseEntries) {
+      current.addSuccessor(caseEntry);
+    }
+    if (!hasDefault) {
+      current.addSuccessor(after);
+    }
+    for (int i = caseElements.size() - 1; i >= 0; i--) {
+      List<AstNode> caseLabels = caseElements.get(i).getChildren(FlexGrammar.CASE_LABEL);
+      for (int j = caseLabels.size() - 1; j >= 0; j--) {
+        addElementIfPresent(caseLabels.get(j).getFirstChild(FlexGrammar.LIST_EXPRESSION));
+      }
+    }
+    current.addElement(condition(switchStatement));
+  }
+
+  private void buildWhile(AstNode whileStatement) {
+    List<String> labels = takeLabels();
+    CfgBlock after = current;
+    CfgBlock condition = createBranch(whileStatement);
+    condition.addElement(condition(whileStatement));
+    CfgBlock body = buildLoopBody(whileStatement, labels, after, condition, condition);
+    condition.addSuccessor(body);
+    condition.addSuccessor(after);
+    current = createBlock(condition);
+  }
+
+  private void buildDo(AstNode doStatement) {
+    List<String> labels = takeLabels();
+    CfgBlock after = current;
+    CfgBlock condition = createBranch(doStatement);
+    condition.addElement(condition(doStatement));
+    CfgBlock body = buildLoopBody(doStatement, labels, after, condition, condition);
+    condition.addSuccessor(body);
+    condition.addSuccessor(after);
+    current = createBlock(body);
+  }
+
+  private void buildFor(AstNode forStatement) {
+    List<String> labels = takeLabels();
+    CfgBlock after = current;
+    AstNode binding = forStatement.getFirstChild(FlexGrammar.FOR_IN_BINDING);
+    if (binding != null) {
+      // the next property is assigned to the binding before each execution of the body
+      CfgBlock next = createBranch(forStatement);
+      next.addElement(binding);
+      next.addSuccessor(buildLoopBody(forStatement, labels, after, next, next));
+      next.addSuccessor(after);
+      current = createBlock(next);
+      current.addElement(forStatement.getFirstChild(FlexGrammar.LIST_EXPRESSION));
+      return;
+    }
+
+    AstNode conditionExpression = null;
+    AstNode updateExpression = null;
+    int semicolons = 0;
+    for (AstNode child : forStatement.getChildren()) {
+      if (child.is(FlexPunctuator.SEMICOLON)) {
+        semicolons++;
+      } else if (child.is(FlexGrammar.LIST_EXPRESSION)) {
+        if (semicolons == 1) {
+          conditionExpression = child;
+        } else {
+          updateExpression = child;
+        }
+      }
+    }
+    CfgBlock condition = createBranch(forStatement);
+    CfgBlock update = createBlock(condition);
+    if (updateExpression != null) {
+      update.addElement(updateExpression);
+    }
+    condition.addSuccessor(buildLoopBody(forStatement, labels, after, update, update));
+    if (conditionExpression != null) {
+      condition.addElement(conditionExpression);
+      condition.addSuccessor(after);
+    }
+    current = createBlock(condition);
+    addElementIfPresent(forStatement.getFirstChild(FlexGrammar.FOR_INITIALISER));
+  }
+
+  /**
+   * @return the entry of the body of the loop
+   */
+  private CfgBlock buildLoopBody(AstNode loop, List<String> labels, CfgBlock after, CfgBlock continueTarget, CfgBlock successor) {
+    jumpTargets.push(new JumpTarget(labels, true, after, continueTarget, finallyClauses.size()));
+    current = createBlock(successor);
+    buildSubStatement(loop.getFirstChild(FlexGrammar.SUB_STATEMENT));
+    jumpTargets.pop();
+    return current;
+  }
+
+  /**
+   * All the labels of a statement, as in {@code a: b: while (...)}, are labels of the same jump target.
+   */
+  private void buildLabeled(AstNode labeledStatement) {
+    List<String> labels = new ArrayList<>();
+    labels.add(labeledStatement.getFirstChild(FlexGrammar.IDENTIFIER).getTokenValue());
+    AstNode subStatement = labeledStatement.getFirstChild(FlexGrammar.SUB_STATEMENT);
+    AstNode child = subStatement.getFirstChild();
+    while (child.is(FlexGrammar.STATEMENT) && child.getFirstChild().is(FlexGrammar.LABELED_STATEMENT)) {
+      labels.add(child.getFirstChild().getFirstChild(FlexGrammar.IDENTIFIER).getTokenValue());
+      subStatement = child.getFirstChild().getFirstChild(FlexGrammar.SUB_STATEMENT);
+      child = subStatement.getFirstChild();
+    }
+    if (child.is(FlexGrammar.STATEMENT)
+      && child.getFirstChild().is(FlexGrammar.SWITCH_STATEMENT, FlexGrammar.WHILE_STATEMENT, FlexGrammar.DO_STATEMENT, FlexGrammar.FOR_STATEMENT)) {
+      pendingLabels = labels;
+      buildStatement(child.getFirstChild());
+    } else {
+      CfgBlock after = current;
+      jumpTargets.push(new JumpTarget(labels, false, after, null, finallyClauses.size()));
+      current = createBlock(after);
+      buildSubStatement(subStatement);
+      jumpTargets.pop();
+    }
+  }
+
+  private void buildBreakOrContinue(AstNode statement) {
+    boolean isBreak = statement.is(FlexGrammar.BREAK_STATEMENT);
+    AstNode identifier = statement.getFirstChild(FlexGrammar.IDENTIFIER);
+    String label = identifier == null ? null : identifier.getTokenValue();
+    for (JumpTarget target : jumpTargets) {
+      CfgBlock destination = isBreak ? target.breakTarget : target.continueTarget;
+      boolean matches = label == null ? target.isLoopOrSwitch : target.labels.contains(label);
+      if (destination != null && matches) {
+        jump(statement, destination, target.finallyDepth);
+        return;
+      }
+    }
+    // not valid code: the jump leaves the function
+    jump(statement, end, 0);
+  }
+
+  /**
+   * The catch clauses and the finally clause are built before the try block, so that the blocks of the try block can
+   * throw to them.
+   */
+  private void buildTry(AstNode tryStatement) {
+    CfgBlock after = current;
+    CfgBlock next = after;
+    List<AstNode> tryAndFinallyBlocks = tryStatement.getChildren(FlexGrammar.BLOCK);
+    FinallyClause finallyClause = null;
+    if (tryAndFinallyBlocks.size() > 1) {
+      CfgBlock exit = createBlock(after);
+      for (CfgBlock target : throwTargets()) {
+        exit.addSuccessor(target);
+      }
+      current = exit;
+      buildDirectives(tryAndFinallyBlocks.get(1).getFirstChild(FlexGrammar.DIRECTIVES));
+      finallyClause = new FinallyClause(current, exit);
+      next = current;
+      finallyClauses.push(finallyClause);
+      exceptionTargets.push(Collections.singletonList(finallyClause.entry));
+    }
+
+    List<CfgBlock> tryTargets = new ArrayList<>();
+    AstNode catchClauses = tryStatement.getFirstChild(FlexGrammar.CATCH_CLAUSES);
+    if (catchClauses != null) {
+      List<AstNode> clauses = catchClauses.getChildren(FlexGrammar.CATCH_CLAUSE);
+      for (int i = clauses.size() - 1; i >= 0; i--) {
+        current = createBlock(next);
+        buildDirectives(clauses.get(i).getFirstChild(FlexGrammar.BLOCK).getFirstChild(FlexGrammar.DIRECTIVES));
+        current.addElement(clauses.get(i).getFirstChild(FlexGrammar.PARAMETER));
+        tryTargets.add(0, current);
+      }
+    }
+    // the exceptions which are not caught go to the finally clause or leave the try statement
+    tryTargets.addAll(throwTargets());
+
+    exceptionTargets.push(tryTargets);
+    current = createBlock(next);
+    buildDirectives(tryAndFinallyBlocks.get(0).getFirstChild(FlexGrammar.DIRECTIVES));
+    exceptionTargets.pop();
+    if (finallyClause != null) {
+      exceptionTargets.pop();
+      finallyClauses.pop();
+    }
+    current = createBlock(current);
+  }
+
+  /**
+   * The statements of a conditional compilation block are only part of some of the compiled programs.
+   */
+  private void buildConfigCondition(AstNode configCondition) {
+    CfgBlock after = current;
+    current = createBlock(after);
+    buildDirectives(configCondition.getFirstChild(FlexGrammar.DIRECTIVES));
+    current = createBranch(configCondition, current, after);
+  }
+
+  /**
+   * Jumps to the destination, through the finally clauses entered since the destination.
+   */
+  private void jump(AstNode statement, CfgBlock destination, int destinationFinallyDepth) {
+    CfgBlock jump = createBranch(statement);
+    CfgBlock from = jump;
+    int crossed = finallyClauses.size() - destinationFinallyDepth;
+    for (FinallyClause finallyClause : finallyClauses) {
+      if (crossed == 0) {
+        break;
+      }
+      from.addSuccessor(finallyClause.entry);
+      from = finallyClause.exit;
+      crossed--;
+    }
+    from.addSuccessor(destination);
+    current = jump;
+  }
+
+  private List<CfgBlock> throwTargets() {
+    return exceptionTargets.isEmpty() ? Collections.singletonList(end) : exceptionTargets.peek();
+  }
+
+  private CfgBlock createBlock(CfgBlock... successors) {
+    CfgBlock block = new CfgBlock();
+    // temporary id, until the empty blocks are removed
+    block.setId(blocks.size());
+    if (!exceptionTargets.isEmpty()) {
+      block.exceptionTargets = exceptionTargets.peek();
+    }
+    for (CfgBlock successor : successors) {
+      block.addSuccessor(successor);
+    }
+    blocks.add(block);
+    return block;
+  }
+
+  private CfgBlock createBranch(AstNode terminator, CfgBlock... successors) {
+    CfgBlock block = createBlock(successors);
+    block.setTerminator(terminator);
+    return block;
+  }
+
+  private CfgBlock createBranch(AstNode terminator, List<CfgBlock> successors) {
+    CfgBlock block = createBranch(terminator);
+    for (CfgBlock successor : successors) {
+      block.addSuccessor(successor);
+    }
+    return block;
+  }
+
+  private void addElementIfPresent(@Nullable AstNode element) {
+    if (element != null) {
+      current.addElement(element);
+    }
+  }
+
+  private List<String> takeLabels() {
+    List<String> labels = pendingLabels;
+    pendingLabels = Collections.emptyList();
+    return labels;
+  }
+
+  private static AstNode condition(AstNode statement) {
+    return statement.getFirstChild(FlexGrammar.PARENTHESIZED_LIST_EXPR).getFirstChild(FlexGrammar.LIST_EXPRESSION);
+  }
+
+  /**
+   * Removes the blocks without element which only pass control to their single successor, adds the edges to the catch
+   * and finally clauses from the blocks which have elements, and numbers the blocks from the start, mostly in document
+   * order.
+   */
+  private ControlFlowGraph finish(CfgBlock firstBlock) {
+    BitSet passThrough = new BitSet(blocks.size());
+    for (CfgBlock block : blocks) {
+      if (block.isEmpty() && block.terminator() == null && block.mutableSuccessors().size() == 1) {
+        passThrough.set(block.id());
+      }
+    }
+    // every cycle contains the terminator of a loop, so following the empty blocks always ends
+    CfgBlock start = skip(firstBlock, passThrough);
+    List<CfgBlock> result = new ArrayList<>();
+    result.add(start);
+    for (int i = blocks.size() - 1; i >= 0; i--) {
+      CfgBlock block = blocks.get(i);
+      if (block != start && !passThrough.get(block.id())) {
+        result.add(block);
+      }
+    }
+    if (start != end) {
+      result.add(end);
+    }
+
+    List<CfgBlock> originalSuccessors = new ArrayList<>();
+    for (CfgBlock block : result) {
+      block.reverseElements();
+      List<CfgBlock> successors = block.mutableSuccessors();
+      originalSuccessors.clear();
+      originalSuccessors.addAll(successors);
+      successors.clear();
+      for (CfgBlock successor : originalSuccessors) {
+        block.addSuccessor(skip(successor, passThrough));
+      }
+      if (block.isEmpty() || block.exceptionTargets.isEmpty()) {
+        block.exceptionTargets = Collections.emptyList();
+      } else {
+        List<CfgBlock> exceptionSuccessors = new ArrayList<>(block.exceptionTargets.size());
+        for (CfgBlock target : block.exceptionTargets) {
+          CfgBlock successor = skip(target, passThrough);
+          block.addSuccessor(successor);
+          if (!exceptionSuccessors.contains(successor)) {
+            exceptionSuccessors.add(successor);
+          }
+        }
+        block.exceptionTargets = exceptionSuccessors;
+      }
+    }
+    for (int i = 0; i < result.size(); i++) {
+      CfgBlock block = result.get(i);
+      block.setId(i);
+      for (CfgBlock successor : block.mutableSuccessors()) {
+        successor.addPredecessor(block);
+      }
+    }
+    return new ControlFlowGraph(result, start, end);
+  }
+
+  private CfgBlock skip(CfgBlock block, BitSet passThrough) {
+    CfgBlock target = block;
+    while (target != end && passThrough.get(target.id())) {
+      target = target.mutableSuccessors().get(0);
+    }
+    return target;
+  }
+
+  private static class JumpTarget {
+    private final List<String> labels;
+    private final boolean isLoopOrSwitch;
+    private final CfgBlock breakTarget;
+    private final CfgBlock continueTarget;
+    private final int finallyDepth;
+
+    JumpTarget(List<String> labels, boolean isLoopOrSwitch, CfgBlock breakTarget, @Nullable CfgBlock continueTarget, int finallyDepth) {
+      this.labels = labels;
+      this.isLoopOrSwitch = isLoopOrSwitch;
+      this.breakTarget = breakTarget;
+      this.continueTarget = continueTarget;
+      this.finallyDepth = finallyDepth;
+    }
+  }
+
+  private static class FinallyClause {
+    private final CfgBlock entry;
+    private final CfgBlock exit;
+
+    FinallyClause(CfgBlock entry, CfgBlock exit) {
+      this.entry = entry;
+      this.exit = exit;
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Live variables analysis: a local variable is live at a point of a function if the value it has at this point can be
+ * read afterwards. Sets of variables are bit sets indexed by {@link LocalVariables#slot(org.sonar.flex.semantic.Symbol) slot},
+ * which are computed backwards with a worklist of blocks until they no longer change.
+ * <p>
+ * As any element of a block with {@link CfgBlock#exceptionSuccessors() exception successors} can throw, the variables
+ * which are live at the entry of these successors are live at every point of the block.
+ */
+public final class LiveVariables {
+
+  private final ControlFlowGraph cfg;
+  private final LocalVariables variables;
+  private final BitSet[] liveIn;
+  private final BitSet[] liveOut;
+
+  private LiveVariables(ControlFlowGraph cfg, LocalVariables variables) {
+    this.cfg = cfg;
+    this.variables = variables;
+    int blockCount = cfg.blocks().size();
+    this.liveIn = new BitSet[blockCount];
+    this.liveOut = new BitSet[blockCount];
+  }
+
+  public static LiveVariables analyze(ControlFlowGraph cfg, LocalVariables variables) {
+    LiveVariables liveVariables = new LiveVariables(cfg, variables);
+    liveVariables.solve();
+    return liveVariables;
+  }
+
+  private void solve() {
+    List<CfgBlock> blocks = cfg.blocks();
+    int blockCount = blocks.size();
+    BitSet[] gen = new BitSet[blockCount];
+    BitSet[] kill = new BitSet[blockCount];
+    for (CfgBlock block : blocks) {
+      int id = block.id();
+      gen[id] = new BitSet(variables.size());
+      kill[id] = new BitSet(variables.size());
+      List<VariableAccess> accesses = variables.accesses(block);
+      for (int i = accesses.size() - 1; i >= 0; i--) {
+        VariableAccess access = accesses.get(i);
+        if (access.isWrite()) {
+          if (!access.isConditional()) {
+            kill[id].set(access.slot());
+            gen[id].clear(access.slot());
+          }
+        } else {
+          gen[id].set(access.slot());
+        }
+      }
+      liveIn[id] = new BitSet(variables.size());
+      liveOut[id] = new BitSet(variables.size());
+    }
+
+    Worklist worklist = new Worklist(blockCount);
+    for (int id = blockCount - 1; id >= 0; id--) {
+      worklist.add(id);
+    }
+    BitSet in = new BitSet(variables.size());
+    while (!worklist.isEmpty()) {
+      int id = worklist.remove();
+      CfgBlock block = blocks.get(id);
+      BitSet out = liveOut[id];
+      out.clear();
+      for (CfgBlock successor : block.mutableSuccessors()) {
+        out.or(liveIn[successor.id()]);
+      }
+      in.clear();
+      in.or(out);
+      in.andNot(kill[id]);
+      in.or(gen[id]);
+      for (CfgBlock successor : block.exceptionTargets) {
+        in.or(liveIn[successor.id()]);
+      }
+      if (!in.equals(liveIn[id])) {
+        liveIn[id].clear();
+        liveIn[id].or(in);
+        for (CfgBlock predecessor : block.mutablePredecessors()) {
+          worklist.add(predecessor.id());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the slots of the variables which are live at the entry of the block
+   */
+  public BitSet liveIn(CfgBlock block) {
+    return (BitSet) liveIn[block.id()].clone();
+  }
+
+  /**
+   * @return the slots of the variables which are live at the exit of the block
+   */
+  public BitSet liveOut(CfgBlock block) {
+    return (BitSet) liveOut[block.id()].clone();
+  }
+
+  /**
+   * @return the writes of the function whose value is never read, in the order of the blocks and then of execution
+   */
+  public List<VariableAccess> deadStores() {
+    List<VariableAccess> result = new ArrayList<>();
+    List<VariableAccess> blockResult = new ArrayList<>();
+    BitSet live = new BitSet(variables.size());
+    BitSet exceptionLive = new BitSet(variables.size());
+    for (CfgBlock block : cfg.blocks()) {
+      live.clear();
+      live.or(liveOut[block.id()]);
+      exceptionLive.clear();
+      for (CfgBlock successor : block.exceptionTargets) {
+        exceptionLive.or(liveIn[successor.id()]);
+      }
+      blockResult.clear();
+      List<VariableAccess> accesses = variables.accesses(block);
+      for (int i = accesses.size() - 1; i >= 0; i--) {
+        VariableAccess access = accesses.get(i);
+        live.or(exceptionLive);
+        if (!access.isWrite()) {
+          live.set(access.slot());
+        } else {
+          if (!live.get(access.slot())) {
+            blockResult.add(access);
+          }
+          if (!access.isConditional()) {
+            live.clear(access.slot());
+          }
+        }
+      }
+      Collections.reverse(blockResult);
+      result.addAll(blockResult);
+    }
+    return result;
+  }
+
+}
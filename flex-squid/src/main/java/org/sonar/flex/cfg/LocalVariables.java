@@ -0,0 +1,292 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexPunctuator;
+import org.sonar.flex.semantic.Scope;
+import org.sonar.flex.semantic.SemanticModel;
+import org.sonar.flex.semantic.Symbol;
+
+/**
+ * Local variables and parameters of a function which are tracked by the data flow analyses, each one with a slot
+ * which indexes the bit sets of the analyses, and their accesses in each block of the control flow graph of the function.
+ * <p>
+ * A variable which is also accessed by a nested function is not tracked, as the nested function can run at any time.
+ * Within an element, accesses follow the order of evaluation: the right-hand side of an assignment is read before the
+ * variable is written, and a compound assignment or an increment reads the variable before writing it. A declaration
+ * without initializer does not write the variable, and a write in an operand which is not always evaluated is
+ * {@link VariableAccess#isConditional() conditional}.
+ */
+public final class LocalVariables {
+
+  private final List<Symbol> symbols = new ArrayList<>();
+  private final Map<Symbol, Integer> slots = new HashMap<>();
+  private final Map<AstNode, Integer> slotsByDeclaration = new HashMap<>();
+  private final Map<AstNode, List<Integer>> slotsByUsage = new HashMap<>();
+  private final List<VariableAccess> definitions = new ArrayList<>();
+  private final List<List<VariableAccess>> accessesByBlock;
+  private final SemanticModel semanticModel;
+  private List<VariableAccess> currentAccesses;
+  private CfgBlock currentBlock;
+  private int conditionalDepth;
+
+  private LocalVariables(SemanticModel semanticModel, int blockCount) {
+    this.semanticModel = semanticModel;
+    this.accessesByBlock = new ArrayList<>(blockCount);
+  }
+
+  /**
+   * @param function the {@code FUNCTION_DEF} or {@code FUNCTION_EXPR} of the graph
+   * @throws IllegalArgumentException if the function is not part of the semantic model
+   */
+  public static LocalVariables create(SemanticModel semanticModel, AstNode function, ControlFlowGraph cfg) {
+    Scope scope = semanticModel.scope(function);
+    if (scope == null) {
+      throw new IllegalArgumentException("No scope for " + function.getName() + " at line " + function.getTokenLine());
+    }
+    LocalVariables variables = new LocalVariables(semanticModel, cfg.blocks().size());
+    variables.addSymbols(scope, function);
+    for (CfgBlock block : cfg.blocks()) {
+      List<VariableAccess> accesses = new ArrayList<>();
+      if (!variables.symbols.isEmpty()) {
+        variables.currentAccesses = accesses;
+        variables.currentBlock = block;
+        for (AstNode element : block.elements()) {
+          variables.collect(element);
+        }
+      }
+      variables.accessesByBlock.add(accesses);
+    }
+    return variables;
+  }
+
+  /**
+   * The variables of the catch clauses of the function belong to its scope, only their parameters are in the scope of
+   * the catch clause. A parameter which is declared again as a variable shares its slot with the variable, as both
+   * symbols have the same usages.
+   */
+  private void addSymbols(Scope scope, AstNode function) {
+    Map<String, Integer> slotsByName = new HashMap<>();
+    for (Symbol symbol : scope.symbols()) {
+      if ((symbol.kind() == Symbol.Kind.VARIABLE || symbol.kind() == Symbol.Kind.PARAMETER) && !isAccessedByNestedFunction(symbol, function)) {
+        Integer slot = slotsByName.get(symbol.name());
+        if (slot == null) {
+          slot = symbols.size();
+          slotsByName.put(symbol.name(), slot);
+          symbols.add(symbol);
+        }
+        slots.put(symbol, slot);
+        for (AstNode declaration : symbol.declarations()) {
+          slotsByDeclaration.put(declaration, slot);
+        }
+        for (AstNode usage : symbol.usages()) {
+          List<Integer> usageSlots = slotsByUsage.computeIfAbsent(usage, k -> new ArrayList<>(1));
+          if (!usageSlots.contains(slot)) {
+            usageSlots.add(slot);
+          }
+        }
+      }
+    }
+    for (Scope innerScope : scope.innerScopes()) {
+      if (innerScope.kind() == Scope.Kind.CATCH) {
+        addSymbols(innerScope, function);
+      }
+    }
+  }
+
+  private static boolean isAccessedByNestedFunction(Symbol symbol, AstNode function) {
+    for (AstNode usage : symbol.usages()) {
+      if (usage.getFirstAncestor(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR) != function) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of slots, which can be less than the number of tracked symbols
+   */
+  public int size() {
+    return symbols.size();
+  }
+
+  /**
+   * @return the first symbol of the slot
+   */
+  public Symbol symbol(int slot) {
+    return symbols.get(slot);
+  }
+
+  /**
+   * @return the slot of the symbol, or -1 if the symbol is not tracked
+   */
+  public int slot(Symbol symbol) {
+    return slots.getOrDefault(symbol, -1);
+  }
+
+  /**
+   * @return the accesses of the elements of the block, in execution order
+   */
+  public List<VariableAccess> accesses(CfgBlock block) {
+    return Collections.unmodifiableList(accessesByBlock.get(block.id()));
+  }
+
+  /**
+   * @return all the writes of the function, which are the definitions of the reaching definitions analysis
+   */
+  public List<VariableAccess> definitions() {
+    return Collections.unmodifiableList(definitions);
+  }
+
+  private void collect(AstNode node) {
+    if (node.is(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR, FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF)) {
+      return;
+    }
+    if (node.is(FlexGrammar.QUALIFIED_IDENTIFIER)) {
+      // the namespace of a qualified name is read as well as the name
+      for (int slot : slotsByUsage.getOrDefault(node, Collections.emptyList())) {
+        addAccess(VariableAccess.Kind.READ, node, slot);
+      }
+    } else if (node.is(FlexGrammar.LOGICAL_AND_EXPR, FlexGrammar.LOGICAL_AND_EXPR_NO_IN, FlexGrammar.LOGICAL_OR_EXPR, FlexGrammar.LOGICAL_OR_EXPR_NO_IN,
+      FlexGrammar.CONDITIONAL_EXPR, FlexGrammar.CONDITIONAL_EXPR_NO_IN)) {
+      // the elements are not split into blocks: only the first operand is always evaluated
+      List<AstNode> children = node.getChildren();
+      collect(children.get(0));
+      conditionalDepth++;
+      for (int i = 1; i < children.size(); i++) {
+        collect(children.get(i));
+      }
+      conditionalDepth--;
+    } else if (node.is(FlexGrammar.ASSIGNMENT_EXPR, FlexGrammar.ASSIGNMENT_EXPR_NO_IN) && node.getNumberOfChildren() == 3) {
+      collectAssignment(node);
+    } else if (isIncrement(node)) {
+      AstNode target = node.is(FlexGrammar.UNARY_EXPR) ? variable(node.getLastChild()) : variable(node.getFirstChild());
+      collectWrite(target, true, node);
+    } else if (node.is(FlexGrammar.VARIABLE_BINDING, FlexGrammar.VARIABLE_BINDING_NO_IN)) {
+      AstNode initialisation = node.getFirstChild(FlexGrammar.VARIABLE_INITIALISATION, FlexGrammar.VARIABLE_INITIALISATION_NO_IN);
+      if (initialisation != null) {
+        collect(initialisation);
+        addDeclarationWrite(node.getFirstChild().getFirstChild(FlexGrammar.IDENTIFIER));
+      }
+    } else if (node.is(FlexGrammar.PARAMETER)) {
+      // parameter of a catch clause
+      addDeclarationWrite(node.getFirstChild(FlexGrammar.TYPED_IDENTIFIER).getFirstChild(FlexGrammar.IDENTIFIER));
+    } else if (node.is(FlexGrammar.FOR_IN_BINDING)) {
+      AstNode binding = node.getFirstChild(FlexGrammar.VARIABLE_BINDING_NO_IN);
+      if (binding == null) {
+        collectWrite(variable(node.getFirstChild()), false, node.getFirstChild());
+      } else {
+        addDeclarationWrite(binding.getFirstChild().getFirstChild(FlexGrammar.IDENTIFIER));
+      }
+    } else {
+      for (AstNode child : node.getChildren()) {
+        collect(child);
+      }
+    }
+  }
+
+  private void collectAssignment(AstNode assignment) {
+    AstNode target = variable(assignment.getFirstChild());
+    AstNode operator = assignment.getChildren().get(1);
+    if (target == null) {
+      collect(assignment.getFirstChild());
+      collect(assignment.getLastChild());
+    } else {
+      boolean compound = operator.getFirstChild().isNot(FlexPunctuator.EQUAL1);
+      int slot = slot(target);
+      if (slot >= 0 && compound) {
+        addAccess(VariableAccess.Kind.READ, target, slot);
+      }
+      collect(assignment.getLastChild());
+      if (slot >= 0) {
+        addAccess(VariableAccess.Kind.WRITE, target, slot);
+      }
+    }
+  }
+
+  /**
+   * @param target the qualified identifier of the variable, or null if the expression is not a simple name
+   * @param read true if the previous value is read before the write
+   * @param expression the expression to walk when the target is not a simple name
+   */
+  private void collectWrite(@CheckForNull AstNode target, boolean read, AstNode expression) {
+    if (target == null) {
+      for (AstNode child : expression.getChildren()) {
+        collect(child);
+      }
+      return;
+    }
+    int slot = slot(target);
+    if (slot >= 0) {
+      if (read) {
+        addAccess(VariableAccess.Kind.READ, target, slot);
+      }
+      addAccess(VariableAccess.Kind.WRITE, target, slot);
+    }
+  }
+
+  private void addDeclarationWrite(AstNode identifier) {
+    Integer slot = slotsByDeclaration.get(identifier);
+    if (slot != null) {
+      addAccess(VariableAccess.Kind.WRITE, identifier, slot);
+    }
+  }
+
+  private void addAccess(VariableAccess.Kind kind, AstNode node, int slot) {
+    int definitionId = kind == VariableAccess.Kind.WRITE ? definitions.size() : -1;
+    VariableAccess access = new VariableAccess(kind, node, symbols.get(slot), slot, currentBlock, definitionId, conditionalDepth > 0);
+    if (definitionId >= 0) {
+      definitions.add(access);
+    }
+    currentAccesses.add(access);
+  }
+
+  private int slot(AstNode qualifiedIdentifier) {
+    Symbol symbol = semanticModel.symbol(qualifiedIdentifier);
+    return symbol == null ? -1 : slot(symbol);
+  }
+
+  private static boolean isIncrement(AstNode node) {
+    if (node.is(FlexGrammar.UNARY_EXPR)) {
+      return node.getFirstChild().is(FlexPunctuator.DOUBLE_PLUS, FlexPunctuator.DOUBLE_MINUS);
+    }
+    return node.is(FlexGrammar.POSTFIX_EXPR) && node.getNumberOfChildren() == 2 && node.getLastChild().is(FlexPunctuator.DOUBLE_PLUS, FlexPunctuator.DOUBLE_MINUS);
+  }
+
+  /**
+   * @return the qualified identifier of a {@code POSTFIX_EXPR} or {@code PRIMARY_EXPR} which is a simple name without
+   * namespace, or null
+   */
+  @CheckForNull
+  private static AstNode variable(AstNode expression) {
+    AstNode primary = expression.is(FlexGrammar.POSTFIX_EXPR) && expression.getNumberOfChildren() == 1 ? expression.getFirstChild() : expression;
+    if (primary.is(FlexGrammar.PRIMARY_EXPR) && primary.getNumberOfChildren() == 1 && primary.getFirstChild().is(FlexGrammar.QUALIFIED_IDENTIFIER)) {
+      AstNode qualifiedIdentifier = primary.getFirstChild();
+      return qualifiedIdentifier.getToken() == qualifiedIdentifier.getLastToken() ? qualifiedIdentifier : null;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reaching definitions analysis: a definition, which is a write of a local variable, reaches a point of a function if
+ * a path leads from the definition to this point without writing the variable again. Sets of definitions are bit sets
+ * indexed by the position of the definitions in {@link LocalVariables#definitions()}, which are computed forwards with
+ * a worklist of blocks until they no longer change.
+ * <p>
+ * As any element of a block can throw, all the definitions which reach a block or are made in it reach its
+ * {@link CfgBlock#exceptionSuccessors() exception successors}.
+ */
+public final class ReachingDefinitions {
+
+  private final ControlFlowGraph cfg;
+  private final LocalVariables variables;
+  private final BitSet[] definitionsBySlot;
+  private final BitSet[] reachingIn;
+  private final BitSet[] reachingOut;
+
+  private ReachingDefinitions(ControlFlowGraph cfg, LocalVariables variables) {
+    this.cfg = cfg;
+    this.variables = variables;
+    this.definitionsBySlot = new BitSet[variables.size()];
+    int blockCount = cfg.blocks().size();
+    this.reachingIn = new BitSet[blockCount];
+    this.reachingOut = new BitSet[blockCount];
+  }
+
+  public static ReachingDefinitions analyze(ControlFlowGraph cfg, LocalVariables variables) {
+    ReachingDefinitions reachingDefinitions = new ReachingDefinitions(cfg, variables);
+    reachingDefinitions.solve();
+    return reachingDefinitions;
+  }
+
+  private void solve() {
+    int definitionCount = variables.definitions().size();
+    for (int slot = 0; slot < definitionsBySlot.length; slot++) {
+      definitionsBySlot[slot] = new BitSet(definitionCount);
+    }
+    for (VariableAccess definition : variables.definitions()) {
+      definitionsBySlot[definition.slot()].set(definition.definitionId());
+    }
+
+    List<CfgBlock> blocks = cfg.blocks();
+    int blockCount = blocks.size();
+    BitSet[] gen = new BitSet[blockCount];
+    BitSet[] kill = new BitSet[blockCount];
+    BitSet[] made = new BitSet[blockCount];
+    for (CfgBlock block : blocks) {
+      int id = block.id();
+      gen[id] = new BitSet(definitionCount);
+      kill[id] = new BitSet(definitionCount);
+      made[id] = new BitSet(definitionCount);
+      for (VariableAccess access : variables.accesses(block)) {
+        if (access.isWrite()) {
+          if (!access.isConditional()) {
+            gen[id].andNot(definitionsBySlot[access.slot()]);
+            kill[id].or(definitionsBySlot[access.slot()]);
+          }
+          gen[id].set(access.definitionId());
+          made[id].set(access.definitionId());
+        }
+      }
+      reachingIn[id] = new BitSet(definitionCount);
+      reachingOut[id] = new BitSet(definitionCount);
+    }
+
+    Worklist worklist = new Worklist(blockCount);
+    for (int id = 0; id < blockCount; id++) {
+      worklist.add(id);
+    }
+    BitSet in = new BitSet(definitionCount);
+    BitSet out = new BitSet(definitionCount);
+    while (!worklist.isEmpty()) {
+      int id = worklist.remove();
+      CfgBlock block = blocks.get(id);
+      in.clear();
+      for (CfgBlock predecessor : block.mutablePredecessors()) {
+        in.or(reachingOut[predecessor.id()]);
+        if (predecessor.exceptionTargets.contains(block)) {
+          in.or(reachingIn[predecessor.id()]);
+          in.or(made[predecessor.id()]);
+        }
+      }
+      out.clear();
+      out.or(in);
+      out.andNot(kill[id]);
+      out.or(gen[id]);
+      if (!in.equals(reachingIn[id]) || !out.equals(reachingOut[id])) {
+        reachingIn[id].clear();
+        reachingIn[id].or(in);
+        reachingOut[id].clear();
+        reachingOut[id].or(out);
+        for (CfgBlock successor : block.mutableSuccessors()) {
+          worklist.add(successor.id());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the definitions of the variable of the access which reach it, in the order of {@link LocalVariables#definitions()}.
+   * None reaches a read of a parameter or of a variable which has not been assigned yet.
+   */
+  public List<VariableAccess> reachingDefinitions(VariableAccess access) {
+    BitSet reaching = (BitSet) reachingIn[access.block().id()].clone();
+    for (VariableAccess previous : variables.accesses(access.block())) {
+      if (previous == access) {
+        break;
+      }
+      if (previous.isWrite()) {
+        if (!previous.isConditional()) {
+          reaching.andNot(definitionsBySlot[previous.slot()]);
+        }
+        reaching.set(previous.definitionId());
+      }
+    }
+    reaching.and(definitionsBySlot[access.slot()]);
+    List<VariableAccess> result = new ArrayList<>(reaching.cardinality());
+    for (int id = reaching.nextSetBit(0); id >= 0; id = reaching.nextSetBit(id + 1)) {
+      result.add(variables.definitions().get(id));
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import org.sonar.flex.semantic.Symbol;
+
+/**
+ * Read or write of a {@link LocalVariables local variable} by an element of a {@link CfgBlock}.
+ */
+public final class VariableAccess {
+
+  public enum Kind {
+    READ,
+    WRITE
+  }
+
+  private final Kind kind;
+  private final AstNode node;
+  private final Symbol symbol;
+  private final int slot;
+  private final CfgBlock block;
+  private final int definitionId;
+  private final boolean conditional;
+
+  VariableAccess(Kind kind, AstNode node, Symbol symbol, int slot, CfgBlock block, int definitionId, boolean conditional) {
+    this.kind = kind;
+    this.node = node;
+    this.symbol = symbol;
+    this.slot = slot;
+    this.block = block;
+    this.definitionId = definitionId;
+    this.conditional = conditional;
+  }
+
+  public Kind kind() {
+    return kind;
+  }
+
+  public boolean isWrite() {
+    return kind == Kind.WRITE;
+  }
+
+  /**
+   * @return the {@code QUALIFIED_IDENTIFIER} which is read or assigned, or the {@code IDENTIFIER} of the variable
+   * declaration, catch clause or for-in loop which assigns the variable
+   */
+  public AstNode node() {
+    return node;
+  }
+
+  public Symbol symbol() {
+    return symbol;
+  }
+
+  public int slot() {
+    return slot;
+  }
+
+  public CfgBlock block() {
+    return block;
+  }
+
+  /**
+   * @return true if the access is in the right operand of {@code &&} or {@code ||}, or in a branch of {@code ?:}, so that
+   * it may not be executed although its element is. Such a write does not replace the previous value of the variable.
+   */
+  public boolean isConditional() {
+    return conditional;
+  }
+
+  /**
+   * @return the index of a write in {@link LocalVariables#definitions()}, or -1 for a read
+   */
+  int definitionId() {
+    return definitionId;
+  }
+
+  @Override
+  public String toString() {
+    return kind + " " + symbol.name() + " at line " + node.getTokenLine();
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+/**
+ * Queue of block ids in which each id is present at most once.
+ */
+final class Worklist {
+
+  private final int[] ids;
+  private final boolean[] queued;
+  private int head;
+  private int size;
+
+  Worklist(int capacity) {
+    ids = new int[capacity];
+    queued = new boolean[capacity];
+  }
+
+  void add(int id) {
+    if (!queued[id]) {
+      queued[id] = true;
+      ids[(head + size) % ids.length] = id;
+      size++;
+    }
+  }
+
+  int remove() {
+    int id = ids[head];
+    head = (head + 1) % ids.length;
+    size--;
+    queued[id] = false;
+    return id;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+}
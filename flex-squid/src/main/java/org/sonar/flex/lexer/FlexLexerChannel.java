@@ -0,0 +1,351 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.sonar.flex.api.FlexKeyword;
+import org.sonar.flex.api.FlexPunctuator;
+import org.sonar.flex.api.FlexTokenType;
+import org.sonar.flex.api.KeywordTable;
+import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeReader;
+
+/**
+ * Single channel of {@link FlexLexer}, which dispatches on the current character and scans by hand
+ * what used to be matched by a chain of regular expressions, one after the other:
+ * <pre>
+ * byte order mark     U+FEFF
+ * whitespaces         \s++
+ * comments            //[^\n\r]*+  and  /\*[\s\S]*?\*&#47;
+ * strings             "([^"\\]*+(\\[\s\S])?+)*+"  and the same with single quotes
+ * regular expressions /([^/\n\\]*+(\\.)?+)*+/\p{javaJavaIdentifierPart}*+  when {@link FlexRegularExpressionLiteralChannel} guesses so
+ * numbers             0[xX][0-9a-fA-F]++  [0-9]++\.([0-9]++)?+EXP?+  \.[0-9]++EXP?+  [0-9]++EXP?+  with EXP = [Ee][+-]?+[0-9_]++
+ * identifiers         \p{javaJavaIdentifierStart}++\p{javaJavaIdentifierPart}*+  or keywords
+ * punctuators         the longest {@link FlexPunctuator}
+ * </pre>
+ * Characters which match none of them are left to the next channel.
+ */
+public class FlexLexerChannel extends Channel<Lexer> {
+
+  private static final KeywordTable<FlexKeyword> KEYWORDS = KeywordTable.of(Arrays.asList(FlexKeyword.values()), FlexKeyword::getValue);
+  private static final FlexPunctuator[][] PUNCTUATORS_BY_FIRST_CHARACTER = new FlexPunctuator[128][];
+
+  static {
+    List<FlexPunctuator> punctuators = new ArrayList<>(Arrays.asList(FlexPunctuator.values()));
+    punctuators.sort(Comparator.comparingInt((FlexPunctuator punctuator) -> punctuator.getValue().length()).reversed());
+    for (char c = 0; c < PUNCTUATORS_BY_FIRST_CHARACTER.length; c++) {
+      char first = c;
+      PUNCTUATORS_BY_FIRST_CHARACTER[c] = punctuators.stream()
+        .filter(punctuator -> punctuator.getValue().charAt(0) == first)
+        .toArray(FlexPunctuator[]::new);
+    }
+  }
+
+  private final StringBuilder value = new StringBuilder();
+  private final Token.Builder tokenBuilder = Token.builder();
+
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    if (code.length() == 0) {
+      return false;
+    }
+    char c = code.charAt(0);
+    switch (c) {
+      case '\ufeff':
+        code.pop();
+        code.setColumnPosition(code.getColumnPosition() - 1);
+        return true;
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\u000B':
+      case '\f':
+      case '\r':
+        skipWhitespaces(code);
+        return true;
+      case '/':
+        return consumeSlash(code, lexer);
+      case '"':
+      case '\'':
+        return consumeString(code, lexer, c);
+      case '.':
+        if (isDigit(at(code, 1))) {
+          addToken(code, lexer, FlexTokenType.NUMERIC_LITERAL, exponentEnd(code, digitsEnd(code, 1)));
+          return true;
+        }
+        return consumePunctuator(code, lexer, c);
+      default:
+        if (isDigit(c)) {
+          addToken(code, lexer, FlexTokenType.NUMERIC_LITERAL, numberEnd(code));
+          return true;
+        }
+        return consumeIdentifierOrKeyword(code, lexer) || consumePunctuator(code, lexer, c);
+    }
+  }
+
+  private static void skipWhitespaces(CodeReader code) {
+    do {
+      code.pop();
+    } while (isWhitespace(at(code, 0)));
+  }
+
+  private boolean consumeSlash(CodeReader code, Lexer lexer) {
+    int next = at(code, 1);
+    if (next == '/') {
+      int end = 2;
+      while (end < code.length() && !isLineBreak(code.charAt(end))) {
+        end++;
+      }
+      addComment(code, lexer, end);
+      return true;
+    }
+    if (next == '*') {
+      for (int i = 2; i + 1 < code.length(); i++) {
+        if (code.charAt(i) == '*' && code.charAt(i + 1) == '/') {
+          addComment(code, lexer, i + 2);
+          return true;
+        }
+      }
+    }
+    List<Token> tokens = lexer.getTokens();
+    if (tokens.isEmpty() || FlexRegularExpressionLiteralChannel.guessNextIsRegexp(tokens.get(tokens.size() - 1).getValue())) {
+      int end = regularExpressionEnd(code);
+      if (end > 0) {
+        addToken(code, lexer, FlexTokenType.REGULAR_EXPRESSION_LITERAL, end);
+        return true;
+      }
+    }
+    return consumePunctuator(code, lexer, '/');
+  }
+
+  /**
+   * Returns the end of the regular expression literal starting with the current slash, or -1 if there is none.
+   */
+  private static int regularExpressionEnd(CodeReader code) {
+    int i = 1;
+    while (i < code.length()) {
+      char c = code.charAt(i);
+      if (c == '/') {
+        return identifierPartsEnd(code, i + 1);
+      } else if (c == '\n') {
+        return -1;
+      } else if (c == '\\') {
+        if (i + 1 >= code.length() || isRegexpLineTerminator(code.charAt(i + 1))) {
+          return -1;
+        }
+        i += 2;
+      } else {
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  private boolean consumeString(CodeReader code, Lexer lexer, char quote) {
+    int i = 1;
+    while (i < code.length()) {
+      char c = code.charAt(i);
+      if (c == quote) {
+        addToken(code, lexer, GenericTokenType.LITERAL, i + 1);
+        return true;
+      } else if (c == '\\') {
+        i += 2;
+      } else {
+        i++;
+      }
+    }
+    // unterminated string: the quote is an unknown character
+    return false;
+  }
+
+  private static int numberEnd(CodeReader code) {
+    if (code.charAt(0) == '0' && (at(code, 1) == 'x' || at(code, 1) == 'X') && isHexDigit(at(code, 2))) {
+      int end = 3;
+      while (isHexDigit(at(code, end))) {
+        end++;
+      }
+      return end;
+    }
+    int end = digitsEnd(code, 0);
+    if (at(code, end) == '.') {
+      end = digitsEnd(code, end + 1);
+    }
+    return exponentEnd(code, end);
+  }
+
+  private static int digitsEnd(CodeReader code, int start) {
+    int end = start;
+    while (isDigit(at(code, end))) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int exponentEnd(CodeReader code, int start) {
+    int c = at(code, start);
+    if (c != 'e' && c != 'E') {
+      return start;
+    }
+    int digitsStart = start + 1;
+    c = at(code, digitsStart);
+    if (c == '+' || c == '-') {
+      digitsStart++;
+    }
+    int end = digitsStart;
+    while (isDigit(at(code, end)) || at(code, end) == '_') {
+      end++;
+    }
+    return end > digitsStart ? end : start;
+  }
+
+  private boolean consumeIdentifierOrKeyword(CodeReader code, Lexer lexer) {
+    int first = Character.codePointAt(code, 0);
+    if (!Character.isJavaIdentifierStart(first)) {
+      return false;
+    }
+    int end = identifierPartsEnd(code, Character.charCount(first));
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    TokenType keyword = KEYWORDS.get(code, 0, end);
+    String word = pop(code, end);
+    lexer.addToken(tokenBuilder
+      .setType(keyword == null ? GenericTokenType.IDENTIFIER : keyword)
+      .setValueAndOriginalValue(word)
+      .setURI(lexer.getURI())
+      .setLine(line)
+      .setColumn(column)
+      .build());
+    return true;
+  }
+
+  private static int identifierPartsEnd(CodeReader code, int start) {
+    int end = start;
+    while (end < code.length()) {
+      int codePoint = Character.codePointAt(code, end);
+      if (!Character.isJavaIdentifierPart(codePoint)) {
+        break;
+      }
+      end += Character.charCount(codePoint);
+    }
+    return end;
+  }
+
+  private boolean consumePunctuator(CodeReader code, Lexer lexer, char first) {
+    if (first >= PUNCTUATORS_BY_FIRST_CHARACTER.length) {
+      return false;
+    }
+    for (FlexPunctuator punctuator : PUNCTUATORS_BY_FIRST_CHARACTER[first]) {
+      if (startsWith(code, punctuator.getValue())) {
+        lexer.addToken(tokenBuilder
+          .setType(punctuator)
+          .setValueAndOriginalValue(punctuator.getValue())
+          .setURI(lexer.getURI())
+          .setLine(code.getLinePosition())
+          .setColumn(code.getColumnPosition())
+          .build());
+        for (int i = 0; i < punctuator.getValue().length(); i++) {
+          code.pop();
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean startsWith(CodeReader code, String value) {
+    if (value.length() > code.length()) {
+      return false;
+    }
+    for (int i = 1; i < value.length(); i++) {
+      if (code.charAt(i) != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void addToken(CodeReader code, Lexer lexer, TokenType type, int length) {
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    lexer.addToken(tokenBuilder
+      .setType(type)
+      .setValueAndOriginalValue(pop(code, length))
+      .setURI(lexer.getURI())
+      .setLine(line)
+      .setColumn(column)
+      .build());
+  }
+
+  private void addComment(CodeReader code, Lexer lexer, int length) {
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    lexer.addTrivia(Trivia.createComment(tokenBuilder
+      .setType(GenericTokenType.COMMENT)
+      .setValueAndOriginalValue(pop(code, length))
+      .setURI(lexer.getURI())
+      .setLine(line)
+      .setColumn(column)
+      .build()));
+  }
+
+  private String pop(CodeReader code, int length) {
+    value.setLength(0);
+    for (int i = 0; i < length; i++) {
+      value.append((char) code.pop());
+    }
+    return value.toString();
+  }
+
+  /**
+   * Character at the given offset from the current position, or -1 after the end of the code.
+   */
+  private static int at(CodeReader code, int offset) {
+    return offset < code.length() ? code.charAt(offset) : -1;
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  /**
+   * Characters which are not matched by "." in a regular expression.
+   */
+  private static boolean isRegexpLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHexDigit(int c) {
+    return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+}
@@ -19,15 +19,36 @@ package org.sonar.flex.metrics;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.FlexKeyword;
 import org.sonar.flex.FlexPunctuator;
 import org.sonar.flex.FlexVisitor;
+import org.sonar.flex.NodeIndex;
 
 public class ComplexityVisitor extends FlexVisitor {
 
+  static final List<AstNodeType> TYPES = Collections.unmodifiableList(Arrays.asList(
+    // Entry points
+    FlexGrammar.FUNCTION_DEF,
+    FlexGrammar.FUNCTION_EXPR,
+
+    // Branching nodes
+    FlexGrammar.IF_STATEMENT,
+    FlexGrammar.FOR_STATEMENT,
+    FlexGrammar.WHILE_STATEMENT,
+    FlexGrammar.DO_STATEMENT,
+    FlexKeyword.CASE,
+
+    // Expressions
+    FlexPunctuator.QUERY,
+    FlexGrammar.LOGICAL_AND_OPERATOR,
+    FlexGrammar.LOGICAL_OR_OPERATOR));
+
+  private static final AstNodeType[] FUNCTION_TYPES = {FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR};
+
   private int complexity;
 
   public int getComplexity() {
@@ -36,22 +57,7 @@ public class ComplexityVisitor extends FlexVisitor {
 
   @Override
   public List<AstNodeType> subscribedTo() {
-    return Arrays.asList(
-      // Entry points
-      FlexGrammar.FUNCTION_DEF,
-      FlexGrammar.FUNCTION_EXPR,
-
-      // Branching nodes
-      FlexGrammar.IF_STATEMENT,
-      FlexGrammar.FOR_STATEMENT,
-      FlexGrammar.WHILE_STATEMENT,
-      FlexGrammar.DO_STATEMENT,
-      FlexKeyword.CASE,
-
-      // Expressions
-      FlexPunctuator.QUERY,
-      FlexGrammar.LOGICAL_AND_OPERATOR,
-      FlexGrammar.LOGICAL_OR_OPERATOR);
+    return TYPES;
   }
 
   @Override
@@ -76,6 +82,32 @@ public class ComplexityVisitor extends FlexVisitor {
     return visitor.complexity;
   }
 
+  /**
+   * Same as {@link #complexity(AstNode)}, counting the nodes found in the index instead of walking the tree.
+   */
+  public static int complexity(NodeIndex index, AstNode root) {
+    int complexity = 0;
+    for (AstNodeType type : TYPES) {
+      complexity += index.descendants(root, type).size();
+    }
+    return TYPES.contains(root.getType()) ? (complexity + 1) : complexity;
+  }
+
+  /**
+   * Same as {@link #functionComplexity(AstNode)}, counting the nodes found in the index instead of walking the tree.
+   */
+  public static int functionComplexity(NodeIndex index, AstNode functionDef) {
+    int complexity = complexity(index, functionDef);
+    for (AstNodeType functionType : FUNCTION_TYPES) {
+      for (AstNode nestedFunction : index.descendants(functionDef, functionType)) {
+        if (nestedFunction.getFirstAncestor(FUNCTION_TYPES) == functionDef) {
+          complexity -= complexity(index, nestedFunction);
+        }
+      }
+    }
+    return complexity;
+  }
+
   private static class FunctionComplexityVisitor extends ComplexityVisitor {
 
     private final AstNode functionDef;
@@ -103,7 +135,7 @@ public class ComplexityVisitor extends FlexVisitor {
     }
 
     private boolean isNestedFunction(AstNode astNode) {
-      return astNode.is(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR) && astNode != functionDef;
+      return astNode.is(FUNCTION_TYPES) && astNode != functionDef;
     }
   }
 }
@@ -21,19 +21,22 @@ import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import javax.annotation.Nullable;
 import org.sonar.flex.FlexCommentAnalyser;
 import org.sonar.flex.FlexVisitor;
 
+/**
+ * Computes the lines of code, comment lines and NOSONAR lines of a file, or of a node when used through {@link #scanNode(AstNode)}.
+ * Lines are stored as bits indexed by line number, sized to the number of lines of the file, to avoid boxing an integer per token.
+ */
 public class FileLinesVisitor extends FlexVisitor {
 
-  private final Set<Integer> linesOfCode = new HashSet<>();
-  private final Set<Integer> linesOfComments = new HashSet<>();
-  private final Set<Integer> noSonarLines = new HashSet<>();
+  private BitSet linesOfCode = new BitSet();
+  private BitSet linesOfComments = new BitSet();
+  private BitSet noSonarLines = new BitSet();
 
   @Override
   public List<AstNodeType> subscribedTo() {
@@ -42,15 +45,16 @@ public class FileLinesVisitor extends FlexVisitor {
 
   @Override
   public void visitFile(@Nullable AstNode astNode) {
-    linesOfCode.clear();
-    linesOfComments.clear();
-    noSonarLines.clear();
+    int lines = astNode == null ? 0 : astNode.getLastToken().getLine();
+    linesOfCode = new BitSet(lines + 1);
+    linesOfComments = new BitSet(lines + 1);
+    noSonarLines = new BitSet(lines + 1);
   }
 
   @Override
   public void visitToken(Token token) {
     if (!token.getType().equals(GenericTokenType.EOF)) {
-      linesOfCode.add(token.getLine());
+      linesOfCode.set(token.getLine());
     }
 
     for (Trivia trivia : token.getTrivia()) {
@@ -65,24 +69,24 @@ public class FileLinesVisitor extends FlexVisitor {
     int line = trivia.getToken().getLine();
     for (String commentLine : commentLines) {
       if (commentLine.contains("NOSONAR")) {
-        linesOfComments.remove(line);
-        noSonarLines.add(line);
-      } else if (!FlexCommentAnalyser.isBlank(commentLine) && !noSonarLines.contains(line)) {
-        linesOfComments.add(line);
+        linesOfComments.clear(line);
+        noSonarLines.set(line);
+      } else if (!FlexCommentAnalyser.isBlank(commentLine) && !noSonarLines.get(line)) {
+        linesOfComments.set(line);
       }
       line++;
     }
   }
 
-  public Set<Integer> linesOfCode() {
+  public BitSet linesOfCode() {
     return linesOfCode;
   }
 
-  public Set<Integer> linesOfComments() {
+  public BitSet linesOfComments() {
     return linesOfComments;
   }
 
-  public Set<Integer> noSonarLines() {
+  public BitSet noSonarLines() {
     return noSonarLines;
   }
 }
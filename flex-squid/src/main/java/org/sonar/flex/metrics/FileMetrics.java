@@ -17,67 +17,92 @@
 package org.sonar.flex.metrics;
 
 import com.sonar.sslr.api.AstNode;
-import java.util.HashSet;
+import com.sonar.sslr.api.AstNodeType;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import org.sonar.flex.FlexGrammar;
 import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.NodeIndex;
 
+/**
+ * Computes the metrics of a file: lines of code, comment and NOSONAR lines are computed from the tokens as by
+ * {@link FileLinesVisitor}, with a single walk of the tree, and the other metrics are counted from the
+ * {@link FlexVisitorContext#nodeIndex() index of the nodes} of the file, complexity being the same as by {@link ComplexityVisitor}.
+ */
 public class FileMetrics {
 
+  private static final List<AstNodeType> STATEMENTS = Collections.unmodifiableList(Arrays.asList(
+    FlexGrammar.DEFAULT_XML_NAMESPACE_DIRECTIVE,
+    FlexGrammar.VARIABLE_DECLARATION_STATEMENT,
+    FlexGrammar.EXPRESSION_STATEMENT,
+    FlexGrammar.IF_STATEMENT,
+    FlexGrammar.FOR_STATEMENT,
+    FlexGrammar.WHILE_STATEMENT,
+    FlexGrammar.DO_STATEMENT,
+    FlexGrammar.WITH_STATEMENT,
+    FlexGrammar.SWITCH_STATEMENT,
+    FlexGrammar.BREAK_STATEMENT,
+    FlexGrammar.CONTINUE_STATEMENT,
+    FlexGrammar.RETURN_STATEMENT,
+    FlexGrammar.THROW_STATEMENT,
+    FlexGrammar.TRY_STATEMENT,
+    FlexGrammar.EMPTY_STATEMENT));
+  private static final List<AstNodeType> CLASSES = Collections.unmodifiableList(Arrays.asList(FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF));
+  private static final List<AstNodeType> FUNCTIONS = Collections.unmodifiableList(Arrays.asList(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR));
+
+  private final FileLinesVisitor visitor = new FileLinesVisitor();
   private final int numberOfStatements;
   private final int numberOfClasses;
   private final int numberOfFunctions;
-  private final FileLinesVisitor fileLinesVisitor = new FileLinesVisitor();
+  private final int complexity;
   private final String executableLines;
 
   public FileMetrics(FlexVisitorContext context) {
-    AstNode rootTree = context.rootTree();
-    Objects.requireNonNull(rootTree, "Cannot compute metrics without a root tree");
-    List<AstNode> statements = rootTree.getDescendants(
-      FlexGrammar.DEFAULT_XML_NAMESPACE_DIRECTIVE,
-      FlexGrammar.VARIABLE_DECLARATION_STATEMENT,
-      FlexGrammar.EXPRESSION_STATEMENT,
-      FlexGrammar.IF_STATEMENT,
-      FlexGrammar.FOR_STATEMENT,
-      FlexGrammar.WHILE_STATEMENT,
-      FlexGrammar.DO_STATEMENT,
-      FlexGrammar.WITH_STATEMENT,
-      FlexGrammar.SWITCH_STATEMENT,
-      FlexGrammar.BREAK_STATEMENT,
-      FlexGrammar.CONTINUE_STATEMENT,
-      FlexGrammar.RETURN_STATEMENT,
-      FlexGrammar.THROW_STATEMENT,
-      FlexGrammar.TRY_STATEMENT,
-      FlexGrammar.EMPTY_STATEMENT);
+    Objects.requireNonNull(context.rootTree(), "Cannot compute metrics without a root tree");
+    visitor.scanFile(context);
 
-    Set<Integer> alreadyMarked = new HashSet<>();
-    StringBuilder sb = new StringBuilder();
-    for (AstNode descendant : statements) {
-      int line = descendant.getTokenLine();
-      if (alreadyMarked.add(line)) {
-        sb.append(line).append("=1;");
+    NodeIndex index = context.nodeIndex();
+    // a statement starts on a line of code, so the bits never go beyond the last line of code
+    BitSet statementLines = new BitSet(linesOfCode().length());
+    int statements = 0;
+    for (AstNodeType type : STATEMENTS) {
+      for (AstNode statement : index.nodes(type)) {
+        statementLines.set(statement.getTokenLine());
+        statements++;
       }
     }
+    StringBuilder sb = new StringBuilder();
+    for (int line = statementLines.nextSetBit(0); line >= 0; line = statementLines.nextSetBit(line + 1)) {
+      sb.append(line).append("=1;");
+    }
+    numberOfStatements = statements;
     executableLines = sb.toString();
+    numberOfClasses = count(index, CLASSES);
+    numberOfFunctions = count(index, FUNCTIONS);
+    complexity = count(index, ComplexityVisitor.TYPES);
+  }
 
-    numberOfStatements = statements.size();
-    numberOfClasses = rootTree.getDescendants(FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF).size();
-    numberOfFunctions = rootTree.getDescendants(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR).size();
-    fileLinesVisitor.scanFile(context);
+  private static int count(NodeIndex index, List<AstNodeType> types) {
+    int count = 0;
+    for (AstNodeType type : types) {
+      count += index.nodes(type).size();
+    }
+    return count;
   }
 
-  public Set<Integer> linesOfCode() {
-    return fileLinesVisitor.linesOfCode();
+  public BitSet linesOfCode() {
+    return visitor.linesOfCode();
   }
 
-  public Set<Integer> commentLines() {
-    return fileLinesVisitor.linesOfComments();
+  public BitSet commentLines() {
+    return visitor.linesOfComments();
   }
 
-  public Set<Integer> nosonarLines() {
-    return fileLinesVisitor.noSonarLines();
+  public BitSet nosonarLines() {
+    return visitor.noSonarLines();
   }
 
   public int numberOfClasses() {
@@ -95,4 +120,8 @@ public class FileMetrics {
   public String executableLines() {
     return executableLines;
   }
+
+  public int complexity() {
+    return complexity;
+  }
 }
@@ -16,9 +16,11 @@
  */
 package org.sonar.flex.parser;
 
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.impl.Parser;
 import java.nio.charset.Charset;
 import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.ParseDeadline;
 import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonar.sslr.parser.ParserAdapter;
 
@@ -27,8 +29,71 @@ public final class FlexParser {
   private FlexParser() {
   }
 
+  /**
+   * Creating a parser compiles the whole grammar, so a parser should be reused to parse several files.
+   * It must not be used by several threads at the same time: terminals of the compiled grammar keep state while matching.
+   */
   public static Parser<LexerlessGrammar> create(Charset charset) {
     return new ParserAdapter<>(charset, FlexGrammar.createGrammar());
   }
 
+  /**
+   * Same as {@link #create(Charset)}, but the parse of a string is given up with a {@link ParseLimitException} when
+   * the string is too long, before parsing it, or when the parse takes too long.
+   *
+   * @param timeoutMillis maximum duration of the parse of a string, or 0 for no limit
+   * @param maxLength maximum number of characters of a string, or 0 for no limit
+   */
+  public static Parser<LexerlessGrammar> create(Charset charset, long timeoutMillis, int maxLength) {
+    ParseDeadline deadline = new ParseDeadline();
+    return new LimitedParser(charset, FlexGrammar.createGrammar(deadline), deadline, timeoutMillis, maxLength);
+  }
+
+  private static class LimitedParser extends ParserAdapter<LexerlessGrammar> {
+
+    private final ParseDeadline deadline;
+    private final long timeoutMillis;
+    private final int maxLength;
+
+    LimitedParser(Charset charset, LexerlessGrammar grammar, ParseDeadline deadline, long timeoutMillis, int maxLength) {
+      super(charset, grammar);
+      if (timeoutMillis < 0 || maxLength < 0) {
+        throw new IllegalArgumentException("Negative limit: " + timeoutMillis + " ms, " + maxLength + " characters");
+      }
+      this.deadline = deadline;
+      this.timeoutMillis = timeoutMillis;
+      this.maxLength = maxLength;
+    }
+
+    @Override
+    public AstNode parse(String source) {
+      if (maxLength > 0 && source.length() > maxLength) {
+        throw new ParseLimitException(1, "Parse skipped: the file has " + source.length() + " characters, more than the limit of " + maxLength);
+      }
+      deadline.start(timeoutMillis);
+      try {
+        return super.parse(source);
+      } catch (ParseDeadline.ExceededException e) {
+        int line = line(source, e.index());
+        throw new ParseLimitException(line, "Parse interrupted at line " + line + ", after the time limit of " + timeoutMillis + " ms");
+      } finally {
+        deadline.stop();
+      }
+    }
+
+    /**
+     * Lines are counted as by the lexer: "\r\n", "\r" and "\n" end a line.
+     */
+    private static int line(String source, int index) {
+      int line = 1;
+      for (int i = 0; i < index; i++) {
+        char c = source.charAt(i);
+        if (c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+          line++;
+        }
+      }
+      return line;
+    }
+  }
+
 }
@@ -0,0 +1,31 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.parser;
+
+import com.sonar.sslr.api.RecognitionException;
+
+/**
+ * Thrown by a parser created with {@link FlexParser#create(java.nio.charset.Charset, long, int)} when a file is too
+ * large or takes too long to parse. Like any other {@link RecognitionException}, the file is then analyzed without tree.
+ */
+public class ParseLimitException extends RecognitionException {
+
+  public ParseLimitException(int line, String message) {
+    super(line, message);
+  }
+
+}
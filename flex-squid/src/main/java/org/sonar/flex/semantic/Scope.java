@@ -0,0 +1,143 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.semantic;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Part of a file in which names are declared: the file itself, a class or an interface, a function, or a catch clause,
+ * which only declares its parameter. As in ActionScript variables are visible in the whole function which declares
+ * them, blocks do not have their own scope, and the variables and functions declared in a catch clause belong to the
+ * enclosing function.
+ */
+public final class Scope {
+
+  public enum Kind {
+    FILE,
+    CLASS,
+    FUNCTION,
+    CATCH
+  }
+
+  private final Kind kind;
+  private final AstNode tree;
+  private final Scope outer;
+  private final List<Scope> innerScopes = new ArrayList<>();
+  private final List<Symbol> symbols = new ArrayList<>();
+  private final Map<String, List<Symbol>> symbolsByName = new HashMap<>();
+
+  Scope(Kind kind, AstNode tree, @Nullable Scope outer) {
+    this.kind = kind;
+    this.tree = tree;
+    this.outer = outer;
+    if (outer != null) {
+      outer.innerScopes.add(this);
+    }
+  }
+
+  public Kind kind() {
+    return kind;
+  }
+
+  /**
+   * @return the node which creates the scope: the root of the file, a {@code CLASS_DEF}, an {@code INTERFACE_DEF},
+   * a {@code FUNCTION_DEF}, a {@code FUNCTION_EXPR} or a {@code CATCH_CLAUSE}
+   */
+  public AstNode tree() {
+    return tree;
+  }
+
+  /**
+   * @return the enclosing scope, or null for the scope of the file
+   */
+  @CheckForNull
+  public Scope outer() {
+    return outer;
+  }
+
+  /**
+   * @return the scopes directly nested in this one, in document order
+   */
+  public List<Scope> innerScopes() {
+    return Collections.unmodifiableList(innerScopes);
+  }
+
+  /**
+   * @return the symbols declared in this scope, in the order of their first declaration
+   */
+  public List<Symbol> symbols() {
+    return Collections.unmodifiableList(symbols);
+  }
+
+  public List<Symbol> symbols(Symbol.Kind kind) {
+    List<Symbol> result = new ArrayList<>();
+    for (Symbol symbol : symbols) {
+      if (symbol.kind() == kind) {
+        result.add(symbol);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the symbols of the given name declared in this scope, several ones only when the name is declared with
+   * several kinds
+   */
+  public List<Symbol> symbols(String name) {
+    return symbolsByName.getOrDefault(name, Collections.emptyList());
+  }
+
+  /**
+   * @return this scope or the nearest enclosing one of the given kind, or null if there is none
+   */
+  @CheckForNull
+  public Scope enclosing(Kind kind) {
+    Scope scope = this;
+    while (scope != null && scope.kind != kind) {
+      scope = scope.outer;
+    }
+    return scope;
+  }
+
+  Symbol declare(String name, Symbol.Kind symbolKind, AstNode identifier) {
+    List<Symbol> sameName = symbolsByName.computeIfAbsent(name, key -> new ArrayList<>(1));
+    for (Symbol symbol : sameName) {
+      if (symbol.kind() == symbolKind) {
+        symbol.addDeclaration(identifier);
+        return symbol;
+      }
+    }
+    Symbol symbol = new Symbol(name, symbolKind, this);
+    symbol.addDeclaration(identifier);
+    sameName.add(symbol);
+    symbols.add(symbol);
+    return symbol;
+  }
+
+  @Override
+  public String toString() {
+    return kind + " at line " + tree.getTokenLine();
+  }
+
+}
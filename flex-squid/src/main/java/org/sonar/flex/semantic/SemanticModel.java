@@ -0,0 +1,261 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.semantic;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexVisitor;
+
+/**
+ * Scopes and symbols of a file, with the symbols referred to by its qualified identifiers.
+ * <p>
+ * Qualified identifiers are resolved by name, after all the declarations of the file have been collected, as
+ * ActionScript hoists variables and functions to the top of their scope:
+ * <ul>
+ *   <li>a simple name in an expression is looked up in its scope and then in the enclosing ones;</li>
+ *   <li>a property, such as {@code foo} in {@code this.foo} or {@code other.foo}, or a name qualified by a namespace,
+ *   is looked up in the members of the enclosing classes, as the type of the object is not known;</li>
+ *   <li>the namespace which qualifies a name, such as {@code ns} in {@code ns::foo}, is looked up like a simple name, and
+ *   the qualified identifier is also a usage of its symbol;</li>
+ *   <li>a name in a type expression only refers to a class;</li>
+ *   <li>XML attributes and descendants, and names computed from an expression, do not refer to any symbol.</li>
+ * </ul>
+ */
+public final class SemanticModel {
+
+  private final Scope fileScope;
+  private final Map<AstNode, Scope> scopesByTree;
+  private final Map<AstNode, Symbol> symbolsByUsage;
+
+  private SemanticModel(Scope fileScope, Map<AstNode, Scope> scopesByTree, Map<AstNode, Symbol> symbolsByUsage) {
+    this.fileScope = fileScope;
+    this.scopesByTree = scopesByTree;
+    this.symbolsByUsage = symbolsByUsage;
+  }
+
+  /**
+   * Builds the model with a single walk of the tree.
+   */
+  public static SemanticModel create(AstNode root) {
+    Builder builder = new Builder(root);
+    builder.scanNode(root);
+    return builder.build();
+  }
+
+  public Scope fileScope() {
+    return fileScope;
+  }
+
+  /**
+   * @return the scope created by the given node, or null if the node does not create a scope
+   * @see Scope#tree()
+   */
+  @CheckForNull
+  public Scope scope(AstNode tree) {
+    return scopesByTree.get(tree);
+  }
+
+  /**
+   * @return the symbol referred to by the given qualified identifier, or null if it does not refer to a symbol of the
+   * file. When a name is declared with several kinds in the same scope, the identifier is a usage of all of them, and
+   * the first one is returned.
+   */
+  @CheckForNull
+  public Symbol symbol(AstNode qualifiedIdentifier) {
+    return symbolsByUsage.get(qualifiedIdentifier);
+  }
+
+  private static class Builder extends FlexVisitor {
+
+    private final Map<AstNode, Scope> scopesByTree = new HashMap<>();
+    private final List<AstNode> usages = new ArrayList<>();
+    private final List<Scope> usageScopes = new ArrayList<>();
+    private final Scope fileScope;
+    private Scope currentScope;
+
+    Builder(AstNode root) {
+      fileScope = new Scope(Scope.Kind.FILE, root, null);
+      scopesByTree.put(root, fileScope);
+      currentScope = fileScope;
+    }
+
+    @Override
+    public List<AstNodeType> subscribedTo() {
+      return Arrays.asList(
+        FlexGrammar.CLASS_DEF,
+        FlexGrammar.INTERFACE_DEF,
+        FlexGrammar.FUNCTION_DEF,
+        FlexGrammar.FUNCTION_EXPR,
+        FlexGrammar.CATCH_CLAUSE,
+        FlexGrammar.PARAMETER,
+        FlexGrammar.REST_PARAMETERS,
+        FlexGrammar.VARIABLE_BINDING,
+        FlexGrammar.VARIABLE_BINDING_NO_IN,
+        FlexGrammar.QUALIFIED_IDENTIFIER);
+    }
+
+    @Override
+    public void visitNode(AstNode node) {
+      if (node.is(FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF)) {
+        AstNode identifier = node.getFirstChild(FlexGrammar.CLASS_NAME).getFirstChild(FlexGrammar.CLASS_IDENTIFIERS).getLastChild();
+        declare(variableScope(), identifier, Symbol.Kind.CLASS);
+        enter(Scope.Kind.CLASS, node);
+      } else if (node.is(FlexGrammar.FUNCTION_DEF)) {
+        declare(variableScope(), node.getFirstChild(FlexGrammar.FUNCTION_NAME).getFirstChild(FlexGrammar.IDENTIFIER), Symbol.Kind.FUNCTION);
+        enter(Scope.Kind.FUNCTION, node);
+      } else if (node.is(FlexGrammar.FUNCTION_EXPR)) {
+        enter(Scope.Kind.FUNCTION, node);
+        // the name of a function expression is only visible in its body
+        AstNode identifier = node.getFirstChild(FlexGrammar.IDENTIFIER);
+        if (identifier != null) {
+          declare(currentScope, identifier, Symbol.Kind.FUNCTION);
+        }
+      } else if (node.is(FlexGrammar.CATCH_CLAUSE)) {
+        enter(Scope.Kind.CATCH, node);
+      } else if (node.is(FlexGrammar.PARAMETER, FlexGrammar.REST_PARAMETERS)) {
+        AstNode typedIdentifier = node.getFirstChild(FlexGrammar.TYPED_IDENTIFIER);
+        if (typedIdentifier != null) {
+          declare(currentScope, typedIdentifier.getFirstChild(FlexGrammar.IDENTIFIER), Symbol.Kind.PARAMETER);
+        }
+      } else if (node.is(FlexGrammar.VARIABLE_BINDING, FlexGrammar.VARIABLE_BINDING_NO_IN)) {
+        Scope scope = variableScope();
+        AstNode identifier = node.getFirstChild().getFirstChild(FlexGrammar.IDENTIFIER);
+        declare(scope, identifier, scope.kind() == Scope.Kind.CLASS ? Symbol.Kind.FIELD : Symbol.Kind.VARIABLE);
+      } else {
+        usages.add(node);
+        usageScopes.add(currentScope);
+      }
+    }
+
+    @Override
+    public void leaveNode(AstNode node) {
+      if (node.is(FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF, FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR, FlexGrammar.CATCH_CLAUSE)) {
+        currentScope = currentScope.outer();
+      }
+    }
+
+    private void enter(Scope.Kind kind, AstNode tree) {
+      currentScope = new Scope(kind, tree, currentScope);
+      scopesByTree.put(tree, currentScope);
+    }
+
+    /**
+     * @return the scope of the variables and functions declared in the current one
+     */
+    private Scope variableScope() {
+      Scope scope = currentScope;
+      while (scope.kind() == Scope.Kind.CATCH) {
+        scope = scope.outer();
+      }
+      return scope;
+    }
+
+    private static void declare(Scope scope, AstNode identifier, Symbol.Kind kind) {
+      scope.declare(identifier.getTokenValue(), kind, identifier);
+    }
+
+    SemanticModel build() {
+      Map<AstNode, Symbol> symbolsByUsage = new HashMap<>();
+      for (int i = 0; i < usages.size(); i++) {
+        AstNode usage = usages.get(i);
+        Scope scope = usageScopes.get(i);
+        // an XML attribute is not a NON_ATTRIBUTE_QUALIFIED_IDENTIFIER, neither are the names of XML descendants resolved
+        AstNode simpleQualifiedIdentifier = usage.getFirstChild().getFirstChild(FlexGrammar.SIMPLE_QUALIFIED_IDENTIFIER);
+        if (simpleQualifiedIdentifier != null && usage.getParent().isNot(FlexGrammar.QUERY_OPERATOR)) {
+          List<Symbol> symbols = resolve(usage, simpleQualifiedIdentifier, scope);
+          for (Symbol symbol : symbols) {
+            symbol.addUsage(usage);
+          }
+          if (!symbols.isEmpty()) {
+            symbolsByUsage.put(usage, symbols.get(0));
+          }
+          AstNode namespace = identifier(simpleQualifiedIdentifier.getFirstChild(FlexGrammar.QUALIFIER));
+          if (namespace != null) {
+            lexical(namespace.getTokenValue(), scope, false).forEach(symbol -> symbol.addUsage(usage));
+          }
+        }
+      }
+      return new SemanticModel(fileScope, scopesByTree, symbolsByUsage);
+    }
+
+    private static List<Symbol> resolve(AstNode qualifiedIdentifier, AstNode simpleQualifiedIdentifier, Scope scope) {
+      AstNode identifier = identifier(simpleQualifiedIdentifier.getLastChild());
+      if (identifier == null) {
+        return new ArrayList<>();
+      }
+      String name = identifier.getTokenValue();
+      AstNode parent = qualifiedIdentifier.getParent();
+      if (parent.is(FlexGrammar.PROPERTY_OPERATOR) || simpleQualifiedIdentifier.getNumberOfChildren() > 1) {
+        return member(name, scope);
+      }
+      return lexical(name, scope, parent.is(FlexGrammar.TYPE_EXPR));
+    }
+
+    /**
+     * @return the identifier of a PROPERTY_IDENTIFIER or of a QUALIFIER, or null if it is a wildcard, a reserved namespace
+     * or an expression
+     */
+    @CheckForNull
+    private static AstNode identifier(@Nullable AstNode node) {
+      if (node == null) {
+        return null;
+      }
+      AstNode propertyIdentifier = node.is(FlexGrammar.PROPERTY_IDENTIFIER) ? node : node.getFirstChild(FlexGrammar.PROPERTY_IDENTIFIER);
+      return propertyIdentifier == null ? null : propertyIdentifier.getFirstChild(FlexGrammar.IDENTIFIER);
+    }
+
+    private static List<Symbol> lexical(String name, Scope scope, boolean classesOnly) {
+      for (Scope current = scope; current != null; current = current.outer()) {
+        List<Symbol> symbols = new ArrayList<>(current.symbols(name));
+        if (classesOnly) {
+          symbols.removeIf(symbol -> symbol.kind() != Symbol.Kind.CLASS);
+        }
+        if (!symbols.isEmpty()) {
+          return symbols;
+        }
+      }
+      return new ArrayList<>();
+    }
+
+    private static List<Symbol> member(String name, Scope scope) {
+      List<Symbol> members = new ArrayList<>();
+      for (Scope classScope = scope.enclosing(Scope.Kind.CLASS); classScope != null && members.isEmpty(); classScope = outerClass(classScope)) {
+        for (Symbol symbol : classScope.symbols(name)) {
+          if (symbol.kind() == Symbol.Kind.FIELD || symbol.kind() == Symbol.Kind.FUNCTION) {
+            members.add(symbol);
+          }
+        }
+      }
+      return members;
+    }
+
+    @CheckForNull
+    private static Scope outerClass(Scope classScope) {
+      Scope outer = classScope.outer();
+      return outer == null ? null : outer.enclosing(Scope.Kind.CLASS);
+    }
+  }
+
+}
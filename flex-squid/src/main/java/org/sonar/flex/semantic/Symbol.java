@@ -0,0 +1,96 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.semantic;
+
+import com.sonar.sslr.api.AstNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Name declared in a {@link Scope}, with the identifiers which declare it and the qualified identifiers which refer to it.
+ */
+public final class Symbol {
+
+  public enum Kind {
+    CLASS,
+    FIELD,
+    FUNCTION,
+    PARAMETER,
+    VARIABLE
+  }
+
+  private final String name;
+  private final Kind kind;
+  private final Scope scope;
+  private final List<AstNode> declarations = new ArrayList<>(1);
+  private final List<AstNode> usages = new ArrayList<>();
+
+  Symbol(String name, Kind kind, Scope scope) {
+    this.name = name;
+    this.kind = kind;
+    this.scope = scope;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public Kind kind() {
+    return kind;
+  }
+
+  public Scope scope() {
+    return scope;
+  }
+
+  /**
+   * @return the first identifier which declares the symbol
+   */
+  public AstNode declaration() {
+    return declarations.get(0);
+  }
+
+  /**
+   * @return the identifiers which declare the symbol, in document order: several ones when the same name is declared
+   * more than once with the same kind in a scope, like the getter and the setter of a property
+   */
+  public List<AstNode> declarations() {
+    return Collections.unmodifiableList(declarations);
+  }
+
+  /**
+   * @return the qualified identifiers which refer to the symbol, in document order
+   */
+  public List<AstNode> usages() {
+    return Collections.unmodifiableList(usages);
+  }
+
+  void addDeclaration(AstNode identifier) {
+    declarations.add(identifier);
+  }
+
+  void addUsage(AstNode qualifiedIdentifier) {
+    usages.add(qualifiedIdentifier);
+  }
+
+  @Override
+  public String toString() {
+    return kind + " " + name;
+  }
+
+}
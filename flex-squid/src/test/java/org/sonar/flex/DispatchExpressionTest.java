@@ -0,0 +1,91 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DispatchExpressionTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, ALTERNATIVE
+  }
+
+  @Test
+  public void lookaheads() {
+    DispatchExpression.Lookahead startsWith = DispatchExpression.startsWith("ab", "c");
+    assertThat(startsWith.test("xab", 1)).isTrue();
+    assertThat(startsWith.test("xc", 1)).isTrue();
+    assertThat(startsWith.test("xa", 1)).isFalse();
+    assertThat(startsWith.test("x", 1)).isFalse();
+
+    DispatchExpression.Lookahead characters = DispatchExpression.characters("ab");
+    assertThat(characters.test(" b", 1)).isTrue();
+    assertThat(characters.test(" c", 1)).isFalse();
+    assertThat(characters.test(" ", 1)).isFalse();
+  }
+
+  @Test
+  public void same_choices_as_first_of() {
+    ParserAdapter<?> parser = parser(true);
+    ParserAdapter<?> reference = parser(false);
+    String[] inputs = {"a1", "a2", " /* */ a2", "b", "c", "cd", "d", "", "a", "ab", "/* unterminated"};
+    for (String input : inputs) {
+      assertThat(parse(parser, input)).as(input).isEqualTo(parse(reference, input));
+    }
+    assertThat(parse(parser, "a2")).isEqualTo("ALTERNATIVE 0-2");
+    assertThat(parse(parser, "d")).startsWith("Parse error at line 1 column 1:");
+  }
+
+  @Test
+  public void to_string() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    Object expression = new DispatchExpression.Builder(b, true).on("a", "a").otherwise("b");
+    assertThat(expression.toString()).startsWith("Dispatch[");
+  }
+
+  private static ParserAdapter<?> parser(boolean dispatch) {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.ROOT).is(new DispatchExpression.Builder(b, dispatch)
+      .on("a", b.sequence(b.regexp(FlexTerminals.WHITESPACE.regexp()), "a1"))
+      .on("b", b.sequence("b", b.endOfInput()))
+      .always(Keys.ALTERNATIVE)
+      .on("c", "c")
+      .otherwise("cd"), b.endOfInput());
+    b.rule(Keys.ALTERNATIVE).is(b.regexp(FlexTerminals.WHITESPACE.regexp() + "(?:/\\*.*?\\*/)?" + FlexTerminals.WHITESPACE.regexp()), "a2");
+    b.setRootRule(Keys.ROOT);
+    return new ParserAdapter<>(StandardCharsets.UTF_8, b.build());
+  }
+
+  private static String parse(ParserAdapter<?> parser, String input) {
+    try {
+      StringBuilder sb = new StringBuilder();
+      parser.parse(input).getChildren().forEach(child -> sb.append(child.getName()).append(" ").append(child.getFromIndex()).append("-").append(child.getToIndex()));
+      return sb.toString();
+    } catch (RecognitionException e) {
+      return e.getMessage();
+    }
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the optimized grammar, with its {@link FlexTerminals} and {@link DispatchExpression}s, produces exactly
+ * the same trees and parse errors as the plain one, taken as the reference.
+ */
+public class FlexGrammarGoldenAstTest {
+
+  private static final String[] CORPUS_DIRECTORIES = {
+    "src/test/resources",
+    "../flex-checks/src/test/resources",
+    "../sonar-flex-plugin/src/test/resources",
+    "../its/plugin/projects"
+  };
+
+  private static final ParserAdapter<?> PARSER = new ParserAdapter<>(StandardCharsets.UTF_8, FlexGrammar.createGrammar(true));
+  private static final ParserAdapter<?> REFERENCE = new ParserAdapter<>(StandardCharsets.UTF_8, FlexGrammar.createGrammar(false));
+
+  @Test
+  public void same_trees_on_sources() throws IOException {
+    List<Path> files = sources();
+    assertThat(files.size()).isGreaterThan(100);
+    for (Path file : files) {
+      String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      assertSameResult(file.toString(), source);
+    }
+  }
+
+  /**
+   * Sources cut anywhere mostly fail to parse, which checks that the parse errors are located at the same place.
+   */
+  @Test
+  public void same_errors_on_truncated_sources() throws IOException {
+    int errors = 0;
+    for (Path file : sources()) {
+      String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      for (int i = 1; i <= 4; i++) {
+        int end = source.length() * i / 5;
+        String expected = describe(REFERENCE, source.substring(0, end));
+        assertThat(describe(PARSER, source.substring(0, end))).as(file + " cut at " + end).isEqualTo(expected);
+        if (expected.startsWith("Parse error")) {
+          errors++;
+        }
+      }
+    }
+    assertThat(errors).isGreaterThan(100);
+  }
+
+  @Test
+  public void same_errors_on_invalid_statements() {
+    String[] statements = {
+      "", ";", "[", "[Meta", "super", "super(", "{", "if", "if (a) b", "switch", "do", "do a; while", "while", "for", "for each",
+      "with", "continue 1", "break 1", "return )", "throw", "try", "try {}", "a b", "a:", "label: )",
+      "var", "var 1", "const", "function", "function f(", "class", "class A {", "interface", "interface I extends",
+      "namespace", "namespace ns =", "public", "public var", "[Meta] public", "default", "default xml namespace",
+      "include", "include 'a'", "import", "import a.", "use", "use namespace",
+      "a = null +", "a = true ?", "a = 0x", "a = 1.", "a = 'b", "a = this.", "a = /b", "a = <b>", "a = <b/", "a = public::",
+      "a = (", "a = [", "a = {", "a = function", "a = { b: }", "a = @", "a = dynamic", "a = get.", "dynamic class",
+      "/* unterminated", "// comment\n)", "/* */ if"
+    };
+    for (String statement : statements) {
+      String source = "package { class A { function f() { " + statement + " } } }";
+      assertSameResult(statement, source);
+      assertSameResult(statement, statement);
+    }
+  }
+
+  @Test
+  public void same_trees_on_binary_expressions() {
+    String[] expressions = {
+      "a", "a * b / c % d", "a + b * c - d", "a * b + c * d", "a << b >> c >>> d + e", "a < b == c > d", "a <= b >= c != d",
+      "a === b !== c", "a & b ^ c | d", "a | b ^ c & d", "a && b || c && d", "a || b && c", "a && b | c", "a | b && c | d",
+      "a && b + c | d", "a && b ^ c", "a & b && c & d || e | f", "a in b", "a instanceof B", "a is B as C", "a as B",
+      "a add b", "a and b or c", "a lt b le c gt d ge e", "a eq b ne c", "a <> b", "address + b", "a ? b : c",
+      "a + b ? c * d : e || f", "a = b + c", "a += b * c", "a |= b", "a ||= b", "a >>>= b", "a + -b", "!a && !b", "a++ + ++b",
+      "a + (b + c) * d", "f(a + b, c * d)[e | f]", "a + new B() * c", "a /* c */ + // d\n b", "a +", "a + * b", "a &&", "a < >b",
+      "a >> = b", "a |", "a ||| b", "a ^^ b", "a + b +", "(a ||"
+    };
+    for (String expression : expressions) {
+      assertSameResult(expression, "x = " + expression + ";");
+      assertSameResult(expression, "for (var x = " + expression + ";;) {}");
+      assertSameResult(expression, "for (x = " + expression + " in y) {}");
+      assertSameResult(expression, "const x = " + expression + " ? " + expression + " : " + expression + ";");
+    }
+  }
+
+  private static void assertSameResult(String description, String source) {
+    assertThat(describe(PARSER, source)).as(description).isEqualTo(describe(REFERENCE, source));
+  }
+
+  private static List<Path> sources() throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String directory : CORPUS_DIRECTORIES) {
+      Path path = Paths.get(directory);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> paths = Files.walk(path)) {
+          files.addAll(paths.filter(file -> file.toString().endsWith(".as")).sorted().collect(Collectors.toList()));
+        }
+      }
+    }
+    return files;
+  }
+
+  private static String describe(ParserAdapter<?> parser, String source) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      describe(parser.parse(source), sb);
+    } catch (RecognitionException e) {
+      sb.append(e.getMessage());
+    }
+    return sb.toString();
+  }
+
+  private static void describe(AstNode node, StringBuilder sb) {
+    sb.append(node.getName()).append(' ').append(node.getFromIndex()).append('-').append(node.getToIndex());
+    Token token = node.getToken();
+    if (token != null) {
+      sb.append(' ').append(token.getLine()).append(':').append(token.getColumn()).append(" [").append(token.getValue()).append(']');
+      for (Trivia trivia : token.getTrivia()) {
+        sb.append(" trivia ").append(trivia.getToken().getLine()).append(':').append(trivia.getToken().getColumn())
+          .append(" [").append(trivia.getToken().getValue()).append(']');
+      }
+    }
+    sb.append('\n');
+    for (AstNode child : node.getChildren()) {
+      describe(child, sb);
+    }
+  }
+
+}
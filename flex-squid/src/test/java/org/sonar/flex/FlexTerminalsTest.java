@@ -0,0 +1,91 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the {@link FlexTerminals} match exactly what their regular expressions match. That the grammar produces
+ * the same trees with both is checked by {@link FlexGrammarGoldenAstTest}.
+ */
+public class FlexTerminalsTest {
+
+  private static final Pattern SPACING = Pattern.compile(
+    FlexTerminals.WHITESPACE.regexp() + "(?:" + FlexTerminals.COMMENT.regexp() + FlexTerminals.WHITESPACE.regexp() + ")*+");
+
+  private static final String CHARACTERS = " \t\n\r\u000B\f\u0085\u2028\u2029\u00a0\u3000\ufeff\"'\\/*.0123456789eExXaAfFuU+-_$\u00e9\u0301\u0660\u203f\u2160\ud83d\ude00\ud835\udc00\ud800;";
+
+  @Test
+  public void same_matches_as_regular_expressions_on_edge_cases() {
+    String[] inputs = {
+      "", " ", "\t\u000B\f\r\n x", "\u0085\u2028\u2029\u00a0\u1680\u3000\ufeff", "\u200b",
+      "//", "// a\nb", "// a\r\nb", "/* a */ b", "/* a\n */", "/*/", "/**/", "/* unterminated", "/", "*/",
+      "\n", "\r", "\r\n", "\n\r", "x",
+      "''", "\"\"", "'a\\'b' c", "\"a\\\"b\" c", "'a\nb'", "'a\\", "'unterminated", "\"a'", "'\\\n'",
+      "0", "00", "01", "08", "0x", "0x1F", "0XaG", "09", "1", "12.", "12.5", "1.e", "1.e5", "1.e+5", "1e-", "1E+5x", ".", ".5", ".e5", "..",
+      "01.5", "0.5", "0e5", "10", "123abc",
+      "a", "$", "_", "aB9_$", "9a", "\\u0041b", "\\u004", "\\u00g1", "\\x", "a\\u0041", "\u00e9t\u00e9", "a\u0301", "\u0301", "a\u0660", "\u0660",
+      "a\u203fb", "\u2160", "\ud83d\ude00", "\ud835\udc00x", "a\ud835\udc00", "a\ud800", "\ud800"
+    };
+    for (String input : inputs) {
+      assertSameMatches(input);
+    }
+    for (String keyword : FlexKeyword.keywordValues()) {
+      assertSameMatches(keyword);
+      assertSameMatches(keyword + "_");
+      assertSameMatches(keyword + "\\u0041");
+      assertSameMatches(keyword + "();");
+      assertSameMatches(keyword.substring(1));
+      assertSameMatches("\\u0061" + keyword);
+    }
+  }
+
+  @Test
+  public void same_matches_as_regular_expressions_on_random_inputs() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder input = new StringBuilder();
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        input.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+      }
+      assertSameMatches(input.toString());
+    }
+  }
+
+  @Test
+  public void to_string() {
+    assertThat(FlexTerminals.NEWLINE).hasToString("Terminal (?:\\n|\\r\\n|\\r)");
+  }
+
+  private static void assertSameMatches(String input) {
+    for (FlexTerminals.Terminal terminal : FlexTerminals.ALL) {
+      Matcher matcher = Pattern.compile(terminal.regexp()).matcher(input);
+      int expected = matcher.lookingAt() ? matcher.end() : -1;
+      assertThat(terminal.match(input)).as(terminal + " on \"" + input + "\"").isEqualTo(expected);
+    }
+    Matcher spacing = SPACING.matcher(input);
+    assertThat(spacing.lookingAt()).isTrue();
+    assertThat(FlexTerminals.spacingLength(input)).as("spacing on \"" + input + "\"").isEqualTo(spacing.end());
+  }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class FlexVisitorDispatcherTest {
+
+  @Test
+  public void same_callbacks_as_scan_file() {
+    FlexVisitorContext context = context();
+    RecordingVisitor alone = new RecordingVisitor(true, FlexGrammar.ASSIGNMENT_EXPR, FlexGrammar.VARIABLE_DEF, FlexGrammar.ASSIGNMENT_EXPR);
+    alone.scanFile(context);
+
+    RecordingVisitor first = new RecordingVisitor(true, FlexGrammar.ASSIGNMENT_EXPR, FlexGrammar.VARIABLE_DEF, FlexGrammar.ASSIGNMENT_EXPR);
+    RecordingVisitor second = new RecordingVisitor(false, FlexGrammar.ARGUMENTS);
+    new FlexVisitorDispatcher(Arrays.asList(first, second)).scanFile(context);
+
+    assertThat(first.events).isNotEmpty().isEqualTo(alone.events);
+    assertThat(first.getContext()).isSameAs(context);
+    assertThat(second.events).containsExactly("visitFile", "visitNode ARGUMENTS", "leaveNode ARGUMENTS", "visitNode ARGUMENTS", "leaveNode ARGUMENTS", "leaveFile");
+  }
+
+  @Test
+  public void timed_scan() {
+    FlexVisitorContext context = context();
+    RecordingVisitor alone = new RecordingVisitor(true, FlexGrammar.ASSIGNMENT_EXPR);
+    alone.scanFile(context);
+
+    RecordingVisitor first = new RecordingVisitor(true, FlexGrammar.ASSIGNMENT_EXPR);
+    RecordingVisitor second = new RecordingVisitor(false);
+    FlexVisitorDispatcher dispatcher = new FlexVisitorDispatcher(Arrays.asList(first, second));
+    long[] nanos = {0, 0};
+    dispatcher.scanFile(context, nanos);
+    long firstNanos = nanos[0];
+    dispatcher.scanFile(context, nanos);
+
+    assertThat(first.events).isEqualTo(alone.events);
+    assertThat(second.events).containsExactly("visitFile", "leaveFile");
+    assertThat(firstNanos).isPositive();
+    assertThat(nanos[0]).isGreaterThan(firstNanos);
+    assertThat(nanos[1]).isPositive();
+    assertThatThrownBy(() -> dispatcher.scanFile(context, new long[1])).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void issues_are_reset_for_each_file() {
+    FlexCheck check = new FlexCheck() {
+      @Override
+      public List<AstNodeType> subscribedTo() {
+        return Collections.singletonList(FlexGrammar.ASSIGNMENT_OPERATOR);
+      }
+
+      @Override
+      public void visitNode(AstNode node) {
+        addIssue("message!", node);
+      }
+    };
+    FlexVisitorDispatcher dispatcher = new FlexVisitorDispatcher(Collections.singletonList(check));
+    dispatcher.scanFile(context());
+    dispatcher.scanFile(context());
+    assertThat(check.getIssues()).extracting("line", "message").containsExactly(tuple(2, "message!"));
+  }
+
+  @Test
+  public void skip_visitors_without_subscribed_nodes() {
+    List<String> events = new ArrayList<>();
+    FlexCheck absent = new FlexCheck() {
+      @Override
+      public List<AstNodeType> subscribedTo() {
+        return Arrays.asList(FlexGrammar.WITH_STATEMENT, FlexGrammar.SWITCH_STATEMENT);
+      }
+
+      @Override
+      public void visitNode(AstNode node) {
+        events.add("visitNode " + node.getName());
+        addIssue("message!", node);
+      }
+    };
+    FlexCheck present = new FlexCheck() {
+      @Override
+      public List<AstNodeType> subscribedTo() {
+        return Arrays.asList(FlexGrammar.WITH_STATEMENT, FlexGrammar.ASSIGNMENT_OPERATOR);
+      }
+    };
+    RecordingVisitor recording = new RecordingVisitor(false, FlexGrammar.WITH_STATEMENT);
+    FlexVisitorDispatcher dispatcher = new FlexVisitorDispatcher(Arrays.asList(absent, present, recording));
+
+    FlexVisitorContext context = context();
+    absent.addIssue("previous", context.rootTree());
+    dispatcher.scanFile(context);
+    assertThat(dispatcher.isSkipped(0)).isTrue();
+    assertThat(dispatcher.isSkipped(1)).isFalse();
+    // overrides visitFile and leaveFile
+    assertThat(dispatcher.isSkipped(2)).isFalse();
+    assertThat(recording.events).containsExactly("visitFile", "leaveFile");
+    assertThat(absent.getContext()).isSameAs(context);
+    assertThat(absent.getIssues()).isEmpty();
+    assertThat(events).isEmpty();
+
+    FlexVisitorDispatcher alone = new FlexVisitorDispatcher(Collections.singletonList(absent));
+    alone.scanFile(new FlexVisitorContext("", new RecognitionException(1, "error")));
+    assertThat(alone.isSkipped(0)).isTrue();
+  }
+
+  @Test
+  public void file_without_tree() {
+    RecordingVisitor visitor = new RecordingVisitor(true, FlexGrammar.PROGRAM);
+    new FlexVisitorDispatcher(Collections.singletonList(visitor)).scanFile(new FlexVisitorContext("", new RecognitionException(1, "error")));
+    assertThat(visitor.events).containsExactly("visitFile", "leaveFile");
+  }
+
+  @Test
+  public void same_order_as_recursive_walk() {
+    FlexVisitorContext context = context();
+    List<String> expected = new ArrayList<>();
+    expected.add("visitFile");
+    walk(context.rootTree(), Arrays.asList(FlexGrammar.ASSIGNMENT_EXPR, FlexGrammar.VARIABLE_DEF), expected);
+    expected.add("leaveFile");
+
+    RecordingVisitor visitor = new RecordingVisitor(true, FlexGrammar.ASSIGNMENT_EXPR, FlexGrammar.VARIABLE_DEF);
+    visitor.scanFile(context);
+    assertThat(visitor.events).isEqualTo(expected);
+
+    AstNode subtree = context.rootTree().getFirstDescendant(FlexGrammar.VARIABLE_DEF);
+    expected.clear();
+    walk(subtree, Collections.singletonList(FlexGrammar.VARIABLE_DEF), expected);
+    visitor = new RecordingVisitor(true, FlexGrammar.VARIABLE_DEF);
+    visitor.scanNode(subtree);
+    assertThat(visitor.events).isEqualTo(expected);
+  }
+
+  @Test
+  public void deeply_nested_tree() {
+    int depth = 10_000;
+    AstNode root = new AstNode(FlexGrammar.BLOCK, "BLOCK", null);
+    AstNode parent = root;
+    for (int i = 0; i < depth; i++) {
+      parent.addChild(new AstNode(token("{", i)));
+      AstNode child = new AstNode(FlexGrammar.BLOCK, "BLOCK", null);
+      parent.addChild(child);
+      parent.addChild(new AstNode(token("}", i)));
+      parent = child;
+    }
+    FlexVisitorContext context = new FlexVisitorContext("", root);
+
+    // the type of the tokens is not one of the grammar
+    RecordingVisitor alone = new RecordingVisitor(true, FlexGrammar.BLOCK, GenericTokenType.LITERAL);
+    alone.scanFile(context);
+    RecordingVisitor first = new RecordingVisitor(true, FlexGrammar.BLOCK, GenericTokenType.LITERAL);
+    RecordingVisitor second = new RecordingVisitor(false, FlexGrammar.BLOCK);
+    new FlexVisitorDispatcher(Arrays.asList(first, second)).scanFile(context);
+
+    assertThat(alone.events).hasSize(2 + 2 * (depth + 1) + 3 * 2 * depth);
+    assertThat(alone.events.subList(0, 5)).containsExactly("visitFile", "visitNode BLOCK", "visitNode LITERAL", "visitToken {", "leaveNode LITERAL");
+    assertThat(alone.events.subList(alone.events.size() - 5, alone.events.size()))
+      .containsExactly("visitNode LITERAL", "visitToken }", "leaveNode LITERAL", "leaveNode BLOCK", "leaveFile");
+    assertThat(first.events).isEqualTo(alone.events);
+    assertThat(second.events).hasSize(2 + 2 * (depth + 1));
+  }
+
+  private static void walk(AstNode node, List<AstNodeType> types, List<String> events) {
+    boolean subscribed = types.contains(node.getType());
+    if (subscribed) {
+      events.add("visitNode " + node.getName());
+    }
+    if (node.hasChildren()) {
+      node.getChildren().forEach(child -> walk(child, types, events));
+    } else if (node.getToken() != null) {
+      events.add("visitToken " + node.getTokenValue());
+    }
+    if (subscribed) {
+      events.add("leaveNode " + node.getName());
+    }
+  }
+
+  private static Token token(String value, int column) {
+    return Token.builder()
+      .setType(GenericTokenType.LITERAL)
+      .setValueAndOriginalValue(value)
+      .setURI(URI.create("tests://unittest"))
+      .setLine(1)
+      .setColumn(column)
+      .build();
+  }
+
+  private static FlexVisitorContext context() {
+    return TestVisitorContext.create(new File("src/test/resources/org/sonar/flex/flexcheck.as"));
+  }
+
+  private static class RecordingVisitor extends FlexVisitor {
+
+    private final boolean recordTokens;
+    private final List<AstNodeType> types;
+    private final List<String> events = new ArrayList<>();
+
+    RecordingVisitor(boolean recordTokens, AstNodeType... types) {
+      this.recordTokens = recordTokens;
+      this.types = Arrays.asList(types);
+    }
+
+    @Override
+    public List<AstNodeType> subscribedTo() {
+      return types;
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode node) {
+      events.clear();
+      events.add("visitFile");
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode node) {
+      events.add("leaveFile");
+    }
+
+    @Override
+    public void visitNode(AstNode node) {
+      events.add("visitNode " + node.getName());
+    }
+
+    @Override
+    public void leaveNode(AstNode node) {
+      events.add("leaveNode " + node.getName());
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      if (recordTokens) {
+        events.add("visitToken " + token.getValue());
+      }
+    }
+  }
+
+}
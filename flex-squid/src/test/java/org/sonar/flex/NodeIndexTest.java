@@ -0,0 +1,124 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NodeIndexTest {
+
+  private static final Parser<LexerlessGrammar> PARSER = FlexParser.create(StandardCharsets.UTF_8);
+
+  @Test
+  public void nodes_and_descendants() {
+    AstNode root = PARSER.parse("function f() { if (a) { return; } }\nfunction g() { return; }");
+    NodeIndex index = NodeIndex.create(root);
+    List<AstNode> functions = index.nodes(FlexGrammar.FUNCTION_DEF);
+    assertThat(functions).hasSize(2);
+    assertThat(index.nodes(FlexGrammar.RETURN_STATEMENT)).isEqualTo(root.getDescendants(FlexGrammar.RETURN_STATEMENT));
+    assertThat(index.descendants(functions.get(0), FlexGrammar.RETURN_STATEMENT)).extracting(AstNode::getTokenLine).containsExactly(1);
+    assertThat(index.descendants(functions.get(1), FlexGrammar.RETURN_STATEMENT)).extracting(AstNode::getTokenLine).containsExactly(2);
+    assertThat(index.descendants(functions.get(0), FlexGrammar.FUNCTION_DEF)).isEmpty();
+    assertThat(index.nodes(FlexGrammar.CLASS_DEF)).isEmpty();
+    assertThat(index.nodes(FlexKeyword.FUNCTION)).hasSize(2);
+    assertThatThrownBy(() -> index.nodes(GenericTokenType.EOF)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void without_tree() {
+    assertThat(NodeIndex.create(null).nodes(FlexGrammar.PROGRAM)).isEmpty();
+    assertThat(new FlexVisitorContext("", new RecognitionException(1, "error")).nodeIndex().nodes(FlexGrammar.PROGRAM)).isEmpty();
+  }
+
+  @Test
+  public void shared_by_context() {
+    FlexVisitorContext context = new FlexVisitorContext("", PARSER.parse("a = 1;"));
+    assertThat(context.nodeIndex()).isSameAs(context.nodeIndex());
+  }
+
+  /**
+   * Nodes which start or end at the same place as others, such as empty ones or the ones which have a single child,
+   * are the ones whose descendants cannot be found only from the ranges of the nodes.
+   */
+  @Test
+  public void same_descendants_as_walk() throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String directory : Arrays.asList("src/test/resources", "../flex-checks/src/test/resources")) {
+      try (Stream<Path> paths = Files.walk(Paths.get(directory))) {
+        files.addAll(paths.filter(path -> path.toString().endsWith(".as")).sorted().collect(Collectors.toList()));
+      }
+    }
+    int parsedFiles = 0;
+    for (Path file : files) {
+      AstNode root;
+      try {
+        root = PARSER.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      } catch (RecognitionException e) {
+        continue;
+      }
+      parsedFiles++;
+      NodeIndex index = NodeIndex.create(root);
+      List<AstNode> nodes = new ArrayList<>();
+      collect(root, nodes);
+      List<AstNodeType> types = nodes.stream().map(AstNode::getType).filter(type -> NodeTypeIds.id(type) >= 0).distinct().collect(Collectors.toList());
+      for (AstNodeType type : types) {
+        assertThat(index.nodes(type)).as(file + " " + type).isEqualTo(nodes.stream().filter(node -> node.is(type)).collect(Collectors.toList()));
+      }
+      for (AstNode node : nodes) {
+        Map<AstNodeType, List<AstNode>> descendants = new LinkedHashMap<>();
+        types.forEach(type -> descendants.put(type, new ArrayList<>()));
+        for (AstNode child : node.getChildren()) {
+          List<AstNode> subtree = new ArrayList<>();
+          collect(child, subtree);
+          subtree.stream().filter(descendant -> descendants.containsKey(descendant.getType()))
+            .forEach(descendant -> descendants.get(descendant.getType()).add(descendant));
+        }
+        descendants.forEach((type, expected) -> assertThat(index.descendants(node, type)).as(file + " " + node + " " + type).isEqualTo(expected));
+      }
+    }
+    assertThat(parsedFiles).isGreaterThan(50);
+  }
+
+  private static void collect(AstNode node, List<AstNode> nodes) {
+    nodes.add(node);
+    for (AstNode child : node.getChildren()) {
+      collect(child, nodes);
+    }
+  }
+
+}
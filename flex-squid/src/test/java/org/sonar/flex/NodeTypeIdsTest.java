@@ -0,0 +1,47 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeTypeIdsTest {
+
+  @Test
+  public void dense_ids() {
+    List<AstNodeType> types = new ArrayList<>();
+    types.addAll(Arrays.asList(FlexGrammar.values()));
+    types.addAll(Arrays.asList(FlexKeyword.values()));
+    types.addAll(Arrays.asList(FlexPunctuator.values()));
+    assertThat(types.stream().map(NodeTypeIds::id).sorted().collect(Collectors.toList()))
+      .isEqualTo(IntStream.range(0, NodeTypeIds.COUNT).boxed().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void other_types() {
+    assertThat(NodeTypeIds.id(GenericTokenType.IDENTIFIER)).isEqualTo(-1);
+  }
+
+}
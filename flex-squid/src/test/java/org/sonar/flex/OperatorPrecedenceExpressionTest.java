@@ -0,0 +1,82 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import com.sonar.sslr.api.AstNode;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OperatorPrecedenceExpressionTest {
+
+  private enum Keys implements GrammarRuleKey {
+    OPERAND, PRODUCT, SUM, TIMES, PLUS
+  }
+
+  @Test
+  public void builds_nodes_of_levels_with_several_operands() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.OPERAND).is(b.regexp("[a-z]"));
+    b.rule(Keys.TIMES).is("*");
+    b.rule(Keys.PLUS).is("+");
+    b.rule(Keys.PRODUCT).is(Keys.OPERAND, b.zeroOrMore(Keys.TIMES, Keys.OPERAND)).skipIfOneChild();
+    OperatorPrecedenceExpression expression = new OperatorPrecedenceExpression.Builder(b, Keys.OPERAND)
+      .level(Keys.PRODUCT, DispatchExpression.startsWith("*"), Keys.TIMES)
+      .level(Keys.SUM, DispatchExpression.startsWith("+"), Keys.PLUS)
+      .build();
+    b.rule(Keys.SUM).is(expression).skipIfOneChild();
+    b.setRootRule(Keys.SUM);
+    LexerlessGrammar grammar = b.build();
+    expression.link(grammar);
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<>(StandardCharsets.UTF_8, grammar);
+
+    assertThat(describe(parser.parse("a"))).isEqualTo("SUM(OPERAND)");
+    assertThat(describe(parser.parse("a*b"))).isEqualTo("SUM(PRODUCT(OPERAND TIMES OPERAND))");
+    assertThat(describe(parser.parse("a+b*c*d+e"))).isEqualTo("SUM(OPERAND PLUS PRODUCT(OPERAND TIMES OPERAND TIMES OPERAND) PLUS OPERAND)");
+    assertThat(describe(parser.parse("a*b+c"))).isEqualTo("SUM(PRODUCT(OPERAND TIMES OPERAND) PLUS OPERAND)");
+    assertThat(expression).hasToString("OperatorPrecedence[PRODUCT, SUM]");
+  }
+
+  @Test
+  public void right_operand_must_be_a_previous_level() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    OperatorPrecedenceExpression.Builder builder = new OperatorPrecedenceExpression.Builder(b, Keys.OPERAND)
+      .level(Keys.PRODUCT, DispatchExpression.startsWith("*"), Keys.TIMES);
+    assertThatThrownBy(() -> builder.rightOperand(Keys.PRODUCT))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Not a previous level: PRODUCT");
+  }
+
+  private static String describe(AstNode node) {
+    StringBuilder sb = new StringBuilder(node.getName());
+    if (node.hasChildren() && node.getType() != Keys.OPERAND && node.getType() != Keys.TIMES && node.getType() != Keys.PLUS) {
+      sb.append('(');
+      for (AstNode child : node.getChildren()) {
+        sb.append(child == node.getFirstChild() ? "" : " ").append(describe(child));
+      }
+      sb.append(')');
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParseDeadlineTest {
+
+  private long now = 0;
+  private final ParseDeadline deadline = new ParseDeadline(() -> now);
+
+  @Test
+  public void clock_is_read_periodically() {
+    deadline.start(10);
+    now = TimeUnit.MILLISECONDS.toNanos(11);
+    for (int i = 1; i < ParseDeadline.CHECK_INTERVAL; i++) {
+      deadline.check(i);
+    }
+    assertThatThrownBy(() -> deadline.check(42))
+      .isInstanceOfSatisfying(ParseDeadline.ExceededException.class, e -> assertThat(e.index()).isEqualTo(42));
+  }
+
+  @Test
+  public void not_exceeded() {
+    deadline.start(10);
+    now = TimeUnit.MILLISECONDS.toNanos(10);
+    checkTwoIntervals();
+  }
+
+  @Test
+  public void stopped_or_without_limit() {
+    deadline.start(10);
+    deadline.stop();
+    now = TimeUnit.MILLISECONDS.toNanos(11);
+    checkTwoIntervals();
+
+    deadline.start(0);
+    now = Long.MAX_VALUE;
+    checkTwoIntervals();
+
+    assertThatThrownBy(() -> deadline.start(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void checkTwoIntervals() {
+    for (int i = 0; i < 2 * ParseDeadline.CHECK_INTERVAL; i++) {
+      deadline.check(i);
+    }
+  }
+
+}
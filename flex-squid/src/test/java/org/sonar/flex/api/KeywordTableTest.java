@@ -0,0 +1,69 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeywordTableTest {
+
+  private final KeywordTable<FlexKeyword> table = KeywordTable.of(Arrays.asList(FlexKeyword.values()), FlexKeyword::getValue);
+
+  @Test
+  public void keywords() {
+    for (FlexKeyword keyword : FlexKeyword.values()) {
+      String value = keyword.getValue();
+      assertThat(table.get(value, 0, value.length())).isSameAs(keyword);
+      assertThat(table.get("(" + value + ")", 1, value.length() + 1)).isSameAs(keyword);
+      assertThat(table.get(value + "s", 0, value.length() + 1)).isNull();
+      assertThat(table.get(value, 1, value.length())).isNull();
+      assertThat(table.get(value.toUpperCase(Locale.ENGLISH), 0, value.length())).isNull();
+    }
+  }
+
+  @Test
+  public void other_words() {
+    assertThat(table.get("", 0, 0)).isNull();
+    assertThat(table.get("as", 0, 2)).isNull();
+    assertThat(table.get("each", 0, 4)).isNull();
+    assertThat(table.get("instanceofs", 0, 11)).isNull();
+    assertThat(table.get("f\u00f6r", 0, 3)).isNull();
+    assertThat(table.get("a_very_long_identifier", 0, 22)).isNull();
+  }
+
+  @Test
+  public void empty_table() {
+    KeywordTable<String> empty = KeywordTable.of(Collections.<String>emptyList(), String::valueOf);
+    assertThat(empty.get("if", 0, 2)).isNull();
+  }
+
+  @Test
+  public void invalid_keywords() {
+    assertThatThrownBy(() -> KeywordTable.of(Arrays.asList("if", "if"), String::valueOf))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplicate keyword: if");
+    assertThatThrownBy(() -> KeywordTable.of(Collections.singletonList(""), String::valueOf))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Empty keyword: ");
+  }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ControlFlowGraphTest {
+
+  private static final Parser<LexerlessGrammar> PARSER = FlexParser.create(StandardCharsets.UTF_8);
+
+  @Test
+  public void sequence() {
+    ControlFlowGraph cfg = cfg("a(); var b = 1; function g() { return; }");
+    assertThat(render(cfg)).isEqualTo("" +
+      "B0 [a();, varb=1;, functiong(){return;}] -> [B1]\n" +
+      "B1 [] -> []\n");
+    assertThat(cfg.start()).isSameAs(cfg.blocks().get(0));
+    assertThat(cfg.end()).isSameAs(cfg.blocks().get(1));
+    assertThat(cfg.end().predecessors()).containsExactly(cfg.start());
+    assertThat(cfg.start().predecessors()).isEmpty();
+  }
+
+  @Test
+  public void empty_function() {
+    assertThat(render(cfg(""))).isEqualTo("B0 [] -> []\n");
+    AstNode function = PARSER.parse("interface I { function f(); }").getFirstDescendant(FlexGrammar.FUNCTION_DEF);
+    assertThat(render(ControlFlowGraph.build(function))).isEqualTo("B0 [] -> []\n");
+  }
+
+  @Test
+  public void if_statement() {
+    assertThat(render(cfg("if (c) { a(); } else { b(); } if (d) e(); f();"))).isEqualTo("" +
+      "B0 [c] if -> [B1, B2]\n" +
+      "B1 [a();] -> [B3]\n" +
+      "B2 [b();] -> [B3]\n" +
+      "B3 [d] if -> [B4, B5]\n" +
+      "B4 [e();] -> [B5]\n" +
+      "B5 [f();] -> [B6]\n" +
+      "B6 [] -> []\n");
+  }
+
+  @Test
+  public void loops() {
+    assertThat(render(cfg("while (c) { if (x) break; if (y) continue; a(); } do { b(); } while (d);"))).isEqualTo("" +
+      "B0 [c] while -> [B1, B6]\n" +
+      "B1 [x] if -> [B2, B3]\n" +
+      "B2 [] break -> [B6]\n" +
+      "B3 [y] if -> [B4, B5]\n" +
+      "B4 [] continue -> [B0]\n" +
+      "B5 [a();] -> [B0]\n" +
+      "B6 [b();] -> [B7]\n" +
+      "B7 [d] do -> [B6, B8]\n" +
+      "B8 [] -> []\n");
+    assertThat(render(cfg("for (var i = 0; i < n; i++) { if (x) continue; a(); } for (k in o) b();"))).isEqualTo("" +
+      "B0 [vari=0] -> [B5]\n" +
+      "B1 [x] if -> [B2, B3]\n" +
+      "B2 [] continue -> [B4]\n" +
+      "B3 [a();] -> [B4]\n" +
+      "B4 [i++] -> [B5]\n" +
+      "B5 [i<n] for -> [B1, B6]\n" +
+      "B6 [o] -> [B8]\n" +
+      "B7 [b();] -> [B8]\n" +
+      "B8 [k] for -> [B7, B9]\n" +
+      "B9 [] -> []\n");
+  }
+
+  @Test
+  public void infinite_loop() {
+    ControlFlowGraph cfg = cfg("for (;;) { a(); } b();");
+    assertThat(render(cfg)).isEqualTo("" +
+      "B0 [] for -> [B1]\n" +
+      "B1 [a();] -> [B0]\n" +
+      "B2 unreachable [b();] -> [B3]\n" +
+      "B3 unreachable [] -> []\n");
+  }
+
+  @Test
+  public void switch_statement() {
+    assertThat(render(cfg("switch (x) { case 1: case 2: a(); case 3: b(); break; default: c(); } switch (y) { case 1: d(); }"))).isEqualTo("" +
+      "B0 [x, 1, 2, 3] switch -> [B1, B2, B3]\n" +
+      "B1 [a();] -> [B2]\n" +
+      "B2 [b();] break -> [B4]\n" +
+      "B3 [c();] -> [B4]\n" +
+      "B4 [y, 1] switch -> [B5, B6]\n" +
+      "B5 [d();] -> [B6]\n" +
+      "B6 [] -> []\n");
+  }
+
+  @Test
+  public void labels() {
+    assertThat(render(cfg("outer: while (c) { for (;;) { if (x) continue outer; break outer; } } l: { if (d) break l; a(); } b();"))).isEqualTo("" +
+      "B0 [c] while -> [B4, B5]\n" +
+      "B1 [x] if -> [B2, B3]\n" +
+      "B2 [] continue -> [B0]\n" +
+      "B3 [] break -> [B5]\n" +
+      "B4 [] for -> [B1]\n" +
+      "B5 [d] if -> [B6, B7]\n" +
+      "B6 [] break -> [B8]\n" +
+      "B7 [a();] -> [B8]\n" +
+      "B8 [b();] -> [B9]\n" +
+      "B9 [] -> []\n");
+  }
+
+  @Test
+  public void stacked_labels() {
+    assertThat(render(cfg("a: b: while (c) { if (x) continue a; if (y) break a; continue b; } l: m: { if (d) break l; f(); } g();"))).isEqualTo("" +
+      "B0 [c] while -> [B1, B6]\n" +
+      "B1 [x] if -> [B2, B3]\n" +
+      "B2 [] continue -> [B0]\n" +
+      "B3 [y] if -> [B4, B5]\n" +
+      "B4 [] break -> [B6]\n" +
+      "B5 [] continue -> [B0]\n" +
+      "B6 [d] if -> [B7, B8]\n" +
+      "B7 [] break -> [B9]\n" +
+      "B8 [f();] -> [B9]\n" +
+      "B9 [g();] -> [B10]\n" +
+      "B10 [] -> []\n");
+  }
+
+  @Test
+  public void try_statement() {
+    assertThat(render(cfg("a(); try { b(); if (c) return; } catch (e:Error) { d(); } catch (e:*) { } finally { f(); } g();"))).isEqualTo("" +
+      "B0 [a();] -> [B1]\n" +
+      "B1 [b();, c] if -> [B2, B5, B3, B4]\n" +
+      "B2 [] return -> [B5]\n" +
+      "B3 [e:Error, d();] -> [B5]\n" +
+      "B4 [e:*] -> [B5]\n" +
+      "B5 [f();] -> [B6, B7]\n" +
+      "B6 [g();] -> [B7]\n" +
+      "B7 [] -> []\n");
+    // an exception which is not caught leaves the function
+    assertThat(render(cfg("try { a(); } catch (e:Error) { } b();"))).isEqualTo("" +
+      "B0 [a();] -> [B2, B1, B3]\n" +
+      "B1 [e:Error] -> [B2]\n" +
+      "B2 [b();] -> [B3]\n" +
+      "B3 [] -> []\n");
+  }
+
+  @Test
+  public void jumps_through_finally() {
+    assertThat(render(cfg("while (c) { try { try { break; } finally { a(); } } finally { b(); } } return;"))).isEqualTo("" +
+      "B0 [c] while -> [B1, B4]\n" +
+      "B1 [] break -> [B2]\n" +
+      "B2 [a();] -> [B3]\n" +
+      "B3 [b();] -> [B0, B5, B4]\n" +
+      "B4 [] return -> [B5]\n" +
+      "B5 [] -> []\n");
+  }
+
+  @Test
+  public void throw_statement() {
+    assertThat(render(cfg("try { throw new Error(); } catch (e:Error) { throw e; } a();"))).isEqualTo("" +
+      "B0 [newError()] throw -> [B1, B3]\n" +
+      "B1 [e:Error, e] throw -> [B3]\n" +
+      "B2 unreachable [a();] -> [B3]\n" +
+      "B3 [] -> []\n");
+  }
+
+  @Test
+  public void other_statements() {
+    assertThat(render(cfg("with (o) { a(); } CONFIG::debug { b(); } return 1; c();"))).isEqualTo("" +
+      "B0 [o, a();] CONFIG -> [B1, B2]\n" +
+      "B1 [b();] -> [B2]\n" +
+      "B2 [1] return -> [B4]\n" +
+      "B3 unreachable [c();] -> [B4]\n" +
+      "B4 [] -> []\n");
+  }
+
+  @Test
+  public void function_expression() {
+    AstNode root = PARSER.parse("var f = function named(a) { if (a) return; b(); };");
+    assertThat(render(ControlFlowGraph.build(root.getFirstDescendant(FlexGrammar.FUNCTION_EXPR)))).isEqualTo("" +
+      "B0 [a] if -> [B1, B2]\n" +
+      "B1 [] return -> [B3]\n" +
+      "B2 [b();] -> [B3]\n" +
+      "B3 [] -> []\n");
+    assertThatThrownBy(() -> ControlFlowGraph.build(root))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Not a function: PROGRAM");
+  }
+
+  @Test
+  public void shared_by_context() {
+    AstNode root = PARSER.parse("function f() {} function g() {}");
+    FlexVisitorContext context = new FlexVisitorContext("", root);
+    AstNode f = root.getFirstDescendant(FlexGrammar.FUNCTION_DEF);
+    ControlFlowGraph cfg = context.controlFlowGraph(f);
+    assertThat(context.controlFlowGraph(f)).isSameAs(cfg);
+    assertThat(context.controlFlowGraph(root.getDescendants(FlexGrammar.FUNCTION_DEF).get(1))).isNotSameAs(cfg);
+  }
+
+  private static ControlFlowGraph cfg(String body) {
+    return ControlFlowGraph.build(PARSER.parse("function f() {" + body + "}").getFirstDescendant(FlexGrammar.FUNCTION_DEF));
+  }
+
+  private static String render(ControlFlowGraph cfg) {
+    StringBuilder sb = new StringBuilder();
+    for (CfgBlock block : cfg.blocks()) {
+      assertThat(block.id()).isEqualTo(cfg.blocks().indexOf(block));
+      sb.append(block)
+        .append(cfg.isReachable(block) ? "" : " unreachable")
+        .append(" ").append(block.elements().stream().map(ControlFlowGraphTest::source).collect(Collectors.toList()))
+        .append(block.terminator() == null ? "" : (" " + block.terminator().getTokenValue()))
+        .append(" -> ").append(block.successors())
+        .append("\n");
+    }
+    return sb.toString();
+  }
+
+  private static String source(AstNode node) {
+    return node.getTokens().stream().map(Token::getValue).collect(Collectors.joining());
+  }
+
+}
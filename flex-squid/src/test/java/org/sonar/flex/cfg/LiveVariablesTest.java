@@ -0,0 +1,187 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.flex.semantic.SemanticModel;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LiveVariablesTest {
+
+  private static final Parser<LexerlessGrammar> PARSER = FlexParser.create(StandardCharsets.UTF_8);
+
+  @Test
+  public void accesses() {
+    Analysis analysis = analyze("function f(p) {\n" +
+      "  var a = p, b, c:int = a + 1;\n" +
+      "  b = a;\n" +
+      "  b += c;\n" +
+      "  c++; --c;\n" +
+      "  p.x = b; p[a] = 1; other = c;\n" +
+      "  for (var k in p) {}\n" +
+      "  for (b in p) {}\n" +
+      "  try {} catch (e:Error) { trace(e); }\n" +
+      "}");
+    LocalVariables variables = analysis.variables;
+    assertThat(variables.size()).isEqualTo(6);
+    assertThat(variables.symbol(0).name()).isEqualTo("p");
+    assertThat(variables.slot(variables.symbol(5))).isEqualTo(5);
+    String accesses = analysis.cfg.blocks().stream()
+      .flatMap(block -> variables.accesses(block).stream())
+      .map(access -> access.kind().name().charAt(0) + access.symbol().name())
+      .collect(Collectors.joining(" "));
+    assertThat(accesses).isEqualTo("Rp Wa Ra Wc Ra Wb Rb Rc Wb Rc Wc Rc Wc Rp Rb Rp Ra Rc Rp Wk Rp Wb We Re");
+    assertThat(variables.definitions()).extracting(access -> access.node().getTokenLine()).containsExactly(2, 2, 3, 4, 5, 5, 7, 8, 9);
+  }
+
+  @Test
+  public void variables_of_nested_functions_are_not_tracked() {
+    Analysis analysis = analyze("function f(p) {\n" +
+      "  var a = 1, b = 2;\n" +
+      "  var g = function() { return a; };\n" +
+      "  function h() { var local = b; }\n" +
+      "}");
+    assertThat(analysis.variables.size()).isEqualTo(2);
+    assertThat(analysis.variables.symbol(0).name()).isEqualTo("p");
+    assertThat(analysis.variables.symbol(1).name()).isEqualTo("g");
+    assertThat(analysis.variables.slot(analysis.model.scope(analysis.function).symbols("a").get(0))).isEqualTo(-1);
+
+    AstNode root = PARSER.parse("function f() {}");
+    SemanticModel model = SemanticModel.create(PARSER.parse("function g() {}"));
+    AstNode f = root.getFirstDescendant(FlexGrammar.FUNCTION_DEF);
+    assertThatThrownBy(() -> LocalVariables.create(model, f, ControlFlowGraph.build(f)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("No scope for FUNCTION_DEF at line 1");
+  }
+
+  @Test
+  public void live_variables() {
+    Analysis analysis = analyze("function f(p) {\n" +
+      "  var a = 1, b;\n" +
+      "  if (p) {\n" +
+      "    b = a;\n" +
+      "  } else {\n" +
+      "    a = 2;\n" +
+      "  }\n" +
+      "  return b;\n" +
+      "}");
+    List<CfgBlock> blocks = analysis.cfg.blocks();
+    // p a b
+    assertThat(analysis.live.liveIn(blocks.get(0))).hasToString("{0, 2}");
+    assertThat(analysis.live.liveOut(blocks.get(0))).hasToString("{1, 2}");
+    assertThat(analysis.live.liveIn(blocks.get(1))).hasToString("{1}");
+    assertThat(analysis.live.liveIn(blocks.get(2))).hasToString("{2}");
+    assertThat(analysis.live.liveIn(analysis.cfg.end())).hasToString("{}");
+    assertThat(analysis.live.deadStores()).extracting(VariableAccess::toString).containsExactly("WRITE a at line 6");
+  }
+
+  @Test
+  public void loops() {
+    Analysis analysis = analyze("function f(n) {\n" +
+      "  var sum = 0;\n" +
+      "  var last = 0;\n" +
+      "  for (var i = 0; i < n; i++) {\n" +
+      "    sum += i;\n" +
+      "    last = i;\n" +
+      "  }\n" +
+      "  return sum;\n" +
+      "}");
+    assertThat(analysis.live.deadStores()).extracting(VariableAccess::toString).containsExactly("WRITE last at line 3", "WRITE last at line 6");
+  }
+
+  @Test
+  public void exceptions() {
+    Analysis analysis = analyze("function f() {\n" +
+      "  var a = 0;\n" +
+      "  var b = 0;\n" +
+      "  try {\n" +
+      "    a = 1;\n" +
+      "    b = 1;\n" +
+      "    call();\n" +
+      "    a = 2;\n" +
+      "    b = 2;\n" +
+      "  } catch (e:Error) {\n" +
+      "    return a;\n" +
+      "  }\n" +
+      "  return 0;\n" +
+      "}");
+    assertThat(analysis.live.deadStores()).extracting(VariableAccess::toString)
+      .containsExactly("WRITE b at line 3", "WRITE b at line 6", "WRITE b at line 9", "WRITE e at line 10");
+  }
+
+  @Test
+  public void conditional_writes() {
+    Analysis analysis = analyze("function f(c) {\n" +
+      "  var x = 0, y = 0, z = 0;\n" +
+      "  if (c || (x = g())) {}\n" +
+      "  c ? (y = g()) : 0;\n" +
+      "  var ok = c && (z = g()) != null;\n" +
+      "  ok = c && (x = 1);\n" +
+      "  return x + y + z;\n" +
+      "}");
+    assertThat(analysis.cfg.blocks().stream().flatMap(block -> analysis.variables.accesses(block).stream()))
+      .filteredOn(VariableAccess::isConditional)
+      .extracting(VariableAccess::toString)
+      .containsExactlyInAnyOrder("WRITE x at line 3", "WRITE y at line 4", "WRITE z at line 5", "WRITE x at line 6");
+    assertThat(analysis.live.deadStores()).extracting(VariableAccess::toString).containsExactly("WRITE ok at line 5", "WRITE ok at line 6");
+  }
+
+  @Test
+  public void large_function() {
+    StringBuilder code = new StringBuilder("function f(p) {\n");
+    int variableCount = 2000;
+    for (int i = 0; i < variableCount; i++) {
+      code.append("  var v").append(i).append(" = ").append(i == 0 ? "p" : ("v" + (i - 1))).append(";\n");
+      code.append("  if (v").append(i).append(") { v").append(i).append(" = p; }\n");
+    }
+    code.append("  return v").append(variableCount - 1).append(";\n}");
+    Analysis analysis = analyze(code.toString());
+    assertThat(analysis.variables.size()).isEqualTo(variableCount + 1);
+    assertThat(analysis.live.deadStores()).isEmpty();
+  }
+
+  static Analysis analyze(String code) {
+    return new Analysis(PARSER.parse(code));
+  }
+
+  static class Analysis {
+    final SemanticModel model;
+    final AstNode function;
+    final ControlFlowGraph cfg;
+    final LocalVariables variables;
+    final LiveVariables live;
+
+    Analysis(AstNode root) {
+      model = SemanticModel.create(root);
+      function = root.getFirstDescendant(FlexGrammar.FUNCTION_DEF);
+      cfg = ControlFlowGraph.build(function);
+      variables = LocalVariables.create(model, function, cfg);
+      live = LiveVariables.analyze(cfg, variables);
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.cfg;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReachingDefinitionsTest {
+
+  @Test
+  public void branches() {
+    assertThat(reachingDefinitions("function f(p) {\n" +
+      "  var a = 1;\n" +
+      "  if (p) {\n" +
+      "    a = 2;\n" +
+      "  }\n" +
+      "  a = a + 1;\n" +
+      "  return a;\n" +
+      "}")).containsExactly(
+        "p at line 3: []",
+        "a at line 6: [2, 4]",
+        "a at line 7: [6]");
+  }
+
+  @Test
+  public void conditional_writes() {
+    assertThat(reachingDefinitions("function f(c) {\n" +
+      "  var a = 1;\n" +
+      "  c && (a = 2);\n" +
+      "  return a;\n" +
+      "}")).containsExactly(
+        "c at line 3: []",
+        "a at line 4: [2, 3]");
+  }
+
+  @Test
+  public void loops() {
+    assertThat(reachingDefinitions("function f(n) {\n" +
+      "  var i = 0;\n" +
+      "  while (i < n) {\n" +
+      "    i++;\n" +
+      "  }\n" +
+      "  for (var k in n) {\n" +
+      "    trace(k);\n" +
+      "  }\n" +
+      "}")).containsExactly(
+        "i at line 3: [2, 4]",
+        "n at line 3: []",
+        "i at line 4: [2, 4]",
+        "n at line 6: []",
+        "k at line 7: [6]");
+  }
+
+  @Test
+  public void exceptions() {
+    assertThat(reachingDefinitions("function f() {\n" +
+      "  var a = 0;\n" +
+      "  try {\n" +
+      "    a = 1;\n" +
+      "    call();\n" +
+      "    a = 2;\n" +
+      "  } catch (e:Error) {\n" +
+      "    trace(e);\n" +
+      "    return a;\n" +
+      "  } finally {\n" +
+      "    trace(a);\n" +
+      "  }\n" +
+      "}")).containsExactly(
+        "e at line 8: [7]",
+        "a at line 9: [2, 4, 6]",
+        "a at line 11: [2, 4, 6]");
+  }
+
+  private static List<String> reachingDefinitions(String code) {
+    LiveVariablesTest.Analysis analysis = LiveVariablesTest.analyze(code);
+    ReachingDefinitions reachingDefinitions = ReachingDefinitions.analyze(analysis.cfg, analysis.variables);
+    return analysis.cfg.blocks().stream()
+      .flatMap(block -> analysis.variables.accesses(block).stream())
+      .filter(access -> !access.isWrite())
+      .sorted(Comparator.comparingInt(read -> read.node().getTokenLine()))
+      .map(read -> read.symbol().name() + " at line " + read.node().getTokenLine() + ": " + reachingDefinitions.reachingDefinitions(read).stream()
+        .map(definition -> definition.node().getTokenLine())
+        .collect(Collectors.toList()))
+      .collect(Collectors.toList());
+  }
+
+}
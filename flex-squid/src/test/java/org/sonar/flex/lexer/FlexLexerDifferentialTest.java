@@ -0,0 +1,117 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.lexer;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link FlexLexer} produces exactly the same tokens and trivia as the regular expression channels it replaced,
+ * on all the ActionScript sources of the repository and on random sequences of the characters which matter to the lexer.
+ */
+public class FlexLexerDifferentialTest {
+
+  private static final String[] CORPUS_DIRECTORIES = {
+    "src/test/resources",
+    "../flex-checks/src/test/resources",
+    "../sonar-flex-plugin/src/test/resources",
+    "../its/plugin/projects"
+  };
+
+  private static final String CHARACTERS = " \t\n\r\u000B\f\u0085\u2028\u00a0\ufeff\"'\\/*.0123456789eExXaAfF+-_$\u00e9\u0301\ud83d\ude00\u0000;=<>!&|^%?:,()[]{}@~#";
+
+  private final Lexer lexer = FlexLexer.create(StandardCharsets.UTF_8);
+  private final Lexer reference = RegexpFlexLexer.create(StandardCharsets.UTF_8);
+
+  @Test
+  public void same_tokens_on_sources() throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String directory : CORPUS_DIRECTORIES) {
+      Path path = Paths.get(directory);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> paths = Files.walk(path)) {
+          files.addAll(paths.filter(file -> file.toString().endsWith(".as")).sorted().collect(Collectors.toList()));
+        }
+      }
+    }
+    assertThat(files.size()).isGreaterThan(100);
+
+    for (Path file : files) {
+      assertSameTokens(file.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void same_tokens_on_edge_cases() {
+    String[] sources = {
+      "", "\ufeff", "a\ufeffb", "\ufeff\ufeffvar", "'unterminated", "\"unterminated\\", "'a\\'b' \"c\\\"d\"", "'multi\nline'",
+      "/* unterminated", "/*/ a", "/**/", "// comment\r\nx", "a // b\rc", "x = /re\\/g/gi;", "x / y / z", "(/a/)", "/a\\\n/", "/a\rb/", "return /a/",
+      "0x", "0xFG", "1.", "1..2", "1.e5", "1e", "1e+", "1e+_", "1E-5_0", ".5e3", "...", "1.5.toString()", "a>>>=b", "a!==b&&=c||=d", "x::y", "@attr",
+      "if (true) { var \u00e9 = '\u00e9'; }", "\ud83d\ude00", "a\u0000b", "#", "\u00a0", "a\u2028b"
+    };
+    for (String source : sources) {
+      assertSameTokens(source, source);
+    }
+  }
+
+  @Test
+  public void same_tokens_on_random_sources() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder source = new StringBuilder();
+      int length = random.nextInt(24);
+      for (int j = 0; j < length; j++) {
+        source.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+      }
+      assertSameTokens(source.toString(), source.toString());
+    }
+  }
+
+  private void assertSameTokens(String description, String source) {
+    assertThat(describe(lexer.lex(source))).as(description).isEqualTo(describe(reference.lex(source)));
+  }
+
+  private static List<String> describe(List<Token> tokens) {
+    List<String> descriptions = new ArrayList<>();
+    for (Token token : tokens) {
+      for (Trivia trivia : token.getTrivia()) {
+        descriptions.add((trivia.isComment() ? "comment " : "trivia ") + describe(trivia.getToken()));
+      }
+      descriptions.add(describe(token));
+    }
+    return descriptions;
+  }
+
+  private static String describe(Token token) {
+    return token.getType() + " " + token.getLine() + ":" + token.getColumn() + " [" + token.getValue() + "] [" + token.getOriginalValue() + "] " + token.getURI();
+  }
+
+}
@@ -16,10 +16,12 @@
  */
 package org.sonar.flex.metrics;
 
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.impl.Parser;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
 import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.NodeIndex;
 import org.sonar.flex.parser.FlexParser;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
@@ -69,14 +71,22 @@ public class ComplexityVisitorTest {
     assertThat(complexity("function f() { function nested() { x = a && b; } }")).isEqualTo(3);
     assertThat(functionComplexity("function f() { function nested() { x = a && b; } }")).isEqualTo(1);
     assertThat(functionComplexity("function f() { x = a && b; }")).isEqualTo(2);
+    assertThat(functionComplexity("function f() { if (a) {} var g = function() { function h() { x = a && b; } }; if (b) {} }")).isEqualTo(3);
   }
 
   private int complexity(String source) {
-    return ComplexityVisitor.complexity(parser.parse(source));
+    AstNode root = parser.parse(source);
+    int complexity = ComplexityVisitor.complexity(root);
+    assertThat(ComplexityVisitor.complexity(NodeIndex.create(root), root)).isEqualTo(complexity);
+    return complexity;
   }
 
   private int functionComplexity(String source) {
-    return ComplexityVisitor.functionComplexity(parser.parse(source).getFirstDescendant(FlexGrammar.FUNCTION_DEF));
+    AstNode root = parser.parse(source);
+    AstNode functionDef = root.getFirstDescendant(FlexGrammar.FUNCTION_DEF);
+    int complexity = ComplexityVisitor.functionComplexity(functionDef);
+    assertThat(ComplexityVisitor.functionComplexity(NodeIndex.create(root), functionDef)).isEqualTo(complexity);
+    return complexity;
   }
 
 }
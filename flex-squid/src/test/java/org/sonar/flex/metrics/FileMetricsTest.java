@@ -16,8 +16,19 @@
  */
 package org.sonar.flex.metrics;
 
+import com.sonar.sslr.api.AstNode;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexVisitorContext;
 import org.sonar.flex.TestVisitorContext;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -26,13 +37,13 @@ public class FileMetricsTest {
 
   @Test
   public void comments() {
-    assertThat(metrics("comments.as").commentLines()).containsOnly(2, 6, 10);
-    assertThat(metrics("comments.as").nosonarLines()).containsOnly(13);
+    assertThat(metrics("comments.as").commentLines().stream().toArray()).containsOnly(2, 6, 10);
+    assertThat(metrics("comments.as").nosonarLines().stream().toArray()).containsOnly(13);
   }
 
   @Test
   public void lines_of_code() {
-    assertThat(metrics("lines_of_code.as").linesOfCode()).containsOnly(8, 12, 14, 15);
+    assertThat(metrics("lines_of_code.as").linesOfCode().stream().toArray()).containsOnly(8, 12, 14, 15);
   }
 
   @Test
@@ -55,6 +66,65 @@ public class FileMetricsTest {
     assertThat(metrics("classes.as").numberOfClasses()).isEqualTo(2);
   }
 
+  @Test
+  public void complexity() {
+    assertThat(metrics("complexity.as").complexity()).isEqualTo(ComplexityVisitor.complexity(context("complexity.as").rootTree()));
+    assertThat(metrics("functions.as").complexity()).isEqualTo(3);
+  }
+
+  /**
+   * Compares the single walk of {@link FileMetrics} with the separate walks it replaced.
+   */
+  @Test
+  public void same_metrics_as_separate_walks() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(new File("src/test/resources").toPath())) {
+      files = paths.filter(path -> path.toString().endsWith(".as") && !path.endsWith("parse_error.as")).collect(Collectors.toList());
+    }
+    assertThat(files).hasSize(8);
+
+    for (Path file : files) {
+      FlexVisitorContext context = TestVisitorContext.create(file.toFile());
+      AstNode root = context.rootTree();
+      FileMetrics metrics = new FileMetrics(context);
+      FileLinesVisitor linesVisitor = new FileLinesVisitor();
+      linesVisitor.scanFile(context);
+
+      assertThat(metrics.linesOfCode()).as(file.toString()).isEqualTo(linesVisitor.linesOfCode());
+      assertThat(metrics.commentLines()).as(file.toString()).isEqualTo(linesVisitor.linesOfComments());
+      assertThat(metrics.nosonarLines()).as(file.toString()).isEqualTo(linesVisitor.noSonarLines());
+      assertThat(metrics.complexity()).as(file.toString()).isEqualTo(ComplexityVisitor.complexity(root));
+      assertThat(metrics.numberOfClasses()).as(file.toString()).isEqualTo(root.getDescendants(FlexGrammar.CLASS_DEF, FlexGrammar.INTERFACE_DEF).size());
+      assertThat(metrics.numberOfFunctions()).as(file.toString()).isEqualTo(root.getDescendants(FlexGrammar.FUNCTION_DEF, FlexGrammar.FUNCTION_EXPR).size());
+
+      List<AstNode> statements = root.getDescendants(
+        FlexGrammar.DEFAULT_XML_NAMESPACE_DIRECTIVE,
+        FlexGrammar.VARIABLE_DECLARATION_STATEMENT,
+        FlexGrammar.EXPRESSION_STATEMENT,
+        FlexGrammar.IF_STATEMENT,
+        FlexGrammar.FOR_STATEMENT,
+        FlexGrammar.WHILE_STATEMENT,
+        FlexGrammar.DO_STATEMENT,
+        FlexGrammar.WITH_STATEMENT,
+        FlexGrammar.SWITCH_STATEMENT,
+        FlexGrammar.BREAK_STATEMENT,
+        FlexGrammar.CONTINUE_STATEMENT,
+        FlexGrammar.RETURN_STATEMENT,
+        FlexGrammar.THROW_STATEMENT,
+        FlexGrammar.TRY_STATEMENT,
+        FlexGrammar.EMPTY_STATEMENT);
+      Set<Integer> marked = new HashSet<>();
+      StringBuilder executableLines = new StringBuilder();
+      statements.stream().map(AstNode::getTokenLine).filter(marked::add).forEach(line -> executableLines.append(line).append("=1;"));
+      assertThat(metrics.numberOfStatements()).as(file.toString()).isEqualTo(statements.size());
+      assertThat(metrics.executableLines()).as(file.toString()).isEqualTo(executableLines.toString());
+    }
+  }
+
+  private static FlexVisitorContext context(String fileName) {
+    return TestVisitorContext.create(new File("src/test/resources/metrics/", fileName));
+  }
+
   private FileMetrics metrics(String fileName) {
     File baseDir = new File("src/test/resources/metrics/");
     File file = new File(baseDir, fileName);
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlexParserTest {
+
+  @Test
+  public void within_limits() {
+    Parser<LexerlessGrammar> parser = FlexParser.create(StandardCharsets.UTF_8, 60_000, 20);
+    AstNode tree = parser.parse("var a = 1;");
+    assertThat(tree.getDescendants(FlexGrammar.VARIABLE_DEF)).hasSize(1);
+    assertThatThrownBy(() -> parser.parse("var a = ;"))
+      .isExactlyInstanceOf(RecognitionException.class);
+  }
+
+  @Test
+  public void too_large() {
+    Parser<LexerlessGrammar> parser = FlexParser.create(StandardCharsets.UTF_8, 0, 9);
+    assertThat(parser.parse("var a = 1")).isNotNull();
+    assertThatThrownBy(() -> parser.parse("var a = 1;"))
+      .isInstanceOf(ParseLimitException.class)
+      .hasMessage("Parse skipped: the file has 10 characters, more than the limit of 9");
+  }
+
+  @Test
+  public void too_long() {
+    Parser<LexerlessGrammar> parser = FlexParser.create(StandardCharsets.UTF_8, 1, 0);
+    StringBuilder source = new StringBuilder("\r\n\r");
+    for (int i = 0; i < 100_000; i++) {
+      source.append("var a").append(i).append(" = [1, 2, {b: (3 + 4) * 5}];\n");
+    }
+    assertThatThrownBy(() -> parser.parse(source.toString()))
+      .isInstanceOfSatisfying(ParseLimitException.class, e -> {
+        assertThat(e.getLine()).isGreaterThan(3);
+        assertThat(e.getMessage()).isEqualTo("Parse interrupted at line " + e.getLine() + ", after the time limit of 1 ms");
+      });
+    // the deadline is started again for each parse
+    assertThat(parser.parse("var a = 1;")).isNotNull();
+  }
+
+  @Test
+  public void negative_limit() {
+    assertThatThrownBy(() -> FlexParser.create(StandardCharsets.UTF_8, -1, 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
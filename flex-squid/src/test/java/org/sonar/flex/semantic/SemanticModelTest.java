@@ -0,0 +1,192 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.semantic;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.parser.FlexParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class SemanticModelTest {
+
+  private static final Parser<LexerlessGrammar> PARSER = FlexParser.create(StandardCharsets.UTF_8);
+
+  @Test
+  public void scopes() {
+    AstNode root = PARSER.parse(
+      "package p {\n" +
+        "  public class A {\n" +
+        "    private var f:int;\n" +
+        "    public function m(a:int, ...rest):void {\n" +
+        "      try { var x = function named(b) {}; } catch (e:Error) { var y; function g() {} }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}\n" +
+        "function top() {}\n" +
+        "var v;");
+    SemanticModel model = SemanticModel.create(root);
+
+    Scope file = model.fileScope();
+    assertThat(file.kind()).isEqualTo(Scope.Kind.FILE);
+    assertThat(file.tree()).isSameAs(root);
+    assertThat(file.outer()).isNull();
+    assertThat(model.scope(root)).isSameAs(file);
+    assertThat(file.symbols()).extracting(Symbol::kind, Symbol::name)
+      .containsExactly(tuple(Symbol.Kind.CLASS, "A"), tuple(Symbol.Kind.FUNCTION, "top"), tuple(Symbol.Kind.VARIABLE, "v"));
+
+    Scope classScope = file.innerScopes().get(0);
+    assertThat(classScope.kind()).isEqualTo(Scope.Kind.CLASS);
+    assertThat(model.scope(root.getFirstDescendant(FlexGrammar.CLASS_DEF))).isSameAs(classScope);
+    assertThat(classScope.symbols()).extracting(Symbol::kind, Symbol::name)
+      .containsExactly(tuple(Symbol.Kind.FIELD, "f"), tuple(Symbol.Kind.FUNCTION, "m"));
+    assertThat(classScope.symbols(Symbol.Kind.FIELD)).extracting(Symbol::name).containsExactly("f");
+
+    Scope method = classScope.innerScopes().get(0);
+    assertThat(method.tree().is(FlexGrammar.FUNCTION_DEF)).isTrue();
+    assertThat(method.outer()).isSameAs(classScope);
+    assertThat(method.enclosing(Scope.Kind.CLASS)).isSameAs(classScope);
+    assertThat(method.enclosing(Scope.Kind.CATCH)).isNull();
+    // the variables and functions of a catch clause belong to the function
+    assertThat(method.symbols()).extracting(Symbol::kind, Symbol::name).containsExactly(
+      tuple(Symbol.Kind.PARAMETER, "a"),
+      tuple(Symbol.Kind.PARAMETER, "rest"),
+      tuple(Symbol.Kind.VARIABLE, "x"),
+      tuple(Symbol.Kind.VARIABLE, "y"),
+      tuple(Symbol.Kind.FUNCTION, "g"));
+    assertThat(method.innerScopes()).extracting(Scope::kind).containsExactly(Scope.Kind.FUNCTION, Scope.Kind.CATCH);
+
+    Scope functionExpr = method.innerScopes().get(0);
+    assertThat(functionExpr.tree().is(FlexGrammar.FUNCTION_EXPR)).isTrue();
+    assertThat(functionExpr.symbols()).extracting(Symbol::kind, Symbol::name)
+      .containsExactly(tuple(Symbol.Kind.FUNCTION, "named"), tuple(Symbol.Kind.PARAMETER, "b"));
+
+    Scope catchScope = method.innerScopes().get(1);
+    assertThat(catchScope.symbols()).extracting(Symbol::kind, Symbol::name).containsExactly(tuple(Symbol.Kind.PARAMETER, "e"));
+    assertThat(catchScope.innerScopes()).hasSize(1);
+    assertThat(catchScope.enclosing(Scope.Kind.FUNCTION)).isSameAs(method);
+
+    assertThat(model.scope(root.getFirstDescendant(FlexGrammar.BLOCK))).isNull();
+  }
+
+  @Test
+  public void lexical_usages() {
+    SemanticModel model = model(
+      "function f(p) {\n" +
+        "  trace(a, p);\n" +
+        "  var a = 1;\n" +
+        "  var g = function(p) { return p + a; };\n" +
+        "  try {} catch (a) { trace(a); }\n" +
+        "  unknown();\n" +
+        "}");
+    Scope function = model.fileScope().innerScopes().get(0);
+    Symbol a = symbol(function, "a", Symbol.Kind.VARIABLE);
+    // variables are visible before their declaration
+    assertThat(a.usages()).extracting(AstNode::getTokenLine).containsExactly(2, 4);
+    assertThat(symbol(function, "p", Symbol.Kind.PARAMETER).usages()).extracting(AstNode::getTokenLine).containsExactly(2);
+    Scope functionExpr = function.innerScopes().get(0);
+    assertThat(symbol(functionExpr, "p", Symbol.Kind.PARAMETER).usages()).hasSize(1);
+    Scope catchScope = function.innerScopes().get(1);
+    assertThat(symbol(catchScope, "a", Symbol.Kind.PARAMETER).usages()).extracting(AstNode::getTokenLine).containsExactly(5);
+    assertThat(symbol(model.fileScope(), "f", Symbol.Kind.FUNCTION).usages()).isEmpty();
+
+    AstNode firstUsage = a.usages().get(0);
+    assertThat(firstUsage.is(FlexGrammar.QUALIFIED_IDENTIFIER)).isTrue();
+    assertThat(model.symbol(firstUsage)).isSameAs(a);
+    AstNode unknown = model.fileScope().tree().getDescendants(FlexGrammar.QUALIFIED_IDENTIFIER).stream()
+      .filter(node -> "unknown".equals(node.getTokenValue()))
+      .findFirst().get();
+    assertThat(model.symbol(unknown)).isNull();
+  }
+
+  @Test
+  public void member_usages() {
+    SemanticModel model = model(
+      "class A {\n" +
+        "  private var f;\n" +
+        "  private var g;\n" +
+        "  private var h;\n" +
+        "  public function get p() { return this.f; }\n" +
+        "  public function set p(value) { other.g = value; }\n" +
+        "  function m() { var h; return h; }\n" +
+        "  class Inner {\n" +
+        "    function n() { return this.f; }\n" +
+        "  }\n" +
+        "}");
+    Scope classScope = model.fileScope().innerScopes().get(0);
+    assertThat(symbol(classScope, "f", Symbol.Kind.FIELD).usages()).extracting(AstNode::getTokenLine).containsExactly(5, 9);
+    assertThat(symbol(classScope, "g", Symbol.Kind.FIELD).usages()).extracting(AstNode::getTokenLine).containsExactly(6);
+    // hidden by the local variable
+    assertThat(symbol(classScope, "h", Symbol.Kind.FIELD).usages()).isEmpty();
+    assertThat(symbol(classScope, "p", Symbol.Kind.FUNCTION).declarations()).extracting(AstNode::getTokenLine).containsExactly(5, 6);
+  }
+
+  @Test
+  public void same_name_with_several_kinds() {
+    SemanticModel model = model("function f(a) { var a; return a; }");
+    Scope function = model.fileScope().innerScopes().get(0);
+    assertThat(function.symbols("a")).extracting(Symbol::kind).containsExactly(Symbol.Kind.PARAMETER, Symbol.Kind.VARIABLE);
+    assertThat(function.symbols("a")).allSatisfy(symbol -> assertThat(symbol.usages()).hasSize(1));
+    assertThat(function.symbols("b")).isEmpty();
+  }
+
+  @Test
+  public void types_namespaces_and_xml() {
+    SemanticModel model = model(
+      "class T {}\n" +
+        "function f(T, ns, attr, child) {\n" +
+        "  var t:T = xml.@attr;\n" +
+        "  return xml..child + xml.ns::name + ns::other + t;\n" +
+        "}");
+    assertThat(symbol(model.fileScope(), "T", Symbol.Kind.CLASS).usages()).extracting(AstNode::getTokenLine).containsExactly(3);
+    Scope function = model.fileScope().innerScopes().get(1);
+    assertThat(symbol(function, "T", Symbol.Kind.PARAMETER).usages()).isEmpty();
+    assertThat(symbol(function, "ns", Symbol.Kind.PARAMETER).usages()).hasSize(2);
+    assertThat(symbol(function, "attr", Symbol.Kind.PARAMETER).usages()).isEmpty();
+    assertThat(symbol(function, "child", Symbol.Kind.PARAMETER).usages()).isEmpty();
+    assertThat(symbol(function, "t", Symbol.Kind.VARIABLE).usages()).hasSize(1);
+  }
+
+  @Test
+  public void shared_by_context() {
+    FlexVisitorContext context = new FlexVisitorContext("", PARSER.parse("var a;"));
+    assertThat(context.semanticModel()).isSameAs(context.semanticModel());
+
+    FlexVisitorContext withoutTree = new FlexVisitorContext("", new RecognitionException(1, "error"));
+    assertThatThrownBy(withoutTree::semanticModel).isInstanceOf(IllegalStateException.class);
+  }
+
+  private static SemanticModel model(String source) {
+    return SemanticModel.create(PARSER.parse(source));
+  }
+
+  private static Symbol symbol(Scope scope, String name, Symbol.Kind kind) {
+    List<Symbol> symbols = scope.symbols(name);
+    return symbols.stream().filter(symbol -> symbol.kind() == kind).findFirst()
+      .orElseThrow(() -> new AssertionError("No " + kind + " " + name + " in " + scope));
+  }
+
+}
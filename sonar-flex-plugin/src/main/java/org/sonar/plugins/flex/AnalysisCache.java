@@ -0,0 +1,207 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.RuleProperty;
+
+/**
+ * Stores the result of the analysis of each file in the cache of the scanner, so that the next analysis can replay it
+ * instead of analyzing the file again, when the file has not changed.
+ * <p>
+ * A stored result is only reused when the content of the file has the same hash and the version of the plugin is the
+ * same as when it was computed. The issues of each rule are stored separately, along with a hash of the values of the
+ * {@link RuleProperty} fields of its check: when the quality profile changes, only the rules which were not active or
+ * had other parameters have to be executed again. Rules which are no longer active are removed from the stored result.
+ * <p>
+ * The whole result is only replayed when the scanner allows to skip unchanged files. Otherwise, as when the quality
+ * profile changes, the file is analyzed again but the stored issues of the rules whose parameters did not change are kept.
+ */
+class AnalysisCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+
+  static final String KEY_PREFIX = "flex:analysis:";
+
+  private final SensorContext context;
+  private final boolean enabled;
+  private final boolean canSkipUnchangedFiles;
+  private final Map<RuleKey, Long> parametersHashes;
+  private final String pluginVersion;
+  private int reusedFiles;
+  private int partiallyReusedFiles;
+
+  /**
+   * @param parametersHashes hash of the parameters of each active rule, see {@link #parametersHash(Object)}
+   */
+  AnalysisCache(SensorContext context, Map<RuleKey, Long> parametersHashes) {
+    this.context = context;
+    this.enabled = context.isCacheEnabled();
+    this.canSkipUnchangedFiles = context.canSkipUnchangedFiles();
+    this.parametersHashes = Collections.unmodifiableMap(parametersHashes);
+    this.pluginVersion = pluginVersion();
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  int reusedFiles() {
+    return reusedFiles;
+  }
+
+  int partiallyReusedFiles() {
+    return partiallyReusedFiles;
+  }
+
+  /**
+   * @param content content of the file, which is only read when the stored result has been computed by the same version
+   * of the plugin
+   * @return the result stored by the previous analysis, if it is still valid for the file, or null if the file has to be
+   * analyzed. The result may only be partially reused, see {@link #isComplete(FileAnalysisResult)}.
+   */
+  @CheckForNull
+  FileAnalysisResult read(InputFile inputFile, Supplier<String> content) {
+    if (!enabled) {
+      return null;
+    }
+    String key = key(inputFile);
+    if (!context.previousCache().contains(key)) {
+      return null;
+    }
+    FileAnalysisResult result = new FileAnalysisResult(inputFile);
+    int discardedRules;
+    byte[] contentHash;
+    try (DataInputStream in = new DataInputStream(context.previousCache().read(key))) {
+      AnalysisCacheSerializer.Header header = AnalysisCacheSerializer.readHeader(in);
+      if (header == null || !pluginVersion.equals(header.pluginVersion)) {
+        return null;
+      }
+      contentHash = contentHash(content.get());
+      if (!Arrays.equals(contentHash, header.contentHash)) {
+        return null;
+      }
+      discardedRules = AnalysisCacheSerializer.readResult(in, result, parametersHashes);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Cannot read the cached analysis of {}, it will be analyzed", inputFile, e);
+      return null;
+    }
+
+    if (!isComplete(result)) {
+      partiallyReusedFiles++;
+      // not computed again by the analysis of the file
+      result.setContentHash(contentHash);
+    } else if (discardedRules > 0) {
+      reusedFiles++;
+      // written again without the rules which are no longer active
+      result.setContentHash(contentHash);
+    } else {
+      reusedFiles++;
+      context.nextCache().copyFromPrevious(key);
+    }
+    return result;
+  }
+
+  /**
+   * @return true if the result can be replayed without analyzing the file: the scanner allows to skip unchanged files,
+   * and the result has the issues of all the active rules. Otherwise, only its issues can be reused.
+   */
+  boolean isComplete(FileAnalysisResult result) {
+    return canSkipUnchangedFiles && result.issues().keySet().equals(parametersHashes.keySet());
+  }
+
+  /**
+   * Writes the result, unless the cache is disabled or the result has been copied from the previous cache.
+   */
+  void write(FileAnalysisResult result) {
+    byte[] contentHash = result.contentHash();
+    if (!enabled || contentHash == null) {
+      return;
+    }
+    AnalysisCacheSerializer.Header header = new AnalysisCacheSerializer.Header(pluginVersion, contentHash);
+    context.nextCache().write(key(result.inputFile()), AnalysisCacheSerializer.serialize(header, result, parametersHashes));
+  }
+
+  static String key(InputFile inputFile) {
+    return KEY_PREFIX + inputFile.key();
+  }
+
+  static byte[] contentHash(String content) {
+    return sha256(content);
+  }
+
+  /**
+   * Hash of the values of the fields of the check which are annotated with {@link RuleProperty}.
+   */
+  static long parametersHash(Object check) {
+    Map<String, String> values = new TreeMap<>();
+    for (Class<?> type = check.getClass(); type != Object.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (field.isAnnotationPresent(RuleProperty.class)) {
+          values.put(type.getName() + "." + field.getName(), String.valueOf(fieldValue(check, field)));
+        }
+      }
+    }
+    StringBuilder builder = new StringBuilder();
+    values.forEach((name, value) -> builder.append(name).append('=').append(value).append('\n'));
+    long hash = 0;
+    byte[] digest = sha256(builder.toString());
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << 8) | (digest[i] & 0xFF);
+    }
+    return hash;
+  }
+
+  private static Object fieldValue(Object check, Field field) {
+    try {
+      field.setAccessible(true);
+      return field.get(check);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot read the parameter " + field.getName() + " of " + check.getClass().getName(), e);
+    }
+  }
+
+  private static String pluginVersion() {
+    String version = AnalysisCache.class.getPackage().getImplementationVersion();
+    return version == null ? "unknown" : version;
+  }
+
+  private static byte[] sha256(String value) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+}
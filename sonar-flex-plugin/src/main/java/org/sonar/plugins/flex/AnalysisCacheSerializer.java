@@ -0,0 +1,307 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.flex.Issue;
+
+/**
+ * Binary format of the entries of {@link AnalysisCache}. Integers are written as variable-length quantities, so that
+ * most lines and columns take a single byte, lines of code are written as differences with the previous one,
+ * and the images of CPD tokens are written once per entry in a table.
+ * <pre>
+ * entry:   formatVersion pluginVersion contentHash fileData ruleCount rule*
+ * rule:    ruleKey parametersHash issueCount issue*
+ * issue:   line+1 message hasCost cost?
+ * </pre>
+ */
+final class AnalysisCacheSerializer {
+
+  /**
+   * To be incremented whenever the format changes.
+   */
+  static final int FORMAT_VERSION = 3;
+
+  private AnalysisCacheSerializer() {
+  }
+
+  /**
+   * Header of an entry, which is enough to know if the rest of the entry can be used.
+   */
+  static class Header {
+    final String pluginVersion;
+    final byte[] contentHash;
+
+    Header(String pluginVersion, byte[] contentHash) {
+      this.pluginVersion = pluginVersion;
+      this.contentHash = contentHash;
+    }
+  }
+
+  static byte[] serialize(Header header, FileAnalysisResult result, Map<RuleKey, Long> parametersHashes) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeVarInt(out, FORMAT_VERSION);
+      writeString(out, header.pluginVersion);
+      writeVarInt(out, header.contentHash.length);
+      out.write(header.contentHash);
+      writeFileData(out, result);
+
+      Map<RuleKey, List<Issue>> issues = result.issues();
+      writeVarInt(out, issues.size());
+      for (Map.Entry<RuleKey, List<Issue>> ruleIssues : issues.entrySet()) {
+        writeString(out, ruleIssues.getKey().toString());
+        out.writeLong(parametersHashes.get(ruleIssues.getKey()));
+        writeVarInt(out, ruleIssues.getValue().size());
+        for (Issue issue : ruleIssues.getValue()) {
+          writeIssue(out, issue);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialize the analysis of " + result.inputFile(), e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return the header, or null if the entry has been written with another format
+   */
+  @CheckForNull
+  static Header readHeader(DataInputStream in) throws IOException {
+    if (readVarInt(in) != FORMAT_VERSION) {
+      return null;
+    }
+    String pluginVersion = readString(in);
+    byte[] contentHash = new byte[readVarInt(in)];
+    in.readFully(contentHash);
+    return new Header(pluginVersion, contentHash);
+  }
+
+  /**
+   * Reads the rest of the entry, after its header. Issues are only kept for the rules of {@code parametersHashes} which
+   * had the same parameters.
+   *
+   * @return the number of rules which are present in the entry but not kept
+   */
+  static int readResult(DataInputStream in, FileAnalysisResult result, Map<RuleKey, Long> parametersHashes) throws IOException {
+    readFileData(in, result);
+    int discardedRules = 0;
+    int ruleCount = readVarInt(in);
+    for (int i = 0; i < ruleCount; i++) {
+      RuleKey ruleKey = RuleKey.parse(readString(in));
+      long parametersHash = in.readLong();
+      int issueCount = readVarInt(in);
+      List<Issue> issues = new ArrayList<>(issueCount);
+      for (int j = 0; j < issueCount; j++) {
+        issues.add(readIssue(in));
+      }
+      Long activeParametersHash = parametersHashes.get(ruleKey);
+      if (activeParametersHash != null && activeParametersHash == parametersHash) {
+        result.addIssues(ruleKey, issues);
+      } else {
+        discardedRules++;
+      }
+    }
+    return discardedRules;
+  }
+
+  private static void writeFileData(DataOutputStream out, FileAnalysisResult result) throws IOException {
+    writeNullableString(out, result.parseError());
+    FileAnalysisResult.Measures measures = result.measures();
+    out.writeBoolean(measures != null);
+    if (measures != null) {
+      writeVarInt(out, measures.linesOfCode.cardinality());
+      int previousLine = 0;
+      for (int line = measures.linesOfCode.nextSetBit(0); line >= 0; line = measures.linesOfCode.nextSetBit(line + 1)) {
+        writeVarInt(out, line - previousLine);
+        previousLine = line;
+      }
+      writeVarInt(out, measures.commentLines);
+      writeVarInt(out, measures.classes);
+      writeVarInt(out, measures.functions);
+      writeVarInt(out, measures.statements);
+      writeVarInt(out, measures.complexity);
+      writeString(out, measures.executableLines);
+    }
+
+    writeVarInt(out, result.highlightings().size());
+    for (FileAnalysisResult.Highlight highlight : result.highlightings()) {
+      writeLocation(out, highlight.location);
+      writeString(out, highlight.typeOfText.cssClass());
+    }
+
+    Map<String, Integer> images = new LinkedHashMap<>();
+    for (FileAnalysisResult.CpdToken cpdToken : result.cpdTokens()) {
+      images.putIfAbsent(cpdToken.image, images.size());
+    }
+    writeVarInt(out, images.size());
+    for (String image : images.keySet()) {
+      writeString(out, image);
+    }
+    writeVarInt(out, result.cpdTokens().size());
+    for (FileAnalysisResult.CpdToken cpdToken : result.cpdTokens()) {
+      writeLocation(out, cpdToken.location);
+      writeVarInt(out, images.get(cpdToken.image));
+    }
+  }
+
+  private static void readFileData(DataInputStream in, FileAnalysisResult result) throws IOException {
+    String parseError = readNullableString(in);
+    if (parseError != null) {
+      result.setParseError(parseError);
+    }
+    if (in.readBoolean()) {
+      int linesOfCodeCount = readVarInt(in);
+      BitSet linesOfCode = new BitSet();
+      int line = 0;
+      for (int i = 0; i < linesOfCodeCount; i++) {
+        line += readVarInt(in);
+        linesOfCode.set(line);
+      }
+      result.setMeasures(new FileAnalysisResult.Measures(linesOfCode, readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in),
+        readString(in)));
+    }
+
+    Map<String, TypeOfText> typesOfText = new HashMap<>();
+    int highlightCount = readVarInt(in);
+    for (int i = 0; i < highlightCount; i++) {
+      TokenLocation location = readLocation(in);
+      result.addHighlight(location, typesOfText.computeIfAbsent(readString(in), TypeOfText::forCssClass));
+    }
+
+    String[] images = new String[readVarInt(in)];
+    for (int i = 0; i < images.length; i++) {
+      images[i] = readString(in);
+    }
+    int cpdTokenCount = readVarInt(in);
+    for (int i = 0; i < cpdTokenCount; i++) {
+      TokenLocation location = readLocation(in);
+      result.addCpdToken(location, images[readVarInt(in)]);
+    }
+  }
+
+  private static void writeIssue(DataOutputStream out, Issue issue) throws IOException {
+    Integer line = issue.line();
+    writeVarInt(out, line == null ? 0 : (line + 1));
+    writeString(out, issue.message());
+    Double cost = issue.cost();
+    out.writeBoolean(cost != null);
+    if (cost != null) {
+      out.writeDouble(cost);
+    }
+  }
+
+  private static Issue readIssue(DataInputStream in) throws IOException {
+    int line = readVarInt(in) - 1;
+    String message = readString(in);
+    Double cost = in.readBoolean() ? in.readDouble() : null;
+    if (line < 0) {
+      return Issue.fileIssue(message);
+    }
+    return cost == null ? Issue.lineIssue(line, message) : Issue.lineIssue(line, message, cost);
+  }
+
+  /**
+   * The end line is written relatively to the start line, as most tokens are on a single line.
+   */
+  private static void writeLocation(DataOutputStream out, TokenLocation location) throws IOException {
+    writeVarInt(out, location.startLine());
+    writeVarInt(out, location.startCharacter());
+    writeVarInt(out, location.endLine() - location.startLine());
+    writeVarInt(out, location.endCharacter());
+  }
+
+  private static TokenLocation readLocation(DataInputStream in) throws IOException {
+    int startLine = readVarInt(in);
+    int startCharacter = readVarInt(in);
+    int endLine = startLine + readVarInt(in);
+    return new TokenLocation(startLine, startCharacter, endLine, readVarInt(in));
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  /**
+   * Unlike {@link DataOutputStream#writeUTF(String)}, does not limit the length of the string to 64 KB.
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readVarInt(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a non-negative integer 7 bits at a time, the high bit of each byte telling if another byte follows.
+   */
+  static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value: " + value);
+    }
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      out.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.writeByte(remaining);
+  }
+
+  static int readVarInt(InputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.read();
+      if (b == -1) {
+        throw new IOException("Unexpected end of cache entry");
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Time spent by each rule and in each phase of the analysis of a file, over the files of an analysis, along with the
+ * files which took the longest to analyze. When disabled, nothing is measured.
+ * Not thread-safe: each worker records its own timings, which are merged at the end of the analysis.
+ */
+class AnalysisTimings {
+
+  private static final Logger LOG = Loggers.get(AnalysisTimings.class);
+  static final int TOP_OFFENDERS = 10;
+  private static final Comparator<Stats> SLOWEST_FIRST = Comparator.<Stats>comparingLong(stats -> stats.totalNanos).reversed()
+    .thenComparing(stats -> stats.name);
+  private static final Comparator<FileTiming> FASTEST_FIRST = Comparator.<FileTiming>comparingLong(file -> file.totalNanos)
+    .thenComparing(file -> file.path, Comparator.reverseOrder());
+
+  enum Phase {
+    READ("content read"),
+    PARSE("parse"),
+    METRICS("metrics"),
+    CHECKS("checks"),
+    TOKENS("FlexTokensVisitor");
+
+    final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+  }
+
+  private final boolean enabled;
+  private final Map<String, Stats> rules = new HashMap<>();
+  private final Map<Phase, Stats> phases = new EnumMap<>(Phase.class);
+  // the fastest of the slowest files is at the head, to be replaced by a slower one
+  private final PriorityQueue<FileTiming> slowestFiles = new PriorityQueue<>(FASTEST_FIRST);
+  private final long[] currentFileNanos = new long[Phase.values().length];
+
+  AnalysisTimings(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the current time in nanoseconds, or 0 when disabled
+   */
+  long now() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  void startFile() {
+    Arrays.fill(currentFileNanos, 0L);
+  }
+
+  /**
+   * Records the time since {@code start} for the phase of the current file.
+   *
+   * @return the current time, which is the start of the next phase, or 0 when disabled
+   */
+  long recordPhase(Phase phase, long start) {
+    if (!enabled) {
+      return 0L;
+    }
+    long end = System.nanoTime();
+    currentFileNanos[phase.ordinal()] += end - start;
+    return end;
+  }
+
+  void endFile(InputFile inputFile, int characters) {
+    if (!enabled) {
+      return;
+    }
+    long totalNanos = 0;
+    for (Phase phase : Phase.values()) {
+      long nanos = currentFileNanos[phase.ordinal()];
+      if (nanos > 0) {
+        phases.computeIfAbsent(phase, key -> new Stats(key.label)).add(nanos, 0);
+        totalNanos += nanos;
+      }
+    }
+    addSlowFile(new FileTiming(inputFile.toString(), inputFile.lines(), characters, totalNanos, currentFileNanos[Phase.PARSE.ordinal()]));
+  }
+
+  void recordRule(RuleKey ruleKey, long nanos, int issues) {
+    if (enabled) {
+      rules.computeIfAbsent(ruleKey.toString(), Stats::new).add(nanos, issues);
+    }
+  }
+
+  /**
+   * Records that the rule has not been executed on the current file, which has no node of the types it subscribes to.
+   */
+  void recordSkippedRule(RuleKey ruleKey) {
+    if (enabled) {
+      rules.computeIfAbsent(ruleKey.toString(), Stats::new).skippedFiles++;
+    }
+  }
+
+  void merge(AnalysisTimings other) {
+    other.rules.values().forEach(stats -> rules.computeIfAbsent(stats.name, Stats::new).add(stats));
+    other.phases.forEach((phase, stats) -> phases.computeIfAbsent(phase, key -> new Stats(key.label)).add(stats));
+    other.slowestFiles.forEach(this::addSlowFile);
+  }
+
+  private void addSlowFile(FileTiming file) {
+    slowestFiles.add(file);
+    if (slowestFiles.size() > TOP_OFFENDERS) {
+      slowestFiles.poll();
+    }
+  }
+
+  List<Stats> rules() {
+    List<Stats> list = new ArrayList<>(rules.values());
+    list.sort(SLOWEST_FIRST);
+    return list;
+  }
+
+  /**
+   * Phases in the order in which they happen.
+   */
+  List<Stats> phases() {
+    return new ArrayList<>(phases.values());
+  }
+
+  List<FileTiming> slowestFiles() {
+    List<FileTiming> list = new ArrayList<>(slowestFiles);
+    list.sort(FASTEST_FIRST.reversed());
+    return list;
+  }
+
+  void log() {
+    LOG.info("Time spent by phase of the Flex analysis: {}", phases().stream()
+      .map(stats -> stats.name + " " + millis(stats.totalNanos) + " ms")
+      .collect(Collectors.joining(", ")));
+    LOG.info("Slowest rules of the Flex analysis:");
+    for (Stats stats : rules().stream().limit(TOP_OFFENDERS).collect(Collectors.toList())) {
+      LOG.info("  {}: {} ms in total, {} files, at most {} ms for a file, {} issues, skipped on {} files",
+        stats.name, millis(stats.totalNanos), stats.files, millis(stats.maxNanos), stats.issues, stats.skippedFiles);
+    }
+    LOG.info("Rules skipped on files without the nodes they subscribe to: {} times in total, by {} rules",
+      rules.values().stream().mapToInt(stats -> stats.skippedFiles).sum(), rules.values().stream().filter(stats -> stats.skippedFiles > 0).count());
+    LOG.info("Slowest files of the Flex analysis:");
+    for (FileTiming file : slowestFiles()) {
+      LOG.info("  {}: {} ms, of which {} ms to parse, {} lines, {} characters",
+        file.path, millis(file.totalNanos), millis(file.parseNanos), file.lines, file.characters);
+    }
+  }
+
+  void writeJson(Path path) {
+    try {
+      Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        writer.write("{\n  \"phases\": ");
+        writeJsonArray(writer, phases().stream().map(stats -> statsJson(stats, false)).collect(Collectors.toList()));
+        writer.write(",\n  \"rules\": ");
+        writeJsonArray(writer, rules().stream().map(stats -> statsJson(stats, true)).collect(Collectors.toList()));
+        writer.write(",\n  \"slowestFiles\": ");
+        writeJsonArray(writer, slowestFiles().stream().map(AnalysisTimings::fileJson).collect(Collectors.toList()));
+        writer.write("\n}\n");
+      }
+      LOG.info("Flex analysis timings written to {}", path);
+    } catch (IOException e) {
+      LOG.warn("Unable to write the Flex analysis timings to " + path, e);
+    }
+  }
+
+  private static String statsJson(Stats stats, boolean withIssues) {
+    return "{\"name\": " + jsonString(stats.name)
+      + ", \"totalMillis\": " + millis(stats.totalNanos)
+      + ", \"files\": " + stats.files
+      + ", \"maxMillis\": " + millis(stats.maxNanos)
+      + (withIssues ? (", \"issues\": " + stats.issues + ", \"skippedFiles\": " + stats.skippedFiles) : "")
+      + "}";
+  }
+
+  private static String fileJson(FileTiming file) {
+    return "{\"path\": " + jsonString(file.path)
+      + ", \"totalMillis\": " + millis(file.totalNanos)
+      + ", \"parseMillis\": " + millis(file.parseNanos)
+      + ", \"lines\": " + file.lines
+      + ", \"characters\": " + file.characters
+      + "}";
+  }
+
+  private static void writeJsonArray(Writer writer, List<String> elements) throws IOException {
+    if (elements.isEmpty()) {
+      writer.write("[]");
+      return;
+    }
+    writer.write("[\n    ");
+    writer.write(String.join(",\n    ", elements));
+    writer.write("\n  ]");
+  }
+
+  static String jsonString(String value) {
+    StringBuilder builder = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < 0x20) {
+        builder.append(String.format("\\u%04x", (int) c));
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+  }
+
+  static class Stats {
+    final String name;
+    long totalNanos;
+    long maxNanos;
+    int files;
+    int issues;
+    int skippedFiles;
+
+    Stats(String name) {
+      this.name = name;
+    }
+
+    void add(long nanos, int fileIssues) {
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      files++;
+      issues += fileIssues;
+    }
+
+    void add(Stats other) {
+      totalNanos += other.totalNanos;
+      maxNanos = Math.max(maxNanos, other.maxNanos);
+      files += other.files;
+      issues += other.issues;
+      skippedFiles += other.skippedFiles;
+    }
+  }
+
+  static class FileTiming {
+    final String path;
+    final int lines;
+    final int characters;
+    final long totalNanos;
+    final long parseNanos;
+
+    FileTiming(String path, int lines, int characters, long totalNanos, long parseNanos) {
+      this.path = path;
+      this.lines = lines;
+      this.characters = characters;
+      this.totalNanos = totalNanos;
+      this.parseNanos = parseNanos;
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.flex.Issue;
+
+/**
+ * Everything computed for one file, kept apart from the {@link SensorContext} so that files can be analyzed
+ * on worker threads and saved afterwards, in a fixed order, from the thread that executes the sensor.
+ */
+class FileAnalysisResult {
+
+  private final InputFile inputFile;
+  private final Map<RuleKey, List<Issue>> issues = new LinkedHashMap<>();
+  private final List<Highlight> highlightings = new ArrayList<>();
+  private final List<CpdToken> cpdTokens = new ArrayList<>();
+  private Measures measures;
+  private String parseError;
+  private byte[] contentHash;
+
+  FileAnalysisResult(InputFile inputFile) {
+    this.inputFile = inputFile;
+  }
+
+  InputFile inputFile() {
+    return inputFile;
+  }
+
+  /**
+   * Records that the rule has been executed on the file, even when it raised no issue.
+   */
+  void addIssues(RuleKey ruleKey, List<Issue> ruleIssues) {
+    issues.computeIfAbsent(ruleKey, key -> new ArrayList<>()).addAll(ruleIssues);
+  }
+
+  void addHighlight(TokenLocation location, TypeOfText typeOfText) {
+    highlightings.add(new Highlight(location, typeOfText));
+  }
+
+  void addCpdToken(TokenLocation location, String image) {
+    cpdTokens.add(new CpdToken(location, image));
+  }
+
+  void setMeasures(Measures measures) {
+    this.measures = measures;
+  }
+
+  void setParseError(String parseError) {
+    this.parseError = parseError;
+  }
+
+  /**
+   * Issues of each executed rule, in the order of execution.
+   */
+  Map<RuleKey, List<Issue>> issues() {
+    return Collections.unmodifiableMap(issues);
+  }
+
+  List<Highlight> highlightings() {
+    return highlightings;
+  }
+
+  List<CpdToken> cpdTokens() {
+    return cpdTokens;
+  }
+
+  @CheckForNull
+  Measures measures() {
+    return measures;
+  }
+
+  @CheckForNull
+  String parseError() {
+    return parseError;
+  }
+
+  /**
+   * Hash of the analyzed content, only computed when the analysis cache is enabled, to store this result in the cache.
+   */
+  void setContentHash(byte[] contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  @CheckForNull
+  byte[] contentHash() {
+    return contentHash;
+  }
+
+  void save(SensorContext context, FileLinesContextFactory fileLinesContextFactory) {
+    if (measures != null) {
+      saveMeasures(context, fileLinesContextFactory);
+    }
+
+    issues.forEach((ruleKey, ruleIssues) -> ruleIssues.forEach(issue -> saveIssue(context, ruleKey, issue)));
+
+    NewHighlighting highlighting = context.newHighlighting();
+    highlighting.onFile(inputFile);
+    for (Highlight highlight : highlightings) {
+      TokenLocation location = highlight.location;
+      highlighting.highlight(location.startLine(), location.startCharacter(), location.endLine(), location.endCharacter(), highlight.typeOfText);
+    }
+    highlighting.save();
+
+    NewCpdTokens newCpdTokens = context.newCpdTokens();
+    newCpdTokens.onFile(inputFile);
+    for (CpdToken cpdToken : cpdTokens) {
+      TokenLocation location = cpdToken.location;
+      newCpdTokens.addToken(location.startLine(), location.startCharacter(), location.endLine(), location.endCharacter(), cpdToken.image);
+    }
+    newCpdTokens.save();
+  }
+
+  private void saveIssue(SensorContext context, RuleKey ruleKey, Issue flexIssue) {
+    NewIssue issue = context.newIssue();
+    NewIssueLocation location = issue.newLocation()
+      .on(inputFile)
+      .message(flexIssue.message());
+    Integer line = flexIssue.line();
+    if (line != null) {
+      location.at(inputFile.selectLine(line));
+    }
+    Double cost = flexIssue.cost();
+    if (cost != null) {
+      issue.gap(cost);
+    }
+    issue.at(location).forRule(ruleKey).save();
+  }
+
+  private void saveMeasures(SensorContext context, FileLinesContextFactory fileLinesContextFactory) {
+    saveMeasure(context, CoreMetrics.NCLOC, measures.linesOfCode.cardinality());
+    saveMeasure(context, CoreMetrics.COMMENT_LINES, measures.commentLines);
+    saveMeasure(context, CoreMetrics.CLASSES, measures.classes);
+    saveMeasure(context, CoreMetrics.FUNCTIONS, measures.functions);
+    saveMeasure(context, CoreMetrics.STATEMENTS, measures.statements);
+    context.<String>newMeasure().on(inputFile).forMetric(CoreMetrics.EXECUTABLE_LINES_DATA).withValue(measures.executableLines).save();
+
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
+    for (int line = measures.linesOfCode.nextSetBit(0); line >= 0; line = measures.linesOfCode.nextSetBit(line + 1)) {
+      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
+    }
+    fileLinesContext.save();
+
+    saveMeasure(context, CoreMetrics.COMPLEXITY, measures.complexity);
+  }
+
+  private void saveMeasure(SensorContext context, Metric<Integer> metric, int value) {
+    context.<Integer>newMeasure()
+      .on(inputFile)
+      .forMetric(metric)
+      .withValue(value)
+      .save();
+  }
+
+  static class Highlight {
+    final TokenLocation location;
+    final TypeOfText typeOfText;
+
+    Highlight(TokenLocation location, TypeOfText typeOfText) {
+      this.location = location;
+      this.typeOfText = typeOfText;
+    }
+  }
+
+  static class CpdToken {
+    final TokenLocation location;
+    final String image;
+
+    CpdToken(TokenLocation location, String image) {
+      this.location = location;
+      this.image = image;
+    }
+  }
+
+  static class Measures {
+    final BitSet linesOfCode;
+    final int commentLines;
+    final int classes;
+    final int functions;
+    final int statements;
+    final int complexity;
+    final String executableLines;
+
+    Measures(BitSet linesOfCode, int commentLines, int classes, int functions, int statements, int complexity, String executableLines) {
+      this.linesOfCode = linesOfCode;
+      this.commentLines = commentLines;
+      this.classes = classes;
+      this.functions = functions;
+      this.statements = statements;
+      this.complexity = complexity;
+      this.executableLines = executableLines;
+    }
+  }
+
+}
@@ -17,6 +17,7 @@
 package org.sonar.plugins.flex;
 
 import org.sonar.api.Plugin;
+import org.sonar.api.PropertyType;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.plugins.flex.cobertura.CoberturaSensor;
@@ -26,6 +27,11 @@ public class FlexPlugin implements Plugin {
 
   public static final String FILE_SUFFIXES_KEY = "sonar.flex.file.suffixes";
   public static final String COBERTURA_REPORT_PATHS = "sonar.flex.cobertura.reportPaths";
+  public static final String ANALYSIS_THREADS_KEY = "sonar.flex.analysis.threads";
+  public static final String TIMINGS_KEY = "sonar.flex.analysis.timings";
+  public static final String TIMINGS_REPORT_PATH_KEY = "sonar.flex.analysis.timings.reportPath";
+  public static final String PARSE_TIMEOUT_KEY = "sonar.flex.analysis.parseTimeout";
+  public static final String MAX_FILE_SIZE_KEY = "sonar.flex.analysis.maxFileSize";
 
   @Override
   public void define(Context context) {
@@ -54,6 +60,53 @@ public class FlexPlugin implements Plugin {
         .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
         .category(Flex.NAME)
         .multiValues(true)
+        .build(),
+
+      PropertyDefinition.builder(ANALYSIS_THREADS_KEY)
+        .defaultValue("1")
+        .name("Analysis threads")
+        .description("Number of files parsed and checked at the same time. Use 1 to analyze files one after the other.")
+        .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
+        .category(Flex.NAME)
+        .type(PropertyType.INTEGER)
+        .build(),
+
+      PropertyDefinition.builder(TIMINGS_KEY)
+        .defaultValue("false")
+        .name("Log analysis timings")
+        .description("Measure the time spent by each rule and in each phase of the analysis, and log them at the end of the analysis, "
+          + "along with the slowest files. This slows down the analysis.")
+        .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
+        .category(Flex.NAME)
+        .type(PropertyType.BOOLEAN)
+        .build(),
+
+      PropertyDefinition.builder(TIMINGS_REPORT_PATH_KEY)
+        .name("Analysis timings report path")
+        .description("Path of a JSON file to which the analysis timings are written. The path may be either absolute or relative to the project base directory. "
+          + "Setting it also enables the measure of timings.")
+        .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
+        .category(Flex.NAME)
+        .build(),
+
+      PropertyDefinition.builder(PARSE_TIMEOUT_KEY)
+        .defaultValue("0")
+        .name("Parse timeout")
+        .description("Maximum number of seconds spent parsing a single file. A file which takes longer is reported as not parsable: "
+          + "it is still highlighted and checked for duplications, but not by the rules. Use 0, the default, for no limit.")
+        .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
+        .category(Flex.NAME)
+        .type(PropertyType.INTEGER)
+        .build(),
+
+      PropertyDefinition.builder(MAX_FILE_SIZE_KEY)
+        .defaultValue("0")
+        .name("Maximum file size")
+        .description("Size in KB, counting one byte per character, above which a file is not parsed. Such a file is reported as not parsable: "
+          + "it is still highlighted and checked for duplications, but not by the rules. Use 0, the default, for no limit.")
+        .onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT)
+        .category(Flex.NAME)
+        .type(PropertyType.INTEGER)
         .build());
   }
 }
@@ -16,17 +16,32 @@
  */
 package org.sonar.plugins.flex;
 
-import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.impl.Parser;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.fs.FilePredicate;
@@ -38,24 +53,20 @@ import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
-import org.sonar.api.batch.sensor.issue.NewIssue;
-import org.sonar.api.batch.sensor.issue.NewIssueLocation;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
-import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.flex.FlexCheck;
 import org.sonar.flex.FlexVisitorContext;
+import org.sonar.flex.FlexVisitorDispatcher;
 import org.sonar.flex.Issue;
 import org.sonar.flex.checks.CheckList;
-import org.sonar.flex.lexer.FlexLexer;
-import org.sonar.flex.metrics.ComplexityVisitor;
 import org.sonar.flex.metrics.FileMetrics;
 import org.sonar.flex.parser.FlexParser;
+import org.sonar.flex.parser.ParseLimitException;
+import org.sonar.plugins.flex.AnalysisTimings.Phase;
 import org.sonar.plugins.flex.core.Flex;
 import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonarsource.analyzer.commons.ProgressReport;
@@ -65,14 +76,14 @@ public class FlexSquidSensor implements Sensor {
   private static final Logger LOG = Loggers.get(FlexSquidSensor.class);
 
   private final SonarRuntime sonarRuntime;
-  private final Checks<FlexCheck> checks;
+  private final CheckFactory checkFactory;
+  private final FileAnalyzer analyzer;
   private final FileLinesContextFactory fileLinesContextFactory;
 
   public FlexSquidSensor(SonarRuntime sonarRuntime, CheckFactory checkFactory, FileLinesContextFactory fileLinesContextFactory) {
     this.sonarRuntime = sonarRuntime;
-    this.checks = checkFactory
-      .<FlexCheck>create(CheckList.REPOSITORY_KEY)
-      .addAnnotatedChecks(CheckList.getChecks());
+    this.checkFactory = checkFactory;
+    this.analyzer = createAnalyzer();
     this.fileLinesContextFactory = fileLinesContextFactory;
   }
 
@@ -115,83 +126,318 @@ public class FlexSquidSensor implements Sensor {
     List<String> filenames = inputFiles.stream().map(InputFile::toString).collect(Collectors.toList());
     progressReport.start(filenames);
 
-    for (InputFile inputFile : inputFiles) {
-      analyseFile(context, inputFile.charset(), inputFile);
-      progressReport.nextFile();
+    AnalysisCache cache = new AnalysisCache(context, analyzer.parametersHashes());
+    String timingsReportPath = context.config().get(FlexPlugin.TIMINGS_REPORT_PATH_KEY).orElse(null);
+    analyzer.resetTimings(timingsReportPath != null || context.config().getBoolean(FlexPlugin.TIMINGS_KEY).orElse(false));
+    analyzer.setParseLimits(
+      TimeUnit.SECONDS.toMillis(nonNegativeProperty(context, FlexPlugin.PARSE_TIMEOUT_KEY, 0)),
+      (int) Math.min(Integer.MAX_VALUE, nonNegativeProperty(context, FlexPlugin.MAX_FILE_SIZE_KEY, 0) * 1024L));
+    int threads = analysisThreads(context);
+    if (threads > 1 && inputFiles.size() > 1) {
+      analyseInParallel(context, cache, inputFiles, threads, progressReport);
+    } else {
+      for (InputFile inputFile : inputFiles) {
+        FileContent fileContent = new FileContent(inputFile);
+        FileAnalysisResult cachedResult = cache.read(inputFile, fileContent);
+        if (cachedResult != null && cache.isComplete(cachedResult)) {
+          save(context, cache, cachedResult);
+        } else {
+          save(context, cache, analyseFile(inputFile, fileContent, analyzer, cache.isEnabled(), cachedResult));
+        }
+        progressReport.nextFile();
+      }
     }
 
     progressReport.stop();
+    if (cache.isEnabled()) {
+      LOG.info("{}/{} unchanged files reused from the analysis cache, {} other ones with only new or modified rules executed",
+        cache.reusedFiles(), inputFiles.size(), cache.partiallyReusedFiles());
+    }
+    AnalysisTimings timings = analyzer.timings;
+    if (timings.isEnabled()) {
+      timings.log();
+      if (timingsReportPath != null) {
+        timings.writeJson(fileSystem.baseDir().toPath().resolve(timingsReportPath));
+      }
+    }
+  }
+
+  private static int analysisThreads(SensorContext context) {
+    int threads = context.config().getInt(FlexPlugin.ANALYSIS_THREADS_KEY).orElse(1);
+    if (threads < 1) {
+      LOG.warn("Invalid value {} for property \"{}\", files will be analyzed sequentially", threads, FlexPlugin.ANALYSIS_THREADS_KEY);
+      return 1;
+    }
+    return threads;
+  }
+
+  private static int nonNegativeProperty(SensorContext context, String key, int defaultValue) {
+    int value = context.config().getInt(key).orElse(defaultValue);
+    if (value < 0) {
+      LOG.warn("Invalid value {} for property \"{}\", no limit is applied", value, key);
+      return 0;
+    }
+    return value;
+  }
+
+  /**
+   * Files are analyzed by a pool of workers, each one using its own instances of the checks and of the parser, as
+   * both keep state while processing a file. Results are saved by the current thread in the order of the input files, so the
+   * outcome is the same as for a sequential analysis. At most two files per worker are pending at any time.
+   * The cache is only accessed by the current thread.
+   */
+  private void analyseInParallel(SensorContext context, AnalysisCache cache, List<InputFile> inputFiles, int threads, ProgressReport progressReport) {
+    BlockingQueue<FileAnalyzer> workerAnalyzers = new ArrayBlockingQueue<>(threads);
+    List<FileAnalyzer> otherAnalyzers = new ArrayList<>();
+    workerAnalyzers.add(analyzer);
+    for (int i = 1; i < threads; i++) {
+      FileAnalyzer otherAnalyzer = createAnalyzer();
+      otherAnalyzer.resetTimings(analyzer.timings.isEnabled());
+      otherAnalyzer.setParseLimits(analyzer.parseTimeoutMillis, analyzer.maxFileLength);
+      otherAnalyzers.add(otherAnalyzer);
+      workerAnalyzers.add(otherAnalyzer);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new AnalysisThreadFactory());
+    try {
+      Deque<Future<FileAnalysisResult>> pending = new ArrayDeque<>();
+      Iterator<InputFile> filesToSubmit = inputFiles.iterator();
+      while (filesToSubmit.hasNext() || !pending.isEmpty()) {
+        while (filesToSubmit.hasNext() && pending.size() < 2 * threads) {
+          InputFile inputFile = filesToSubmit.next();
+          FileContent fileContent = new FileContent(inputFile);
+          FileAnalysisResult cachedResult = cache.read(inputFile, fileContent);
+          if (cachedResult != null && cache.isComplete(cachedResult)) {
+            pending.add(CompletableFuture.completedFuture(cachedResult));
+          } else {
+            boolean hashContent = cache.isEnabled();
+            pending.add(executor.submit(() -> analyseFileWithWorkerAnalyzer(inputFile, fileContent, workerAnalyzers, hashContent, cachedResult)));
+          }
+        }
+        save(context, cache, pending.remove().get());
+        progressReport.nextFile();
+      }
+      otherAnalyzers.forEach(otherAnalyzer -> analyzer.timings.merge(otherAnalyzer.timings));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Flex analysis has been interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Flex analysis failed", cause);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
-  private void analyseFile(SensorContext context, Charset charset, InputFile inputFile) {
-    String fileContent;
+  private static FileAnalysisResult analyseFileWithWorkerAnalyzer(InputFile inputFile, FileContent content, BlockingQueue<FileAnalyzer> workerAnalyzers,
+    boolean hashContent, @Nullable FileAnalysisResult cachedResult) throws InterruptedException {
+    FileAnalyzer analyzerOfWorker = workerAnalyzers.take();
     try {
-      fileContent = inputFile.contents();
-    } catch (IOException e) {
-      throw new IllegalStateException("Cannot read " + inputFile, e);
+      return analyseFile(inputFile, content, analyzerOfWorker, hashContent, cachedResult);
+    } finally {
+      workerAnalyzers.add(analyzerOfWorker);
     }
+  }
+
+  private FileAnalyzer createAnalyzer() {
+    return new FileAnalyzer(checkFactory
+      .<FlexCheck>create(CheckList.REPOSITORY_KEY)
+      .addAnnotatedChecks(CheckList.getChecks()));
+  }
 
-    Parser<LexerlessGrammar> parser = FlexParser.create(charset);
+  /**
+   * @param content content of the file, which may already have been read to check the cached result
+   * @param cachedResult partial result of a previous analysis of the same content, whose rules are not executed again
+   */
+  private static FileAnalysisResult analyseFile(InputFile inputFile, FileContent content, FileAnalyzer fileAnalyzer, boolean hashContent,
+    @Nullable FileAnalysisResult cachedResult) {
+    AnalysisTimings timings = fileAnalyzer.timings;
+    timings.startFile();
+    long start = timings.now();
+    String fileContent = content.get();
+    start = timings.recordPhase(Phase.READ, start);
+
+    Charset charset = inputFile.charset();
+    FileAnalysisResult result = new FileAnalysisResult(inputFile);
+    boolean cacheable = hashContent;
     FlexVisitorContext visitorContext;
     try {
-      visitorContext = new FlexVisitorContext(fileContent, parser.parse(fileContent));
-      saveMeasures(context, inputFile, visitorContext);
+      visitorContext = new FlexVisitorContext(fileContent, fileAnalyzer.parser(charset).parse(fileContent));
+      start = timings.recordPhase(Phase.PARSE, start);
+      result.setMeasures(measures(visitorContext, timings, start));
     } catch (RecognitionException e) {
+      start = timings.recordPhase(Phase.PARSE, start);
       visitorContext = new FlexVisitorContext(fileContent, e);
-      LOG.error("Unable to parse file: {}", inputFile);
-      LOG.error(e.getMessage());
+      result.setParseError(e.getMessage());
+      // the file may be parsed next time, with other limits or on a faster machine
+      cacheable &= !(e instanceof ParseLimitException);
+    }
+    if (cacheable) {
+      byte[] cachedContentHash = cachedResult == null ? null : cachedResult.contentHash();
+      result.setContentHash(cachedContentHash == null ? AnalysisCache.contentHash(fileContent) : cachedContentHash);
     }
 
-    for (FlexCheck check : checks.all()) {
-      saveIssues(context, check, check.scanFileForIssues(visitorContext), inputFile);
+    start = timings.now();
+    fileAnalyzer.scanFile(visitorContext, result, cachedResult == null ? Collections.emptyMap() : cachedResult.issues());
+    start = timings.recordPhase(Phase.CHECKS, start);
+
+    new FlexTokensVisitor(charset, result).scanFile(visitorContext);
+    timings.recordPhase(Phase.TOKENS, start);
+    timings.endFile(inputFile, fileContent.length());
+    return result;
+  }
+
+  private void save(SensorContext context, AnalysisCache cache, FileAnalysisResult result) {
+    String parseError = result.parseError();
+    if (parseError != null) {
+      LOG.error("Unable to parse file: {}", result.inputFile());
+      LOG.error(parseError);
     }
+    result.save(context, fileLinesContextFactory);
+    cache.write(result);
+  }
 
-    new FlexTokensVisitor(context, FlexLexer.create(charset), inputFile).scanFile(visitorContext);
+  private static FileAnalysisResult.Measures measures(FlexVisitorContext visitorContext, AnalysisTimings timings, long start) {
+    FileMetrics metrics = new FileMetrics(visitorContext);
+    timings.recordPhase(Phase.METRICS, start);
+    return new FileAnalysisResult.Measures(
+      metrics.linesOfCode(),
+      metrics.commentLines().cardinality(),
+      metrics.numberOfClasses(),
+      metrics.numberOfFunctions(),
+      metrics.numberOfStatements(),
+      metrics.complexity(),
+      metrics.executableLines());
   }
 
-  private void saveIssues(SensorContext context, FlexCheck check, List<Issue> issues, InputFile inputFile) {
-    for (Issue flexIssue : issues) {
-      RuleKey ruleKey = checks.ruleKey(check);
-      NewIssue issue = context.newIssue();
-      NewIssueLocation location = issue.newLocation()
-        .on(inputFile)
-        .message(flexIssue.message());
-      Integer line = flexIssue.line();
-      if (line != null) {
-        location.at(inputFile.selectLine(line));
+  /**
+   * What is reused from one file to the next: instances of the active checks, along with the dispatcher which runs
+   * all of them with a single walk over each AST, and the parser, which is costly to create as it compiles the whole
+   * grammar. None of them can be used by several threads at the same time, and neither can the timings which are
+   * recorded by the worker using this analyzer.
+   */
+  private static class FileAnalyzer {
+
+    private final Checks<FlexCheck> checks;
+    private final List<FlexCheck> all;
+    private final FlexVisitorDispatcher dispatcher;
+    private Parser<LexerlessGrammar> parser;
+    private Charset parserCharset;
+    private AnalysisTimings timings = new AnalysisTimings(false);
+    private long parseTimeoutMillis;
+    private int maxFileLength;
+
+    FileAnalyzer(Checks<FlexCheck> checks) {
+      this.checks = checks;
+      this.all = new ArrayList<>(checks.all());
+      this.dispatcher = new FlexVisitorDispatcher(all);
+    }
+
+    Parser<LexerlessGrammar> parser(Charset charset) {
+      if (parser == null || !charset.equals(parserCharset)) {
+        parser = FlexParser.create(charset, parseTimeoutMillis, maxFileLength);
+        parserCharset = charset;
+      }
+      return parser;
+    }
+
+    void resetTimings(boolean enabled) {
+      timings = new AnalysisTimings(enabled);
+    }
+
+    /**
+     * @param timeoutMillis maximum duration of the parse of a file, or 0 for no limit
+     * @param maxLength maximum number of characters of a parsed file, or 0 for no limit
+     */
+    void setParseLimits(long timeoutMillis, int maxLength) {
+      if (timeoutMillis != parseTimeoutMillis || maxLength != maxFileLength) {
+        parseTimeoutMillis = timeoutMillis;
+        maxFileLength = maxLength;
+        parser = null;
+      }
+    }
+
+    Map<RuleKey, Long> parametersHashes() {
+      Map<RuleKey, Long> hashes = new HashMap<>();
+      for (FlexCheck check : all) {
+        hashes.put(checks.ruleKey(check), AnalysisCache.parametersHash(check));
       }
-      Double cost = flexIssue.cost();
-      if (cost != null) {
-        issue.gap(cost);
+      return hashes;
+    }
+
+    /**
+     * @param cachedIssues issues of the rules which do not have to be executed
+     */
+    void scanFile(FlexVisitorContext visitorContext, FileAnalysisResult result, Map<RuleKey, List<Issue>> cachedIssues) {
+      List<FlexCheck> checksToRun = all;
+      FlexVisitorDispatcher checksDispatcher = dispatcher;
+      if (!cachedIssues.isEmpty()) {
+        checksToRun = all.stream()
+          .filter(check -> !cachedIssues.containsKey(checks.ruleKey(check)))
+          .collect(Collectors.toList());
+        checksDispatcher = new FlexVisitorDispatcher(checksToRun);
+      }
+      if (timings.isEnabled()) {
+        long[] nanos = new long[checksToRun.size()];
+        checksDispatcher.scanFile(visitorContext, nanos);
+        for (int i = 0; i < nanos.length; i++) {
+          FlexCheck check = checksToRun.get(i);
+          if (checksDispatcher.isSkipped(i)) {
+            timings.recordSkippedRule(checks.ruleKey(check));
+          } else {
+            timings.recordRule(checks.ruleKey(check), nanos[i], check.getIssues().size());
+          }
+        }
+      } else {
+        checksDispatcher.scanFile(visitorContext);
+      }
+      for (FlexCheck check : all) {
+        RuleKey ruleKey = checks.ruleKey(check);
+        List<Issue> issues = cachedIssues.get(ruleKey);
+        result.addIssues(ruleKey, issues != null ? issues : check.getIssues());
       }
-      issue.at(location).forRule(Objects.requireNonNull(ruleKey)).save();
     }
   }
 
-  private void saveMeasures(SensorContext context, InputFile inputFile, FlexVisitorContext visitorContext) {
-    FileMetrics metrics = new FileMetrics(visitorContext);
-    saveMeasure(context, inputFile, CoreMetrics.NCLOC, metrics.linesOfCode().size());
-    saveMeasure(context, inputFile, CoreMetrics.COMMENT_LINES, metrics.commentLines().size());
-    saveMeasure(context, inputFile, CoreMetrics.CLASSES, metrics.numberOfClasses());
-    saveMeasure(context, inputFile, CoreMetrics.FUNCTIONS, metrics.numberOfFunctions());
-    saveMeasure(context, inputFile, CoreMetrics.STATEMENTS, metrics.numberOfStatements());
-    context.<String>newMeasure().on(inputFile).forMetric(CoreMetrics.EXECUTABLE_LINES_DATA).withValue(metrics.executableLines()).save();
-
-    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    metrics.linesOfCode().forEach(line -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1));
-    fileLinesContext.save();
-
-    AstNode root = visitorContext.rootTree();
-    int fileComplexity = ComplexityVisitor.complexity(Objects.requireNonNull(root));
-    saveMeasure(context, inputFile, CoreMetrics.COMPLEXITY, fileComplexity);
+  /**
+   * Content of a file, which is read at most once, either to check the cached result of the file or to analyze it.
+   * It is only accessed by one thread at a time: the current thread, then the worker which analyzes the file.
+   */
+  private static class FileContent implements Supplier<String> {
+
+    private final InputFile inputFile;
+    private String content;
+
+    FileContent(InputFile inputFile) {
+      this.inputFile = inputFile;
+    }
+
+    @Override
+    public String get() {
+      if (content == null) {
+        try {
+          content = inputFile.contents();
+        } catch (IOException e) {
+          throw new IllegalStateException("Cannot read " + inputFile, e);
+        }
+      }
+      return content;
+    }
   }
 
-  private static void saveMeasure(SensorContext context, InputFile inputFile, Metric<Integer> metric, int value) {
-    context.<Integer>newMeasure()
-      .on(inputFile)
-      .forMetric(metric)
-      .withValue(value)
-      .save();
+  private static class AnalysisThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sonar-flex-analysis-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 
 }
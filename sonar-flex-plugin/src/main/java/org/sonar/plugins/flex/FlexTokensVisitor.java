@@ -22,59 +22,113 @@ import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.api.Trivia;
-import com.sonar.sslr.impl.Lexer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
-import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.sensor.SensorContext;
-import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
-import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.flex.FlexKeyword;
 import org.sonar.flex.FlexVisitor;
-import org.sonar.flex.api.FlexKeyword;
 import org.sonar.flex.api.FlexPunctuator;
 import org.sonar.flex.api.FlexTokenType;
+import org.sonar.flex.lexer.FlexLexer;
 
+/**
+ * Computes highlighting and CPD tokens from the tokens of the AST.
+ * Files which could not be parsed have no AST, so their content is tokenized with {@link FlexLexer} instead.
+ */
 public class FlexTokensVisitor extends FlexVisitor {
 
   private static final String NORMALIZED_CHARACTER_LITERAL = "$CHARS";
   private static final String NORMALIZED_NUMERIC_LITERAL = "$NUMBER";
-  private static final Set<FlexKeyword> KEYWORDS = EnumSet.allOf(FlexKeyword.class);
+  private static final Set<org.sonar.flex.api.FlexKeyword> LEXER_KEYWORDS = EnumSet.allOf(org.sonar.flex.api.FlexKeyword.class);
+
+  /**
+   * Keywords of the grammar which are highlighted: the same ones as the keywords of the lexer.
+   */
+  private static final Set<FlexKeyword> KEYWORDS = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.stream(FlexKeyword.values())
+    .filter(keyword -> Arrays.asList(org.sonar.flex.api.FlexKeyword.keywordValues()).contains(keyword.getValue()))
+    .collect(Collectors.toList())));
+
+  private static final Set<AstNodeType> NUMBERS = Collections.unmodifiableSet(EnumSet.of(FlexGrammar.DECIMAL, FlexGrammar.HEXADECIMAL, FlexGrammar.OCTAL));
+  private static final Set<AstNodeType> STRINGS = Collections.unmodifiableSet(EnumSet.of(FlexGrammar.STRING, FlexGrammar.XML_ATTRIBUTE_VALUE));
 
-  private final SensorContext context;
-  private final Lexer lexer;
-  private final InputFile inputFile;
+  private final Charset charset;
+  private final FileAnalysisResult result;
 
-  public FlexTokensVisitor(SensorContext context, Lexer lexer, InputFile inputFile) {
-    this.context = context;
-    this.lexer = lexer;
-    this.inputFile = inputFile;
+  // we currently use this hack to remove "import" directives
+  private boolean importDirective;
+  private boolean startsWithBom;
+  private Token literalToken;
+  private String literalImage;
+
+  FlexTokensVisitor(Charset charset, FileAnalysisResult result) {
+    this.charset = charset;
+    this.result = result;
   }
 
   @Override
   public List<AstNodeType> subscribedTo() {
-    return Collections.emptyList();
+    List<AstNodeType> types = new ArrayList<>(KEYWORDS);
+    types.addAll(NUMBERS);
+    types.addAll(STRINGS);
+    types.add(FlexGrammar.IMPORT_DIRECTIVE);
+    return types;
   }
 
   @Override
   public void visitFile(@Nullable AstNode astNode) {
-    NewHighlighting highlighting = context.newHighlighting();
-    highlighting.onFile(inputFile);
+    importDirective = false;
+    literalToken = null;
+    startsWithBom = getContext().fileContent().startsWith("\ufeff");
+    if (astNode == null) {
+      lexFileContent();
+    }
+  }
+
+  @Override
+  public void visitNode(AstNode astNode) {
+    if (astNode.is(FlexGrammar.IMPORT_DIRECTIVE)) {
+      importDirective = true;
+    } else if (KEYWORDS.contains(astNode.getType())) {
+      highlight(astNode.getToken(), TypeOfText.KEYWORD);
+    } else if (NUMBERS.contains(astNode.getType())) {
+      literal(astNode.getToken(), TypeOfText.CONSTANT, NORMALIZED_NUMERIC_LITERAL);
+    } else {
+      literal(astNode.getToken(), TypeOfText.STRING, NORMALIZED_CHARACTER_LITERAL);
+    }
+  }
+
+  private void literal(Token token, TypeOfText typeOfText, String image) {
+    highlight(token, typeOfText);
+    literalToken = token;
+    literalImage = image;
+  }
 
-    NewCpdTokens cpdTokens = context.newCpdTokens();
-    cpdTokens.onFile(inputFile);
+  @Override
+  public void visitToken(Token token) {
+    if (importDirective) {
+      // We do nothing as we want to ignore "import" directives
+      if (";".equals(token.getValue())) {
+        importDirective = false;
+      }
+    } else if (!token.getType().equals(GenericTokenType.EOF) && !token.getValue().trim().isEmpty()) {
+      // Tokens made of whitespaces are line terminators ending statements, or whitespaces of XML literals
+      result.addCpdToken(location(token), token == literalToken ? literalImage : token.getValue());
+    }
+    highlightComments(token);
+  }
 
-    Iterator<Token> iterator = lexer.lex(getContext().fileContent()).iterator();
-    // we currently use this hack to remove "import" directives
-    boolean importDirective = false;
-    while (iterator.hasNext()) {
-      Token token = iterator.next();
+  private void lexFileContent() {
+    for (Token token : FlexLexer.create(charset).lex(getContext().fileContent())) {
       TokenType tokenType = token.getType();
-      if (tokenType.equals(FlexKeyword.IMPORT)) {
+      if (tokenType.equals(org.sonar.flex.api.FlexKeyword.IMPORT)) {
         importDirective = true;
       } else if (importDirective) {
         // We do nothing as we want to ignore "import" directives
@@ -82,23 +136,17 @@ public class FlexTokensVisitor extends FlexVisitor {
           importDirective = false;
         }
       } else if (!tokenType.equals(GenericTokenType.EOF)) {
-        TokenLocation tokenLocation = new TokenLocation(token);
-        cpdTokens.addToken(tokenLocation.startLine(), tokenLocation.startCharacter(), tokenLocation.endLine(), tokenLocation.endCharacter(), getTokenImage(token));
+        result.addCpdToken(location(token), getTokenImage(token));
       }
       if (tokenType.equals(FlexTokenType.NUMERIC_LITERAL)) {
-        highlight(highlighting, token, TypeOfText.CONSTANT);
+        highlight(token, TypeOfText.CONSTANT);
       } else if (tokenType.equals(GenericTokenType.LITERAL)) {
-        highlight(highlighting, token, TypeOfText.STRING);
-      } else if (KEYWORDS.contains(tokenType)) {
-        highlight(highlighting, token, TypeOfText.KEYWORD);
-      }
-      for (Trivia trivia : token.getTrivia()) {
-        highlight(highlighting, trivia.getToken(), TypeOfText.COMMENT);
+        highlight(token, TypeOfText.STRING);
+      } else if (LEXER_KEYWORDS.contains(tokenType)) {
+        highlight(token, TypeOfText.KEYWORD);
       }
+      highlightComments(token);
     }
-
-    highlighting.save();
-    cpdTokens.save();
   }
 
   private static String getTokenImage(Token token) {
@@ -110,9 +158,26 @@ public class FlexTokensVisitor extends FlexVisitor {
     return token.getValue();
   }
 
-  private static void highlight(NewHighlighting highlighting, Token token, TypeOfText typeOfText) {
-    TokenLocation tokenLocation = new TokenLocation(token);
-    highlighting.highlight(tokenLocation.startLine(), tokenLocation.startCharacter(), tokenLocation.endLine(), tokenLocation.endCharacter(), typeOfText);
+  private void highlightComments(Token token) {
+    for (Trivia trivia : token.getTrivia()) {
+      highlight(trivia.getToken(), TypeOfText.COMMENT);
+    }
+  }
+
+  private void highlight(Token token, TypeOfText typeOfText) {
+    result.addHighlight(location(token), typeOfText);
+  }
+
+  /**
+   * Like {@link FlexLexer}, ignores the byte order mark when computing columns of the first line.
+   */
+  private TokenLocation location(Token token) {
+    TokenLocation location = new TokenLocation(token);
+    if (!startsWithBom || token.getLine() != 1 || getContext().rootTree() == null) {
+      return location;
+    }
+    int endCharacter = location.endLine() == 1 ? (location.endCharacter() - 1) : location.endCharacter();
+    return new TokenLocation(location.startLine(), location.startCharacter() - 1, location.endLine(), endCharacter);
   }
 
 }
@@ -38,6 +38,13 @@ public class TokenLocation {
     }
   }
 
+  public TokenLocation(int startLine, int startCharacter, int endLine, int endCharacter) {
+    this.startLine = startLine;
+    this.startCharacter = startCharacter;
+    this.endLine = endLine;
+    this.endCharacter = endCharacter;
+  }
+
   public int startLine() {
     return startLine;
   }
@@ -0,0 +1,146 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.flex.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class AnalysisCacheSerializerTest {
+
+  private static final RuleKey RULE_1 = RuleKey.of("flex", "S1");
+  private static final RuleKey RULE_2 = RuleKey.of("flex", "S2");
+  private static final InputFile INPUT_FILE = TestInputFileBuilder.create("key", "file.as").build();
+
+  @Test
+  public void round_trip() throws IOException {
+    FileAnalysisResult result = new FileAnalysisResult(INPUT_FILE);
+    result.setParseError("error");
+    result.setMeasures(new FileAnalysisResult.Measures(lines(1, 2, 300), 4, 5, 6, 7, 8, "1=1;"));
+    result.addHighlight(new TokenLocation(1, 0, 1, 7), TypeOfText.KEYWORD);
+    result.addHighlight(new TokenLocation(2, 4, 5, 2), TypeOfText.COMMENT);
+    result.addCpdToken(new TokenLocation(1, 0, 1, 1), "(");
+    result.addCpdToken(new TokenLocation(1, 1, 1, 2), ")");
+    result.addCpdToken(new TokenLocation(200, 1000, 200, 1001), "(");
+    result.addIssues(RULE_1, Arrays.asList(Issue.fileIssue("file"), Issue.lineIssue(3, "line"), Issue.lineIssue(4, "cost", 2.5)));
+    result.addIssues(RULE_2, Collections.emptyList());
+    Map<RuleKey, Long> parametersHashes = new HashMap<>();
+    parametersHashes.put(RULE_1, 1L);
+    parametersHashes.put(RULE_2, Long.MIN_VALUE);
+
+    DataInputStream in = input(AnalysisCacheSerializer.serialize(new AnalysisCacheSerializer.Header("1.0", new byte[] {1, 2, 3}), result, parametersHashes));
+    AnalysisCacheSerializer.Header header = AnalysisCacheSerializer.readHeader(in);
+    assertThat(header.pluginVersion).isEqualTo("1.0");
+    assertThat(header.contentHash).containsExactly(1, 2, 3);
+    FileAnalysisResult read = new FileAnalysisResult(INPUT_FILE);
+    assertThat(AnalysisCacheSerializer.readResult(in, read, parametersHashes)).isZero();
+
+    assertThat(read.parseError()).isEqualTo("error");
+    FileAnalysisResult.Measures measures = read.measures();
+    assertThat(measures.linesOfCode.stream().toArray()).containsExactly(1, 2, 300);
+    assertThat(Arrays.asList(measures.commentLines, measures.classes, measures.functions, measures.statements, measures.complexity)).containsExactly(4, 5, 6, 7, 8);
+    assertThat(measures.executableLines).isEqualTo("1=1;");
+    assertThat(read.highlightings())
+      .extracting(highlight -> location(highlight.location) + " " + highlight.typeOfText)
+      .containsExactly("1:0-1:7 KEYWORD", "2:4-5:2 COMMENT");
+    assertThat(read.cpdTokens())
+      .extracting(cpdToken -> location(cpdToken.location) + " " + cpdToken.image)
+      .containsExactly("1:0-1:1 (", "1:1-1:2 )", "200:1000-200:1001 (");
+    assertThat(read.issues()).containsOnlyKeys(RULE_1, RULE_2);
+    assertThat(read.issues().get(RULE_1)).extracting(Issue::line, Issue::message, Issue::cost)
+      .containsExactly(
+        tuple(null, "file", null),
+        tuple(3, "line", null),
+        tuple(4, "cost", 2.5));
+    assertThat(read.issues().get(RULE_2)).isEmpty();
+  }
+
+  @Test
+  public void discard_rules_with_other_parameters_or_inactive() throws IOException {
+    FileAnalysisResult result = new FileAnalysisResult(INPUT_FILE);
+    result.addIssues(RULE_1, Collections.singletonList(Issue.lineIssue(1, "message")));
+    result.addIssues(RULE_2, Collections.singletonList(Issue.lineIssue(2, "message")));
+    Map<RuleKey, Long> parametersHashes = new HashMap<>();
+    parametersHashes.put(RULE_1, 1L);
+    parametersHashes.put(RULE_2, 2L);
+    byte[] bytes = AnalysisCacheSerializer.serialize(new AnalysisCacheSerializer.Header("1.0", new byte[0]), result, parametersHashes);
+
+    FileAnalysisResult read = new FileAnalysisResult(INPUT_FILE);
+    DataInputStream in = input(bytes);
+    AnalysisCacheSerializer.readHeader(in);
+    assertThat(AnalysisCacheSerializer.readResult(in, read, Collections.singletonMap(RULE_1, 3L))).isEqualTo(2);
+    assertThat(read.issues()).isEmpty();
+  }
+
+  @Test
+  public void other_format() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    AnalysisCacheSerializer.writeVarInt(new DataOutputStream(bytes), AnalysisCacheSerializer.FORMAT_VERSION + 1);
+    assertThat(AnalysisCacheSerializer.readHeader(input(bytes.toByteArray()))).isNull();
+  }
+
+  @Test
+  public void var_int() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    int[] values = {0, 127, 128, 16_383, 16_384, Integer.MAX_VALUE};
+    for (int value : values) {
+      AnalysisCacheSerializer.writeVarInt(out, value);
+    }
+    assertThat(bytes.size()).isEqualTo(1 + 1 + 2 + 2 + 3 + 5);
+    DataInputStream in = input(bytes.toByteArray());
+    for (int value : values) {
+      assertThat(AnalysisCacheSerializer.readVarInt(in)).isEqualTo(value);
+    }
+    assertThatThrownBy(() -> AnalysisCacheSerializer.readVarInt(in)).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> AnalysisCacheSerializer.writeVarInt(out, -1)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static DataInputStream input(byte[] bytes) {
+    return new DataInputStream(new ByteArrayInputStream(bytes));
+  }
+
+  private static String location(TokenLocation location) {
+    return location.startLine() + ":" + location.startCharacter() + "-" + location.endLine() + ":" + location.endCharacter();
+  }
+
+  private static BitSet lines(int... lines) {
+    BitSet bitSet = new BitSet();
+    for (int line : lines) {
+      bitSet.set(line);
+    }
+    return bitSet;
+  }
+
+}
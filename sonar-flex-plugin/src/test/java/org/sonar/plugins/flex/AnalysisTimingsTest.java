@@ -0,0 +1,81 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.flex;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.flex.AnalysisTimings.Phase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisTimingsTest {
+
+  @Test
+  public void slowest_files_are_bounded() {
+    AnalysisTimings first = new AnalysisTimings(true);
+    AnalysisTimings second = new AnalysisTimings(true);
+    for (int i = 1; i <= 2 * AnalysisTimings.TOP_OFFENDERS; i++) {
+      record(i % 2 == 0 ? first : second, "file" + i + ".as", i);
+    }
+    first.merge(second);
+
+    assertThat(first.slowestFiles()).extracting(file -> file.path).containsExactly(
+      "file20.as", "file19.as", "file18.as", "file17.as", "file16.as", "file15.as", "file14.as", "file13.as", "file12.as", "file11.as");
+    assertThat(first.phases()).extracting(stats -> stats.name + ":" + stats.files).containsExactly("parse:20");
+  }
+
+  @Test
+  public void skipped_rules() {
+    AnalysisTimings first = new AnalysisTimings(true);
+    AnalysisTimings second = new AnalysisTimings(true);
+    RuleKey ruleKey = RuleKey.of("flex", "S1");
+    first.recordRule(ruleKey, 10, 1);
+    first.recordSkippedRule(ruleKey);
+    second.recordSkippedRule(ruleKey);
+    second.recordSkippedRule(RuleKey.of("flex", "S2"));
+    first.merge(second);
+
+    assertThat(first.rules()).extracting(stats -> stats.name + ":" + stats.files + ":" + stats.skippedFiles).containsExactly("flex:S1:1:2", "flex:S2:0:1");
+  }
+
+  @Test
+  public void disabled() {
+    AnalysisTimings timings = new AnalysisTimings(false);
+    assertThat(timings.now()).isZero();
+    record(timings, "file.as", 1);
+    timings.recordSkippedRule(RuleKey.of("flex", "S1"));
+    assertThat(timings.phases()).isEmpty();
+    assertThat(timings.rules()).isEmpty();
+    assertThat(timings.slowestFiles()).isEmpty();
+  }
+
+  @Test
+  public void json_string() {
+    assertThat(AnalysisTimings.jsonString("a\"b\\c\n")).isEqualTo("\"a\\\"b\\\\c\\u000a\"");
+  }
+
+  /**
+   * Records a parse of the given number of seconds, by starting it in the past.
+   */
+  private static void record(AnalysisTimings timings, String path, int seconds) {
+    timings.startFile();
+    timings.recordPhase(Phase.PARSE, System.nanoTime() - seconds * 1_000_000_000L);
+    timings.endFile(TestInputFileBuilder.create("key", path).setLines(1).build(), 0);
+  }
+
+}
@@ -16,14 +16,30 @@
  */
 package org.sonar.plugins.flex;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.sonar.api.SonarEdition;
 import org.sonar.api.SonarQubeSide;
@@ -36,6 +52,8 @@ import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
@@ -47,17 +65,24 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.flex.Issue;
+import org.sonar.flex.checks.BooleanEqualityComparisonCheck;
+import org.sonar.flex.checks.FunctionComplexityCheck;
 import org.sonar.plugins.flex.core.Flex;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class FlexSquidSensorTest {
 
   private static final File TEST_DIR = new File("src/test/resources/org/sonar/plugins/flex/squid");
+  private static final RuleKey BOOLEAN_EQUALITY_COMPARISON = RuleKey.of("flex", "S1125");
+  private static final RuleKey FUNCTION_COMPLEXITY = RuleKey.of("flex", "FunctionComplexity");
   private static final SonarRuntime SONARQUBE_89 = SonarRuntimeImpl.forSonarQube(Version.create(8, 9), SonarQubeSide.SCANNER, SonarEdition.DEVELOPER);
 
   private FlexSquidSensor sensor;
@@ -72,10 +97,20 @@ public class FlexSquidSensorTest {
     tester = SensorContextTester.create(TEST_DIR);
   }
 
-  private FlexSquidSensor createSensor(SonarRuntime sonarRuntime) {
+  private static ActiveRules activeRules(NewActiveRule... otherRules) {
     ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
-    activeRulesBuilder.addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of("flex", "S1125")).setSeverity("BLOCKER").build());
-    ActiveRules activeRules = activeRulesBuilder.build();
+    activeRulesBuilder.addRule(new NewActiveRule.Builder().setRuleKey(BOOLEAN_EQUALITY_COMPARISON).setSeverity("BLOCKER").build());
+    for (NewActiveRule otherRule : otherRules) {
+      activeRulesBuilder.addRule(otherRule);
+    }
+    return activeRulesBuilder.build();
+  }
+
+  private FlexSquidSensor createSensor(SonarRuntime sonarRuntime) {
+    return createSensor(sonarRuntime, activeRules());
+  }
+
+  private FlexSquidSensor createSensor(SonarRuntime sonarRuntime, ActiveRules activeRules) {
     CheckFactory checkFactory = new CheckFactory(activeRules);
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
     FileLinesContext fileLinesContext = mock(FileLinesContext.class);
@@ -123,12 +158,17 @@ public class FlexSquidSensorTest {
   private DefaultInputFile inputFile(String fileName) throws IOException {
     File file = new File(TEST_DIR, fileName);
     String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    return inputFile(fileName, content, InputFile.Status.ADDED);
+  }
 
+  private static DefaultInputFile inputFile(String fileName, String content, InputFile.Status status) {
     return TestInputFileBuilder.create("key", fileName)
       .setModuleBaseDir(Paths.get(TEST_DIR.getAbsolutePath()))
       .setType(InputFile.Type.MAIN)
       .setLanguage(Flex.KEY)
       .setCharset(StandardCharsets.UTF_8)
+      .setStatus(status)
+      .setContents(content)
       .initMetadata(content)
       .build();
   }
@@ -165,9 +205,419 @@ public class FlexSquidSensorTest {
     fs.add(inputFile);
     sensor.execute(tester);
     assertThat(tester.measure(inputFile.key(), CoreMetrics.NCLOC)).isNull();
+    // the file is tokenized by the lexer instead
+    assertThat(tester.cpdTokens(inputFile.key())).hasSize(3);
+    assertThat(tester.highlightingTypeAt(inputFile.key(), 1, 4)).containsOnly(TypeOfText.CONSTANT);
     assertThat(logTester.logs(LoggerLevel.ERROR).stream().filter(log -> log.startsWith("Unable to parse file: ") && log.endsWith("parse_error.as"))).isNotEmpty();
   }
 
+  @Test
+  public void file_over_size_limit() {
+    createSensor(SONARQUBE_89, activeRules(new NewActiveRule.Builder().setRuleKey(RuleKey.of("flex", "ParsingError")).build()));
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    tester.setFileSystem(fs);
+    tester.settings().setProperty(FlexPlugin.MAX_FILE_SIZE_KEY, 1);
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      content.append("var a = true == b;\n");
+    }
+    DefaultInputFile inputFile = inputFile("large.as", content.toString(), InputFile.Status.ADDED);
+    fs.add(inputFile);
+    sensor.execute(tester);
+
+    assertThat(tester.measure(inputFile.key(), CoreMetrics.NCLOC)).isNull();
+    assertThat(tester.cpdTokens(inputFile.key())).hasSize(100);
+    assertThat(tester.highlightingTypeAt(inputFile.key(), 1, 0)).containsOnly(TypeOfText.KEYWORD);
+    // no issue of BooleanEqualityComparisonCheck, which needs the tree
+    assertThat(tester.allIssues()).extracting(issue -> issue.ruleKey().rule(), issue -> issue.primaryLocation().message())
+      .containsExactly(tuple("ParsingError", "Parse skipped: the file has 1900 characters, more than the limit of 1024"));
+    assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Unable to parse file: large.as");
+  }
+
+  @Test
+  public void invalid_parse_limits() throws IOException {
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    tester.setFileSystem(fs);
+    tester.settings().setProperty(FlexPlugin.PARSE_TIMEOUT_KEY, -1);
+    fs.add(inputFile("SmallFile.as"));
+    sensor.execute(tester);
+    assertThat(tester.measure("key:SmallFile.as", CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Invalid value -1 for property \"sonar.flex.analysis.parseTimeout\", no limit is applied");
+  }
+
+  @Test
+  public void analyse_in_parallel() throws IOException {
+    String[] fileNames = {"SmallFile.as", "bom.as", "TimeFormatter.as", "parse_error.as", "package1.as", "package2.as", "package3.as"};
+    SensorContextTester sequentialTester = analyseFiles(SensorContextTester.create(TEST_DIR), fileNames);
+    SensorContextTester parallelTester = SensorContextTester.create(TEST_DIR);
+    parallelTester.settings().setProperty(FlexPlugin.ANALYSIS_THREADS_KEY, 3);
+    analyseFiles(parallelTester, fileNames);
+
+    for (String fileName : fileNames) {
+      String componentKey = "key:" + fileName;
+      assertThat(parallelTester.measures(componentKey))
+        .extracting(measure -> measure.metric().key() + "=" + measure.value())
+        .containsExactlyInAnyOrderElementsOf(sequentialTester.measures(componentKey).stream()
+          .map(measure -> measure.metric().key() + "=" + measure.value())
+          .collect(Collectors.toList()));
+      assertThat(parallelTester.cpdTokens(componentKey)).hasSameSizeAs(sequentialTester.cpdTokens(componentKey));
+    }
+    assertThat(parallelTester.allIssues())
+      .extracting(issue -> issue.ruleKey() + ":" + issue.primaryLocation().inputComponent() + ":" + issue.primaryLocation().textRange())
+      .containsExactlyElementsOf(sequentialTester.allIssues().stream()
+        .map(issue -> issue.ruleKey() + ":" + issue.primaryLocation().inputComponent() + ":" + issue.primaryLocation().textRange())
+        .collect(Collectors.toList()));
+    assertThat(logTester.logs(LoggerLevel.ERROR).stream().filter(log -> log.startsWith("Unable to parse file: ") && log.endsWith("parse_error.as"))).hasSize(2);
+  }
+
+  @Test
+  public void timings(@TempDir Path tempDir) throws IOException {
+    SensorContextTester context = SensorContextTester.create(TEST_DIR);
+    context.settings().setProperty(FlexPlugin.ANALYSIS_THREADS_KEY, 2);
+    context.settings().setProperty(FlexPlugin.TIMINGS_REPORT_PATH_KEY, tempDir.resolve("reports/timings.json").toString());
+    analyseFiles(context, "SmallFile.as", "TimeFormatter.as", "parse_error.as");
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.matches("Time spent by phase of the Flex analysis: content read [0-9.]+ ms, parse [0-9.]+ ms, "
+      + "metrics [0-9.]+ ms, checks [0-9.]+ ms, FlexTokensVisitor [0-9.]+ ms"));
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Slowest rules of the Flex analysis:", "Slowest files of the Flex analysis:");
+    // only SmallFile.as has an equality expression, and parse_error.as has no tree at all
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .anyMatch(log -> log.matches("  flex:S1125: [0-9.]+ ms in total, 1 files, at most [0-9.]+ ms for a file, 1 issues, skipped on 2 files"));
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Rules skipped on files without the nodes they subscribe to: 2 times in total, by 1 rules");
+    assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.matches("  TimeFormatter.as: [0-9.]+ ms, of which [0-9.]+ ms to parse, 103 lines, 3544 characters"));
+
+    JsonObject report = JsonParser.parseString(new String(Files.readAllBytes(tempDir.resolve("reports/timings.json")), StandardCharsets.UTF_8)).getAsJsonObject();
+    JsonArray rules = report.getAsJsonArray("rules");
+    assertThat(rules).hasSize(1);
+    JsonObject rule = rules.get(0).getAsJsonObject();
+    assertThat(rule.get("name").getAsString()).isEqualTo("flex:S1125");
+    assertThat(rule.get("files").getAsInt()).isEqualTo(1);
+    assertThat(rule.get("issues").getAsInt()).isEqualTo(1);
+    assertThat(rule.get("skippedFiles").getAsInt()).isEqualTo(2);
+    assertThat(rule.get("totalMillis").getAsDouble()).isGreaterThanOrEqualTo(rule.get("maxMillis").getAsDouble());
+
+    List<String> phases = new ArrayList<>();
+    report.getAsJsonArray("phases").forEach(phase -> phases.add(phase.getAsJsonObject().get("name").getAsString()
+      + ":" + phase.getAsJsonObject().get("files").getAsInt()));
+    assertThat(phases).containsExactly("content read:3", "parse:3", "metrics:2", "checks:3", "FlexTokensVisitor:3");
+
+    List<Double> totalTimes = new ArrayList<>();
+    List<String> slowestFiles = new ArrayList<>();
+    report.getAsJsonArray("slowestFiles").forEach(element -> {
+      JsonObject file = element.getAsJsonObject();
+      totalTimes.add(file.get("totalMillis").getAsDouble());
+      assertThat(file.get("parseMillis").getAsDouble()).isPositive().isLessThanOrEqualTo(file.get("totalMillis").getAsDouble());
+      slowestFiles.add(file.get("path").getAsString() + ":" + file.get("lines").getAsInt() + ":" + file.get("characters").getAsInt());
+    });
+    assertThat(slowestFiles).containsExactlyInAnyOrder("SmallFile.as:15:179", "TimeFormatter.as:103:3544", "parse_error.as:4:20");
+    assertThat(totalTimes).isSortedAccordingTo(Comparator.reverseOrder());
+  }
+
+  @Test
+  public void no_timings_by_default() throws IOException {
+    analyseFiles(SensorContextTester.create(TEST_DIR), "SmallFile.as");
+    assertThat(logTester.logs(LoggerLevel.INFO)).noneMatch(log -> log.contains("Flex analysis:"));
+  }
+
+  private SensorContextTester analyseFiles(SensorContextTester context, String... fileNames) throws IOException {
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    context.setFileSystem(fs);
+    for (String fileName : fileNames) {
+      fs.add(inputFile(fileName));
+    }
+    sensor.execute(context);
+    return context;
+  }
+
+  @Test
+  public void replay_unchanged_files_from_cache() throws IOException {
+    String[] fileNames = {"SmallFile.as", "bom.as", "parse_error.as"};
+    TestCache firstCache = new TestCache(new TestCache(null));
+    SensorContextTester firstTester = analyseWithCache(cacheTester(), firstCache, fileNames);
+    assertThat(firstCache.data.keySet()).containsExactlyInAnyOrder("flex:analysis:key:SmallFile.as", "flex:analysis:key:bom.as", "flex:analysis:key:parse_error.as");
+    assertThat(cacheLogs()).containsExactly("0/3 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed");
+
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = cacheTester();
+    secondTester.settings().setProperty(FlexPlugin.ANALYSIS_THREADS_KEY, 2);
+    analyseWithCache(secondTester, secondCache, fileNames);
+    assertThat(cacheLogs()).endsWith("3/3 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed");
+    assertThat(secondCache.data).isEqualTo(firstCache.data);
+
+    for (String fileName : fileNames) {
+      String componentKey = "key:" + fileName;
+      assertThat(secondTester.measures(componentKey))
+        .extracting(measure -> measure.metric().key() + "=" + measure.value())
+        .containsExactlyInAnyOrderElementsOf(firstTester.measures(componentKey).stream()
+          .map(measure -> measure.metric().key() + "=" + measure.value())
+          .collect(Collectors.toList()));
+      assertThat(secondTester.cpdTokens(componentKey))
+        .extracting(line -> line.getStartLine() + ":" + line.getValue())
+        .containsExactlyElementsOf(firstTester.cpdTokens(componentKey).stream()
+          .map(line -> line.getStartLine() + ":" + line.getValue())
+          .collect(Collectors.toList()));
+    }
+    assertThat(secondTester.highlightingTypeAt("key:SmallFile.as", 1, 0)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(secondTester.highlightingTypeAt("key:SmallFile.as", 7, 10)).containsOnly(TypeOfText.STRING);
+    assertThat(secondTester.allIssues())
+      .extracting(issue -> issue.ruleKey() + ":" + issue.primaryLocation().inputComponent() + ":" + issue.primaryLocation().textRange()
+        + ":" + issue.primaryLocation().message())
+      .containsExactlyElementsOf(firstTester.allIssues().stream()
+        .map(issue -> issue.ruleKey() + ":" + issue.primaryLocation().inputComponent() + ":" + issue.primaryLocation().textRange()
+          + ":" + issue.primaryLocation().message())
+        .collect(Collectors.toList()))
+      .isNotEmpty();
+  }
+
+  @Test
+  public void analyse_unchanged_files_again_when_they_cannot_be_skipped() throws IOException {
+    // the issue and the measures of the previous analysis are not the actual ones, to tell which ones are replayed
+    DefaultInputFile inputFile = inputFile("SmallFile.as");
+    FileAnalysisResult previousResult = new FileAnalysisResult(inputFile);
+    previousResult.setMeasures(new FileAnalysisResult.Measures(new BitSet(), 0, 0, 0, 0, 0, ""));
+    previousResult.addIssues(BOOLEAN_EQUALITY_COMPARISON, Collections.singletonList(Issue.lineIssue(3, "cached issue")));
+    previousResult.setContentHash(AnalysisCache.contentHash(inputFile.contents()));
+    TestCache firstCache = new TestCache(new TestCache(null));
+    SensorContextTester firstTester = cacheTester();
+    firstTester.setNextCache(firstCache);
+    new AnalysisCache(firstTester, Collections.singletonMap(BOOLEAN_EQUALITY_COMPARISON, AnalysisCache.parametersHash(new BooleanEqualityComparisonCheck())))
+      .write(previousResult);
+
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = cacheTester();
+    secondTester.setCanSkipUnchangedFiles(false);
+    analyseWithCache(secondTester, secondCache, "SmallFile.as");
+
+    assertThat(secondTester.allIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactly("cached issue");
+    assertThat(secondTester.measure("key:SmallFile.as", CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(cacheLogs()).endsWith("0/1 unchanged files reused from the analysis cache, 1 other ones with only new or modified rules executed");
+    assertThat(secondCache.copiedKeys).isEmpty();
+  }
+
+  @Test
+  public void read_files_once_when_cached_result_cannot_be_used() throws IOException {
+    Map<RuleKey, Long> parametersHashes = Collections.singletonMap(BOOLEAN_EQUALITY_COMPARISON, AnalysisCache.parametersHash(new BooleanEqualityComparisonCheck()));
+    TestCache previousCache = new TestCache(null);
+    DefaultInputFile otherVersion = spy(inputFile("SmallFile.as", "var a;\n", InputFile.Status.SAME));
+    DefaultInputFile otherContent = spy(inputFile("bom.as", "var b;\n", InputFile.Status.SAME));
+    previousCache.write(AnalysisCache.key(otherVersion), AnalysisCacheSerializer.serialize(
+      new AnalysisCacheSerializer.Header("other version", AnalysisCache.contentHash("var a;\n")), new FileAnalysisResult(otherVersion), parametersHashes));
+    previousCache.write(AnalysisCache.key(otherContent), AnalysisCacheSerializer.serialize(
+      new AnalysisCacheSerializer.Header("unknown", AnalysisCache.contentHash("var c;\n")), new FileAnalysisResult(otherContent), parametersHashes));
+
+    SensorContextTester context = cacheTester();
+    context.setPreviousCache(previousCache);
+    context.setNextCache(new TestCache(previousCache));
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    context.setFileSystem(fs);
+    fs.add(otherVersion);
+    fs.add(otherContent);
+    sensor.execute(context);
+
+    assertThat(cacheLogs()).containsExactly("0/2 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed");
+    verify(otherVersion, times(1)).contents();
+    verify(otherContent, times(1)).contents();
+  }
+
+  @Test
+  public void execute_again_only_rules_whose_parameters_change_when_files_cannot_be_skipped() throws IOException {
+    // the issue of the previous analysis is not the actual one, to make sure it is replayed rather than computed again
+    DefaultInputFile inputFile = inputFile("SmallFile.as");
+    FileAnalysisResult previousResult = new FileAnalysisResult(inputFile);
+    previousResult.addIssues(BOOLEAN_EQUALITY_COMPARISON, Collections.singletonList(Issue.lineIssue(3, "cached issue")));
+    previousResult.addIssues(FUNCTION_COMPLEXITY, Collections.emptyList());
+    previousResult.setContentHash(AnalysisCache.contentHash(inputFile.contents()));
+    FunctionComplexityCheck functionComplexityCheck = new FunctionComplexityCheck();
+    functionComplexityCheck.setMaximumFunctionComplexityThreshold(10);
+    Map<RuleKey, Long> parametersHashes = new HashMap<>();
+    parametersHashes.put(BOOLEAN_EQUALITY_COMPARISON, AnalysisCache.parametersHash(new BooleanEqualityComparisonCheck()));
+    parametersHashes.put(FUNCTION_COMPLEXITY, AnalysisCache.parametersHash(functionComplexityCheck));
+    TestCache firstCache = new TestCache(new TestCache(null));
+    SensorContextTester firstTester = cacheTester();
+    firstTester.setNextCache(firstCache);
+    new AnalysisCache(firstTester, parametersHashes).write(previousResult);
+
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("1")));
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = cacheTester();
+    secondTester.setCanSkipUnchangedFiles(false);
+    analyseWithCache(secondTester, secondCache, "SmallFile.as");
+
+    assertThat(secondTester.allIssues())
+      .extracting(issue -> issue.ruleKey().rule() + ":" + issue.primaryLocation().textRange().start().line() + ":" + issue.primaryLocation().message())
+      .containsExactly(
+        "S1125:3:cached issue",
+        "FunctionComplexity:11:Function has a complexity of 2 which is greater than 1 authorized.");
+    assertThat(cacheLogs()).endsWith("0/1 unchanged files reused from the analysis cache, 1 other ones with only new or modified rules executed");
+  }
+
+  @Test
+  public void execute_only_new_rules_on_unchanged_files() throws IOException {
+    // the issue of the previous analysis is not the actual one, to make sure it is replayed rather than computed again
+    DefaultInputFile inputFile = inputFile("SmallFile.as");
+    FileAnalysisResult previousResult = new FileAnalysisResult(inputFile);
+    previousResult.addIssues(BOOLEAN_EQUALITY_COMPARISON, Collections.singletonList(Issue.lineIssue(3, "cached issue")));
+    previousResult.setContentHash(AnalysisCache.contentHash(inputFile.contents()));
+    TestCache firstCache = new TestCache(new TestCache(null));
+    SensorContextTester firstTester = cacheTester();
+    firstTester.setNextCache(firstCache);
+    new AnalysisCache(firstTester, Collections.singletonMap(BOOLEAN_EQUALITY_COMPARISON, AnalysisCache.parametersHash(new BooleanEqualityComparisonCheck())))
+      .write(previousResult);
+
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("1")));
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = analyseWithCache(cacheTester(), secondCache, "SmallFile.as");
+    assertThat(secondTester.allIssues())
+      .extracting(issue -> issue.ruleKey().rule() + ":" + issue.primaryLocation().textRange().start().line() + ":" + issue.primaryLocation().message())
+      .containsExactly(
+        "S1125:3:cached issue",
+        "FunctionComplexity:11:Function has a complexity of 2 which is greater than 1 authorized.");
+    assertThat(secondTester.measure("key:SmallFile.as", CoreMetrics.NCLOC).value()).isEqualTo(11);
+
+    TestCache thirdCache = new TestCache(secondCache);
+    SensorContextTester thirdTester = analyseWithCache(cacheTester(), thirdCache, "SmallFile.as");
+    assertThat(thirdTester.allIssues()).hasSize(2);
+    assertThat(thirdCache.copiedKeys).containsExactly("flex:analysis:key:SmallFile.as");
+
+    assertThat(cacheLogs()).containsExactly(
+      "0/1 unchanged files reused from the analysis cache, 1 other ones with only new or modified rules executed",
+      "1/1 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed");
+  }
+
+  @Test
+  public void execute_again_rules_whose_parameters_change() throws IOException {
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("10")));
+    TestCache firstCache = new TestCache(new TestCache(null));
+    SensorContextTester firstTester = analyseWithCache(cacheTester(), firstCache, "SmallFile.as");
+    assertThat(firstTester.allIssues()).extracting(issue -> issue.ruleKey().rule()).containsExactly("S1125");
+
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("1")));
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = analyseWithCache(cacheTester(), secondCache, "SmallFile.as");
+    assertThat(secondTester.allIssues()).extracting(issue -> issue.ruleKey().rule()).containsExactly("S1125", "FunctionComplexity");
+    assertThat(cacheLogs()).endsWith("0/1 unchanged files reused from the analysis cache, 1 other ones with only new or modified rules executed");
+  }
+
+  @Test
+  public void remove_rules_which_are_no_longer_active_from_cache() throws IOException {
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("1")));
+    TestCache firstCache = new TestCache(new TestCache(null));
+    analyseWithCache(cacheTester(), firstCache, "SmallFile.as");
+
+    createSensor(SONARQUBE_89, activeRules());
+    TestCache secondCache = new TestCache(firstCache);
+    SensorContextTester secondTester = analyseWithCache(cacheTester(), secondCache, "SmallFile.as");
+    assertThat(secondTester.allIssues()).extracting(issue -> issue.ruleKey().rule()).containsExactly("S1125");
+    assertThat(secondCache.copiedKeys).isEmpty();
+    assertThat(secondCache.data.get("flex:analysis:key:SmallFile.as").length).isLessThan(firstCache.data.get("flex:analysis:key:SmallFile.as").length);
+
+    createSensor(SONARQUBE_89, activeRules(functionComplexity("1")));
+    analyseWithCache(cacheTester(), new TestCache(secondCache), "SmallFile.as");
+
+    assertThat(cacheLogs()).containsExactly(
+      "0/1 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed",
+      "1/1 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed",
+      "0/1 unchanged files reused from the analysis cache, 1 other ones with only new or modified rules executed");
+  }
+
+  private static NewActiveRule functionComplexity(String threshold) {
+    return new NewActiveRule.Builder()
+      .setRuleKey(FUNCTION_COMPLEXITY)
+      .setParam("maximumFunctionComplexityThreshold", threshold)
+      .build();
+  }
+
+  private List<String> cacheLogs() {
+    return logTester.logs(LoggerLevel.INFO).stream().filter(log -> log.contains("analysis cache")).collect(Collectors.toList());
+  }
+
+  @Test
+  public void analyse_files_again_when_content_changes() throws IOException {
+    TestCache firstCache = new TestCache(new TestCache(null));
+    analyseWithCache(cacheTester(), firstCache, "SmallFile.as");
+
+    SensorContextTester secondTester = cacheTester();
+    secondTester.setPreviousCache(firstCache);
+    secondTester.setNextCache(new TestCache(firstCache));
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    secondTester.setFileSystem(fs);
+    fs.add(inputFile("SmallFile.as", "function f() {\n  if (a == true) {}\n}\n", InputFile.Status.SAME));
+    sensor.execute(secondTester);
+
+    assertThat(cacheLogs()).endsWith("0/1 unchanged files reused from the analysis cache, 0 other ones with only new or modified rules executed");
+    assertThat(secondTester.measure("key:SmallFile.as", CoreMetrics.NCLOC).value()).isEqualTo(3);
+  }
+
+  private static SensorContextTester cacheTester() {
+    SensorContextTester context = SensorContextTester.create(TEST_DIR);
+    context.setCacheEnabled(true);
+    context.setCanSkipUnchangedFiles(true);
+    return context;
+  }
+
+  /**
+   * Analyzes unchanged files, using the previous cache of the given next cache.
+   */
+  private SensorContextTester analyseWithCache(SensorContextTester context, TestCache nextCache, String... fileNames) throws IOException {
+    context.setPreviousCache(nextCache.previous);
+    context.setNextCache(nextCache);
+    DefaultFileSystem fs = new DefaultFileSystem(TEST_DIR);
+    fs.setEncoding(StandardCharsets.UTF_8);
+    context.setFileSystem(fs);
+    for (String fileName : fileNames) {
+      String content = new String(Files.readAllBytes(new File(TEST_DIR, fileName).toPath()), StandardCharsets.UTF_8);
+      fs.add(inputFile(fileName, content, InputFile.Status.SAME));
+    }
+    sensor.execute(context);
+    return context;
+  }
+
+  /**
+   * In-memory cache, which is the next cache of an analysis and the previous cache of the following one.
+   */
+  private static class TestCache implements ReadCache, WriteCache {
+
+    private final TestCache previous;
+    private final Map<String, byte[]> data = new HashMap<>();
+    private final List<String> copiedKeys = new ArrayList<>();
+
+    TestCache(@Nullable TestCache previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public InputStream read(String key) {
+      return new ByteArrayInputStream(data.get(key));
+    }
+
+    @Override
+    public boolean contains(String key) {
+      return data.containsKey(key);
+    }
+
+    @Override
+    public void write(String key, InputStream inputStream) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(String key, byte[] bytes) {
+      assertThat(data).doesNotContainKey(key);
+      data.put(key, bytes);
+    }
+
+    @Override
+    public void copyFromPrevious(String key) {
+      write(key, previous.data.get(key));
+      copiedKeys.add(key);
+    }
+  }
+
   @Test
   public void testDescriptor() {
     DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
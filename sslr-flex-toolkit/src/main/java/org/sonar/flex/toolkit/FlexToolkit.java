@@ -16,6 +16,8 @@
  */
 package org.sonar.flex.toolkit;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
@@ -37,7 +39,15 @@ public final class FlexToolkit {
   private FlexToolkit() {
   }
 
-  public static void main(String[] args) {
+  /**
+   * Without arguments, opens the toolkit. With "--profile" and a file or a directory, profiles the rules of the
+   * grammar instead: see {@link GrammarProfiler#run(String[], PrintStream, Charset)}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0) {
+      GrammarProfiler.run(args, System.out, Charset.defaultCharset());
+      return;
+    }
     System.setProperty("com.apple.mrj.application.apple.menu.about.name", "SSDK");
     new Toolkit(FlexParser.create(Charset.defaultCharset()), getTokenizers(), "SSLR Flex Toolkit").run();
   }
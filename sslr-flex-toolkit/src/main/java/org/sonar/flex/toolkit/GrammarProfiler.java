@@ -0,0 +1,370 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.toolkit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MachineStack;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+/**
+ * Parses files with {@link FlexGrammar} and measures, for each rule, how many times it is invoked, how many of these
+ * invocations fail and make the parser backtrack, how many are answered by the memo of the parser, and the time spent.
+ * <p>
+ * The instructions of the compiled grammar are wrapped, and the frames of the rules are followed on the stack of the
+ * parsing machine: a rule succeeds when its "return" instruction is executed, and fails when its frame is popped by
+ * anything else. The timings include the overhead of this bookkeeping, so they are only meaningful relatively to each other.
+ */
+class GrammarProfiler {
+
+  enum Column {
+    INVOCATIONS(stats -> (double) stats.invocations),
+    BACKTRACKS(stats -> (double) stats.backtracks),
+    MEMO(stats -> (double) stats.memoHits),
+    TOTAL(stats -> (double) stats.totalNanos),
+    SELF(stats -> (double) stats.selfNanos);
+
+    private final ToDoubleFunction<RuleStats> value;
+
+    Column(ToDoubleFunction<RuleStats> value) {
+      this.value = value;
+    }
+  }
+
+  private final GrammarRuleKey rootRuleKey;
+  private final CompiledGrammar compiledGrammar;
+  private final Map<Matcher, RuleStats> statsByMatcher = new IdentityHashMap<>();
+  private final CallTreeNode callTree = new CallTreeNode(null);
+
+  private final List<Frame> frames = new ArrayList<>();
+  private final Map<MachineStack, Integer> depths = new IdentityHashMap<>();
+  private boolean started;
+
+  GrammarProfiler() {
+    LexerlessGrammar grammar = FlexGrammar.createGrammar();
+    rootRuleKey = FlexGrammar.PROGRAM;
+    compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.getRootRule());
+    Instruction[] instructions = compiledGrammar.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      instructions[i] = new ProfilingInstruction(instructions[i]);
+    }
+  }
+
+  /**
+   * Profiles the parsing of a file, or of all the ".as" files of a directory, prints the table of the rules sorted by
+   * the given column, and writes the collapsed stacks to the given file if any.
+   * <pre>
+   * --profile &lt;file or directory&gt; [--sort invocations|backtracks|memo|total|self] [--collapsed &lt;file&gt;]
+   * </pre>
+   */
+  static void run(String[] args, PrintStream out, Charset charset) throws IOException {
+    Path path = null;
+    Column sortColumn = Column.SELF;
+    Path collapsed = null;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if ("--profile".equals(arg) && i + 1 < args.length) {
+        i++;
+        path = Paths.get(args[i]);
+      } else if ("--sort".equals(arg) && i + 1 < args.length) {
+        i++;
+        sortColumn = Column.valueOf(args[i].toUpperCase(Locale.ENGLISH));
+      } else if ("--collapsed".equals(arg) && i + 1 < args.length) {
+        i++;
+        collapsed = Paths.get(args[i]);
+      } else {
+        throw new IllegalArgumentException("Unexpected argument: " + arg);
+      }
+    }
+    if (path == null) {
+      throw new IllegalArgumentException("Missing argument: --profile <file or directory>");
+    }
+
+    List<Path> files = files(path);
+    GrammarProfiler profiler = new GrammarProfiler();
+    int parseErrors = 0;
+    for (Path file : files) {
+      if (!profiler.parse(new String(Files.readAllBytes(file), charset))) {
+        out.println("Parse error: " + file);
+        parseErrors++;
+      }
+    }
+    out.println(files.size() + " file(s) parsed, " + parseErrors + " with parse errors");
+    profiler.printTable(out, sortColumn);
+    if (collapsed != null) {
+      try (Writer writer = Files.newBufferedWriter(collapsed, StandardCharsets.UTF_8)) {
+        profiler.writeCollapsedStacks(writer);
+      }
+      out.println("Collapsed stacks written to " + collapsed);
+    }
+  }
+
+  private static List<Path> files(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Collections.singletonList(path);
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      return paths.filter(file -> file.toString().endsWith(".as")).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * @return true if the source could be parsed
+   */
+  boolean parse(String source) {
+    frames.clear();
+    depths.clear();
+    started = false;
+    boolean matched = Machine.parse(source.toCharArray(), compiledGrammar).isMatched();
+    frames.clear();
+    depths.clear();
+    return matched;
+  }
+
+  List<RuleStats> stats(Column sortColumn) {
+    return statsByMatcher.values().stream()
+      .sorted(Comparator.comparingDouble(sortColumn.value).reversed().thenComparing(stats -> stats.ruleKey.toString()))
+      .collect(Collectors.toList());
+  }
+
+  void printTable(PrintStream out, Column sortColumn) {
+    out.printf(Locale.ENGLISH, "%-40s %12s %12s %8s %12s %8s %12s %12s%n",
+      "rule", "invocations", "backtracks", "%", "memo hits", "%", "total ms", "self ms");
+    for (RuleStats stats : stats(sortColumn)) {
+      out.printf(Locale.ENGLISH, "%-40s %12d %12d %8.1f %12d %8.1f %12.1f %12.1f%n",
+        stats.ruleKey,
+        stats.invocations,
+        stats.backtracks,
+        percentage(stats.backtracks, stats.invocations),
+        stats.memoHits,
+        percentage(stats.memoHits, stats.invocations),
+        stats.totalNanos / 1_000_000.0,
+        stats.selfNanos / 1_000_000.0);
+    }
+  }
+
+  /**
+   * Writes the self time of each stack of rules, in microseconds, in the "collapsed" format of flame graph tools:
+   * one line per stack, with the rules separated by semicolons, the root first.
+   */
+  void writeCollapsedStacks(Writer writer) throws IOException {
+    for (CallTreeNode child : callTree.children.values()) {
+      writeCollapsedStacks(writer, child, child.stats.ruleKey.toString());
+    }
+  }
+
+  private static void writeCollapsedStacks(Writer writer, CallTreeNode node, String stack) throws IOException {
+    long micros = node.selfNanos / 1_000;
+    if (micros > 0) {
+      writer.write(stack + " " + micros + "\n");
+    }
+    for (CallTreeNode child : node.children.values()) {
+      writeCollapsedStacks(writer, child, stack + ";" + child.stats.ruleKey);
+    }
+  }
+
+  private static double percentage(long count, long total) {
+    return total == 0 ? 0 : (100.0 * count / total);
+  }
+
+  private void start(Machine machine) {
+    if (!started) {
+      started = true;
+      push(machine.peek(), compiledGrammar.getMatcher(rootRuleKey));
+    }
+  }
+
+  /**
+   * Either a frame has been pushed for the callee, or its node has been taken from the memo.
+   */
+  private void afterCall(Machine machine, MachineStack stackBefore) {
+    MachineStack stack = machine.peek();
+    if (stack == stackBefore) {
+      List<ParseNode> nodes = stack.subNodes();
+      RuleStats stats = stats(nodes.get(nodes.size() - 1).getMatcher());
+      if (stats != null) {
+        stats.invocations++;
+        stats.memoHits++;
+      }
+    } else {
+      push(stack, stack.matcher());
+    }
+  }
+
+  private void push(MachineStack stack, Matcher matcher) {
+    RuleStats stats = stats(matcher);
+    Frame parent = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+    CallTreeNode parentNode = parent == null ? callTree : parent.node;
+    Frame frame = new Frame(depth(stack), stats, stats == null ? parentNode : parentNode.child(stats), System.nanoTime());
+    if (stats != null) {
+      stats.invocations++;
+      stats.active++;
+    }
+    frames.add(frame);
+  }
+
+  /**
+   * Pops the frames which are not on the stack of the machine anymore, the last one having succeeded if {@code returned}.
+   */
+  private void popFrames(Machine machine, boolean returned) {
+    if (frames.isEmpty()) {
+      return;
+    }
+    int depth = depth(machine.peek());
+    boolean success = returned;
+    while (!frames.isEmpty() && frames.get(frames.size() - 1).depth > depth) {
+      Frame frame = frames.remove(frames.size() - 1);
+      finish(frame, success);
+      success = false;
+    }
+  }
+
+  private void finish(Frame frame, boolean success) {
+    long elapsed = System.nanoTime() - frame.startNanos;
+    RuleStats stats = frame.stats;
+    if (stats == null) {
+      return;
+    }
+    if (!success) {
+      stats.backtracks++;
+    }
+    long self = elapsed - frame.childrenNanos;
+    stats.selfNanos += self;
+    frame.node.selfNanos += self;
+    stats.active--;
+    if (stats.active == 0) {
+      stats.totalNanos += elapsed;
+    }
+    for (int i = frames.size() - 1; i >= 0; i--) {
+      Frame parent = frames.get(i);
+      if (parent.stats != null) {
+        parent.childrenNanos += elapsed;
+        break;
+      }
+    }
+  }
+
+  private RuleStats stats(Matcher matcher) {
+    if (!(matcher instanceof MutableParsingRule)) {
+      return null;
+    }
+    return statsByMatcher.computeIfAbsent(matcher, m -> new RuleStats(((MutableParsingRule) m).getRuleKey()));
+  }
+
+  private int depth(MachineStack stack) {
+    Integer depth = depths.get(stack);
+    if (depth == null) {
+      depth = stack.parent() == null ? 0 : (depth(stack.parent()) + 1);
+      depths.put(stack, depth);
+    }
+    return depth;
+  }
+
+  static final class RuleStats {
+    final GrammarRuleKey ruleKey;
+    long invocations;
+    long backtracks;
+    long memoHits;
+    long totalNanos;
+    long selfNanos;
+    private int active;
+
+    private RuleStats(GrammarRuleKey ruleKey) {
+      this.ruleKey = ruleKey;
+    }
+  }
+
+  private static final class Frame {
+    private final int depth;
+    private final RuleStats stats;
+    private final CallTreeNode node;
+    private final long startNanos;
+    private long childrenNanos;
+
+    private Frame(int depth, RuleStats stats, CallTreeNode node, long startNanos) {
+      this.depth = depth;
+      this.stats = stats;
+      this.node = node;
+      this.startNanos = startNanos;
+    }
+  }
+
+  private static final class CallTreeNode {
+    private final RuleStats stats;
+    private final Map<RuleStats, CallTreeNode> children = new LinkedHashMap<>();
+    private long selfNanos;
+
+    private CallTreeNode(RuleStats stats) {
+      this.stats = stats;
+    }
+
+    private CallTreeNode child(RuleStats childStats) {
+      return children.computeIfAbsent(childStats, CallTreeNode::new);
+    }
+  }
+
+  private static final Instruction RET = Instruction.ret();
+
+  private final class ProfilingInstruction extends Instruction {
+    private final Instruction instruction;
+
+    private ProfilingInstruction(Instruction instruction) {
+      this.instruction = instruction;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      start(machine);
+      if (instruction instanceof Instruction.CallInstruction) {
+        MachineStack stack = machine.peek();
+        instruction.execute(machine);
+        afterCall(machine, stack);
+      } else {
+        instruction.execute(machine);
+        popFrames(machine, instruction == RET);
+      }
+    }
+  }
+
+}
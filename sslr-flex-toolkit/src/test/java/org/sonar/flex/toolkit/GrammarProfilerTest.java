@@ -0,0 +1,123 @@
+/*
+ * SonarQube Flex Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.flex.toolkit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.flex.FlexGrammar;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GrammarProfilerTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void rule_statistics() {
+    GrammarProfiler profiler = new GrammarProfiler();
+    assertThat(profiler.parse("var a = b + 1;\nfunction f() { return a; }")).isTrue();
+    assertThat(profiler.parse("var")).isFalse();
+
+    Map<GrammarRuleKey, GrammarProfiler.RuleStats> stats = stats(profiler);
+    assertThat(stats.get(FlexGrammar.PROGRAM).invocations).isEqualTo(2);
+    assertThat(stats.get(FlexGrammar.PROGRAM).backtracks).isEqualTo(1);
+    assertThat(stats.get(FlexGrammar.FUNCTION_DEF).invocations).isGreaterThanOrEqualTo(1);
+    assertThat(stats.get(FlexGrammar.FUNCTION_DEF).backtracks).isLessThan(stats.get(FlexGrammar.FUNCTION_DEF).invocations);
+    for (GrammarProfiler.RuleStats ruleStats : stats.values()) {
+      assertThat(ruleStats.backtracks + ruleStats.memoHits).as(ruleStats.ruleKey.toString()).isLessThanOrEqualTo(ruleStats.invocations);
+      assertThat(ruleStats.selfNanos).isLessThanOrEqualTo(ruleStats.totalNanos);
+    }
+    assertThat(stats.values().stream().mapToLong(ruleStats -> ruleStats.memoHits).sum()).isPositive();
+    assertThat(stats.get(FlexGrammar.PROGRAM).totalNanos)
+      .isEqualTo(stats.values().stream().mapToLong(ruleStats -> ruleStats.selfNanos).sum());
+  }
+
+  @Test
+  public void sorted_table() {
+    GrammarProfiler profiler = new GrammarProfiler();
+    profiler.parse("a = b;");
+    List<GrammarProfiler.RuleStats> sorted = profiler.stats(GrammarProfiler.Column.INVOCATIONS);
+    for (int i = 1; i < sorted.size(); i++) {
+      assertThat(sorted.get(i).invocations).isLessThanOrEqualTo(sorted.get(i - 1).invocations);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    profiler.printTable(new PrintStream(bytes), GrammarProfiler.Column.INVOCATIONS);
+    String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    assertThat(lines[0]).startsWith("rule").contains("invocations", "backtracks", "memo hits", "total ms", "self ms");
+    assertThat(lines[1]).startsWith(sorted.get(0).ruleKey.toString());
+    assertThat(lines).hasSize(sorted.size() + 1);
+  }
+
+  @Test
+  public void collapsed_stacks() throws IOException {
+    GrammarProfiler profiler = new GrammarProfiler();
+    for (int i = 0; i < 20; i++) {
+      profiler.parse("class A { function f() { if (a) { return b * (c + d); } } }");
+    }
+    StringWriter writer = new StringWriter();
+    profiler.writeCollapsedStacks(writer);
+    List<String> lines = Arrays.asList(writer.toString().split("\n"));
+    assertThat(lines).isNotEmpty().allMatch(line -> line.matches("PROGRAM(;[A-Z0-9_]+)* [1-9][0-9]*"));
+    assertThat(lines).anyMatch(line -> line.contains(";CLASS_DEF;"));
+  }
+
+  @Test
+  public void run() throws IOException {
+    Files.write(tempDir.resolve("a.as"), "var a;".getBytes(StandardCharsets.UTF_8));
+    Files.write(tempDir.resolve("b.as"), "var".getBytes(StandardCharsets.UTF_8));
+    Files.write(tempDir.resolve("c.txt"), "var".getBytes(StandardCharsets.UTF_8));
+    Path collapsed = tempDir.resolve("stacks.txt");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GrammarProfiler.run(new String[] {"--profile", tempDir.toString(), "--sort", "backtracks", "--collapsed", collapsed.toString()},
+      new PrintStream(bytes), StandardCharsets.UTF_8);
+    String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    assertThat(output)
+      .contains("Parse error: " + tempDir.resolve("b.as"))
+      .contains("2 file(s) parsed, 1 with parse errors")
+      .contains("Collapsed stacks written to " + collapsed);
+    assertThat(collapsed).exists();
+
+    assertThatThrownBy(() -> GrammarProfiler.run(new String[] {"--sort", "self"}, System.out, StandardCharsets.UTF_8))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("--profile");
+    assertThatThrownBy(() -> GrammarProfiler.run(new String[] {"--unknown"}, System.out, StandardCharsets.UTF_8))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unexpected argument: --unknown");
+  }
+
+  private static Map<GrammarRuleKey, GrammarProfiler.RuleStats> stats(GrammarProfiler profiler) {
+    return profiler.stats(GrammarProfiler.Column.SELF).stream().collect(Collectors.toMap(stats -> stats.ruleKey, Function.identity()));
+  }
+
+}